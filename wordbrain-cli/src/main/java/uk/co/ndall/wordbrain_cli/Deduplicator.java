@@ -0,0 +1,198 @@
+package uk.co.ndall.wordbrain_cli;
+
+import uk.co.ndall.wordbrain.LongHash;
+import uk.co.ndall.wordbrain.LongSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Filters out records which have already been seen, using a bounded amount of memory.
+ * <p>
+ * Rather than the records themselves, a 64-bit hash of each record is remembered, in an open-addressed table of longs
+ * (a {@link LongSet}, 8 to 16 bytes per record). While the table has room, each record is reported as new or a
+ * duplicate straight away, so new records can be written as soon as they arrive. Once the table is full, records which
+ * don't match it are deferred: they are spilled to temporary files, partitioned by hash, and the distinct ones are
+ * written out a partition at a time when {@link #drain} is called. A partition with more distinct records than fit in
+ * the table is deduplicated the same way, spilling what doesn't fit into smaller partitions, so the table never holds
+ * more than the given number of hashes, however many records are spilled. Two different records are only mistaken for
+ * duplicates if their hashes are equal, which among a million records has a chance of about one in forty million.
+ */
+final class Deduplicator implements Closeable {
+
+	/**
+	 * What happened to a record offered to the deduplicator.
+	 */
+	enum Outcome {
+
+		/**
+		 * The record hasn't been seen before, and should be written now.
+		 */
+		NEW,
+
+		/**
+		 * The record has been seen before, and should be skipped.
+		 */
+		DUPLICATE,
+
+		/**
+		 * The record has been spilled, and will be written by drain if it is new.
+		 */
+		DEFERRED
+	}
+
+	// Number of files deferred records are spilled to.
+	private static final int PARTITIONS = 16;
+
+	// Number of bits of a hash which choose its partition.
+	private static final int PARTITION_BITS = 4;
+
+	// Initial number of slots in each table of hashes.
+	private static final int INITIAL_SLOTS = 1024;
+
+	// The most hashes kept in memory before records are spilled.
+	private final int maxEntries;
+
+	// Number of bits to shift a hash right by to get its partition. Partitions of partitions use the next bits down.
+	private final int partitionShift;
+
+	// The hashes of the records seen.
+	private final LongSet seen = new LongSet(INITIAL_SLOTS);
+
+	// Streams writing deferred records to each partition, or null if nothing has been spilled.
+	private DataOutputStream[] spills;
+
+	// The files holding each partition, or null if nothing has been spilled.
+	private Path[] spillFiles;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxEntries The most record hashes to keep in memory before spilling records to disk.
+	 * @throws IllegalArgumentException If maxEntries is not positive.
+	 */
+	Deduplicator(int maxEntries) throws IllegalArgumentException {
+		this(maxEntries, 64 - PARTITION_BITS);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxEntries     The most record hashes to keep in memory before spilling records to disk.
+	 * @param partitionShift Number of bits to shift a hash right by to get its partition.
+	 * @throws IllegalArgumentException If maxEntries is not positive.
+	 */
+	private Deduplicator(int maxEntries, int partitionShift) throws IllegalArgumentException {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("Deduplicator must have room for at least one entry");
+		}
+		this.maxEntries = maxEntries;
+		this.partitionShift = partitionShift;
+	}
+
+	/**
+	 * Offer a record, to find out whether it should be written.
+	 *
+	 * @param record The record. Not modified.
+	 * @return Whether the record is new, a duplicate, or deferred until drain is called.
+	 * @throws IOException If the record could not be spilled.
+	 */
+	Outcome offer(byte[] record) throws IOException {
+		long hash = hash(record);
+		if (seen.contains(hash)) {
+			return Outcome.DUPLICATE;
+		}
+		if (seen.size() < maxEntries) {
+			seen.add(hash);
+			return Outcome.NEW;
+		}
+
+		if (spills == null) {
+			spills = new DataOutputStream[PARTITIONS];
+			spillFiles = new Path[PARTITIONS];
+			for (int i = 0; i < PARTITIONS; i++) {
+				spillFiles[i] = Files.createTempFile("wordbrain-dedupe", ".bin");
+				spills[i] = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(spillFiles[i])));
+			}
+		}
+		DataOutputStream spill = spills[(int) (hash >>> partitionShift) & (PARTITIONS - 1)];
+		spill.writeInt(record.length);
+		spill.write(record);
+		return Outcome.DEFERRED;
+	}
+
+	/**
+	 * Write out the distinct deferred records, then forget every record seen so far.
+	 *
+	 * @param out Stream to write the records to.
+	 * @throws IOException If the spilled records could not be read, or written to the stream.
+	 */
+	void drain(OutputStream out) throws IOException {
+		// No deferred record matches a hash in the table, so it can be emptied before the partitions are read.
+		seen.clear();
+		if (spills != null) {
+			for (int i = 0; i < PARTITIONS; i++) {
+				spills[i].close();
+
+				// The records in each partition have different hashes to those in the others, so only need checking
+				// against each other. Once all 64 bits have chosen a partition, start again from the top: the records
+				// which don't fit are still fewer each time, so this ends.
+				int shift = partitionShift >= PARTITION_BITS ? partitionShift - PARTITION_BITS : 64 - PARTITION_BITS;
+				try (Deduplicator partition = new Deduplicator(maxEntries, shift);
+					 DataInputStream in = new DataInputStream(
+							 new BufferedInputStream(Files.newInputStream(spillFiles[i])))) {
+					while (true) {
+						int length;
+						try {
+							length = in.readInt();
+						} catch (EOFException e) {
+							break;
+						}
+						byte[] record = new byte[length];
+						in.readFully(record);
+						if (partition.offer(record) == Outcome.NEW) {
+							out.write(record);
+						}
+					}
+					partition.drain(out);
+				}
+			}
+		}
+		close();
+	}
+
+	/**
+	 * Delete any spilled records.
+	 *
+	 * @throws IOException If a spill file could not be deleted.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (spills != null) {
+			for (int i = 0; i < PARTITIONS; i++) {
+				spills[i].close();
+				Files.deleteIfExists(spillFiles[i]);
+			}
+			spills = null;
+			spillFiles = null;
+		}
+	}
+
+	/**
+	 * Work out a 64-bit hash of a record (see {@link LongHash}).
+	 *
+	 * @param record The record.
+	 * @return The hash.
+	 */
+	static long hash(byte[] record) {
+		return LongHash.of(record);
+	}
+}
@@ -1,19 +1,28 @@
 package uk.co.ndall.wordbrain_cli;
 
 import uk.co.ndall.wordbrain.FoundWord;
+import uk.co.ndall.wordbrain.ProgressiveSolve;
+import uk.co.ndall.wordbrain.SolveOptions;
+import uk.co.ndall.wordbrain.SolverStatistics;
 import uk.co.ndall.wordbrain.WordBrainSolver;
 import uk.co.ndall.wordbrain.WordbrainBoard;
+import uk.co.ndall.wordgames.DictionaryRegistry;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
@@ -29,69 +38,226 @@ public class Main {
 	 */
 	private static final String DICT_FILENAME = "/enable1.txt";
 
+	/**
+	 * Name of the resource file containing a snapshot of the built-in dictionary, made by the build (see
+	 * {@link SnapshotBuilder}). If it is missing, the dictionary is built from DICT_FILENAME instead.
+	 */
+	private static final String DICT_SNAPSHOT_FILENAME = "/enable1.snapshot";
+
+	/**
+	 * Registry id of the built-in dictionary.
+	 */
+	private static final String DICT_ID = "enable1";
+
 	/**
 	 * String the user should enter to exit the program.
 	 */
 	private static final String EXIT = "exit";
 
+	/**
+	 * Option choosing the format solutions are written in: "text" (default), "jsonl" or "binary".
+	 */
+	private static final String FORMAT_OPTION = "--format=";
+
+	/**
+	 * Option giving a file to write solutions to, rather than standard out.
+	 */
+	private static final String OUTPUT_OPTION = "--output=";
+
+	/**
+	 * Option giving the most solutions per puzzle to remember in memory when skipping duplicates, or 0 to write
+	 * every solution.
+	 */
+	private static final String DEDUPE_LIMIT_OPTION = "--dedupe-limit=";
+
+	/**
+	 * Option to have the solver's threads drop solutions making the same words as one already found, before they are
+	 * queued for the writer. Unlike the writer's dedupe, the solver remembers every distinct solution in memory, with
+	 * no limit.
+	 */
+	private static final String DISTINCT_WORDS_OPTION = "--distinct-words";
+
+	/**
+	 * Option giving a file to write solver metrics to after each puzzle, in the Prometheus text format, or "-" to
+	 * write them to standard out.
+	 */
+	private static final String METRICS_OPTION = "--metrics=";
+
+	/**
+	 * Option to list the candidate first words of each puzzle before solving it, write solutions as soon as they are
+	 * found, and rank the first words by their solutions at the end.
+	 */
+	private static final String PROGRESSIVE_OPTION = "--progressive";
+
+	/**
+	 * Default for the most solutions per puzzle to remember in memory when skipping duplicates.
+	 */
+	private static final int DEFAULT_DEDUPE_LIMIT = 1_000_000;
+
 	/**
 	 * Main method for the program.
 	 *
-	 * @param args Not used.
-	 * @throws IOException There was a problem reading words from the dictionary file.
+	 * @param args Optional paths of word list files, and options: --format=text|jsonl|binary, --output=&lt;file&gt;,
+	 *             --dedupe-limit=&lt;solutions&gt;, --distinct-words, --metrics=&lt;file&gt;|- and --progressive. The
+	 *             first word list is used to solve puzzles, otherwise the built-in dictionary is used.
+	 * @throws IOException There was a problem reading words from the dictionary file, or writing solutions.
 	 */
 	public static void main(String[] args) throws IOException, ClassNotFoundException {
-		WordBrainSolver solver;
-
-
-		// Load valid words into a prefix tree.
-		try (InputStream in = openWordList(args)) {
-			try (BufferedReader br = new BufferedReader(new InputStreamReader(in))) {
-				solver = new WordBrainSolver(br.lines());
+		SolutionFormat format = SolutionFormat.TEXT;
+		Path output = null;
+		int dedupeLimit = DEFAULT_DEDUPE_LIMIT;
+		String metricsFile = null;
+		boolean progressive = false;
+		boolean distinctWords = false;
+		List<Path> wordLists = new ArrayList<>();
+		for (String arg : args) {
+			if (arg.startsWith(FORMAT_OPTION)) {
+				format = SolutionFormat.forName(arg.substring(FORMAT_OPTION.length()));
+			} else if (arg.startsWith(OUTPUT_OPTION)) {
+				output = Paths.get(arg.substring(OUTPUT_OPTION.length()));
+			} else if (arg.startsWith(DEDUPE_LIMIT_OPTION)) {
+				dedupeLimit = Integer.parseInt(arg.substring(DEDUPE_LIMIT_OPTION.length()));
+			} else if (arg.startsWith(METRICS_OPTION)) {
+				metricsFile = arg.substring(METRICS_OPTION.length());
+			} else if (arg.equals(DISTINCT_WORDS_OPTION)) {
+				distinctWords = true;
+			} else if (arg.equals(PROGRESSIVE_OPTION)) {
+				progressive = true;
+			} else {
+				wordLists.add(Paths.get(arg));
 			}
 		}
 
-		try (Scanner reader = new Scanner(System.in)) {
+		DictionaryRegistry registry = createRegistry(wordLists);
+		String dictionaryId = wordLists.isEmpty() ? DICT_ID : getDictionaryId(wordLists.get(0));
+		WordBrainSolver solver = new WordBrainSolver(registry, dictionaryId);
+		SolverStatistics statistics = new SolverStatistics();
+		if (metricsFile != null) {
+			solver.setMetrics(statistics);
+		}
+
+		// Load valid words into a prefix tree now, rather than when the first puzzle is solved.
+		registry.get(dictionaryId);
+
+		SolveOptions options = SolveOptions.DEFAULT.withDistinctWords(distinctWords);
+		OutputStream out = output == null ? System.out : Files.newOutputStream(output);
+		Deduplicator deduplicator = dedupeLimit > 0 ? new Deduplicator(dedupeLimit) : null;
+		try (Scanner reader = new Scanner(System.in);
+			 SolutionWriter writer = new SolutionWriter(out, format, deduplicator, progressive)) {
 			Optional<Puzzle> puzzle = getPuzzle(reader);
 
 			// Main program loop.
 			while (puzzle.isPresent()) {
-				Stream<List<FoundWord>> solutions = solver.solve(
-						puzzle.get().board,
-						puzzle.get().wordLengths);
-				PrintSolutions(solutions);
+				if (progressive) {
+					solveProgressively(solver, puzzle.get(), options, writer);
+				} else {
+					Stream<List<FoundWord>> solutions = solver.solve(
+							puzzle.get().board,
+							options,
+							puzzle.get().wordLengths);
+					solutions.forEach(writer);
+					writer.endPuzzle();
+				}
+				writeMetrics(statistics, metricsFile);
 				puzzle = getPuzzle(reader);
 			}
 		}
 	}
 
-	private static InputStream openWordList(String[] cmdline) throws IOException, ClassNotFoundException {
+	/**
+	 * Solve a puzzle progressively: list the candidate first words straight away, write each solution as it is found,
+	 * then list the first words which have solutions, ranked by how many. The search starts before the first words are
+	 * listed, so solutions found meanwhile are held back until they have been, rather than being written first.
+	 *
+	 * @param solver  The solver.
+	 * @param puzzle  The puzzle.
+	 * @param options The options controlling the search.
+	 * @param writer  The writer to pass the solutions to.
+	 */
+	private static void solveProgressively(
+			WordBrainSolver solver,
+			Puzzle puzzle,
+			SolveOptions options,
+			SolutionWriter writer) {
+
+		CountDownLatch firstWordsListed = new CountDownLatch(1);
+		Consumer<List<FoundWord>> listener = solution -> {
+			try {
+				firstWordsListed.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting to write a solution"));
+			}
+			writer.accept(solution);
+		};
+
+		ProgressiveSolve progress = solver.solveProgressively(puzzle.board, options, listener, puzzle.wordLengths);
+		try {
+			System.out.println("First words: " + progress.getFirstWords().stream()
+					.map(FoundWord::getWord)
+					.distinct()
+					.collect(Collectors.joining(", ")));
+		} finally {
+			firstWordsListed.countDown();
+		}
+		progress.getResult().join();
+		writer.endPuzzle();
+
+		Map<String, Long> ranking = progress.getRanking();
+		System.out.println("Solutions by first word: " + ranking.entrySet().stream()
+				.filter(entry -> entry.getValue() > 0)
+				.map(entry -> entry.getKey() + " (" + entry.getValue() + ")")
+				.collect(Collectors.joining(", ")));
+	}
+
+	/**
+	 * Write the solver's metrics, if asked to.
+	 *
+	 * @param statistics  The metrics.
+	 * @param metricsFile The file to write them to, "-" for standard out, or null not to write them.
+	 * @throws IOException There was a problem writing the metrics.
+	 */
+	private static void writeMetrics(SolverStatistics statistics, String metricsFile) throws IOException {
+		if (metricsFile == null) {
+			return;
+		}
+		if (metricsFile.equals("-")) {
+			System.out.print(statistics);
+			System.out.flush();
+		} else {
+			statistics.writeTo(Paths.get(metricsFile));
+		}
+	}
 
-		if (cmdline.length > 0) {
-			return Files.newInputStream(Paths.get(cmdline[0]));
+	/**
+	 * Create a registry containing the built-in dictionary, and any word lists given on the command line.
+	 *
+	 * @param wordLists Paths of word list files.
+	 * @return The registry.
+	 */
+	private static DictionaryRegistry createRegistry(List<Path> wordLists) {
+		DictionaryRegistry registry = new DictionaryRegistry();
+		if (Main.class.getResource(DICT_SNAPSHOT_FILENAME) != null) {
+			registry.registerSnapshotResource(DICT_ID, Main.class, DICT_SNAPSHOT_FILENAME);
 		} else {
-			return Main.class.getResourceAsStream(DICT_FILENAME);
+			registry.registerResource(DICT_ID, Main.class, DICT_FILENAME);
+		}
+		for (Path path : wordLists) {
+			registry.registerFile(getDictionaryId(path), path);
 		}
+		return registry;
 	}
 
 	/**
-	 * Print valid solutions to standard out. Note that this does not attempt to represent the positions of the
-	 * characters making up the words. Therefore, solutions that would appear as duplicates (eg. different ways to make
-	 * the same words) are not printed.
+	 * Get the registry id for a word list file: its absolute, normalised path, so that lists with the same file name
+	 * in different directories get different ids, and none can replace the built-in dictionary (whose id is not a
+	 * path).
 	 *
-	 * @param wordLists Lists of words found. Each list represents a complete solution to the puzzle.
-	 */
-	private static void PrintSolutions(Stream<List<FoundWord>> wordLists) {
-		// Map FoundWord lists to distinct comma-separated strings.
-		Stream<String> solutionStrings = wordLists
-				.map(wordList -> wordList.stream()
-						.map(FoundWord::getWord)
-						.collect(Collectors.joining(", ")))
-				.unordered() // convert to unordered, else distinct() blocks until all solutions have been found.
-				.distinct();
-
-		solutionStrings
-				.forEach(commaSeparatedWords -> System.out.println(commaSeparatedWords));
+	 * @param path Path of the word list.
+	 * @return The id.
+	 */
+	private static String getDictionaryId(Path path) {
+		return path.toAbsolutePath().normalize().toString();
 	}
 
 	/**
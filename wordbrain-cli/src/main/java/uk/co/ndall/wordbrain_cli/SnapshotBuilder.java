@@ -0,0 +1,43 @@
+package uk.co.ndall.wordbrain_cli;
+
+import uk.co.ndall.wordgames.DictionarySnapshot;
+import uk.co.ndall.wordgames.WordTrie;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.stream.Stream;
+
+/**
+ * Build tool which writes a snapshot of a word list (see {@link DictionarySnapshot}), so that the CLI can load its
+ * built-in dictionary without building the tries at startup. Run by the dictionarySnapshot task in the build.
+ */
+public class SnapshotBuilder {
+
+	/**
+	 * Main method for the tool.
+	 *
+	 * @param args The path of the word list file, with one word per line, then the path of the snapshot to write.
+	 * @throws IOException There was a problem reading the word list or writing the snapshot.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 2) {
+			throw new IllegalArgumentException("Usage: SnapshotBuilder <word list> <snapshot>");
+		}
+		Path output = Paths.get(args[1]);
+		if (output.getParent() != null) {
+			Files.createDirectories(output.getParent());
+		}
+
+		WordTrie trie;
+		try (Stream<String> words = Files.lines(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+			trie = new WordTrie(words);
+		}
+		try (OutputStream out = Files.newOutputStream(output)) {
+			DictionarySnapshot.write(trie, out);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package uk.co.ndall.wordbrain_cli;
+
+import uk.co.ndall.wordbrain.FoundWord;
+import uk.co.ndall.wordgames.Coords2D;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * The formats solutions can be written in. Each solution is encoded as a self-contained record of bytes, so records
+ * can be made on the solver's threads and then written (and compared, to skip duplicates) as they are.
+ */
+enum SolutionFormat {
+
+	/**
+	 * Plain text: the words of each solution separated by commas, one solution per line. The positions of the tiles
+	 * aren't shown, so solutions making the same words from different tiles give the same line.
+	 */
+	TEXT {
+		@Override
+		byte[] encode(List<FoundWord> solution) {
+			return (solution.stream().map(FoundWord::getWord).collect(Collectors.joining(", ")) + "\n")
+					.getBytes(StandardCharsets.UTF_8);
+		}
+	},
+
+	/**
+	 * JSON Lines: one JSON object per line, holding the words of the solution, the step at which each is removed, and
+	 * the [x, y] positions of each word's tiles on the board at that step. Eg.
+	 * {"words":["ab"],"steps":[0],"positions":[[[0,0],[1,0]]]}
+	 */
+	JSON_LINES {
+		@Override
+		byte[] encode(List<FoundWord> solution) {
+			StringBuilder json = new StringBuilder("{\"words\":[");
+			for (int i = 0; i < solution.size(); i++) {
+				json.append(i == 0 ? "\"" : ",\"");
+				appendEscaped(json, solution.get(i).getWord());
+				json.append('"');
+			}
+			json.append("],\"steps\":[");
+			for (int i = 0; i < solution.size(); i++) {
+				json.append(i == 0 ? "" : ",").append(solution.get(i).getStep());
+			}
+			json.append("],\"positions\":[");
+			for (int i = 0; i < solution.size(); i++) {
+				json.append(i == 0 ? "[" : ",[");
+				Coords2D[] positions = solution.get(i).getPositions();
+				for (int j = 0; j < positions.length; j++) {
+					json.append(j == 0 ? "[" : ",[")
+							.append(positions[j].getX()).append(',').append(positions[j].getY()).append(']');
+				}
+				json.append(']');
+			}
+			return json.append("]}\n").toString().getBytes(StandardCharsets.UTF_8);
+		}
+	},
+
+	/**
+	 * Compact binary, for other programs to read. Each record is an unsigned short holding the number of words,
+	 * followed by each word as: the word in modified UTF-8 (as written by DataOutputStream.writeUTF), an unsigned
+	 * short holding the step at which it is removed, an unsigned short holding the number of tiles, then an unsigned
+	 * short x and y for each tile. All numbers are big-endian.
+	 */
+	BINARY {
+		@Override
+		byte[] encode(List<FoundWord> solution) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (DataOutputStream data = new DataOutputStream(bytes)) {
+				data.writeShort(solution.size());
+				for (FoundWord word : solution) {
+					data.writeUTF(word.getWord());
+					data.writeShort(word.getStep());
+					Coords2D[] positions = word.getPositions();
+					data.writeShort(positions.length);
+					for (Coords2D position : positions) {
+						data.writeShort(position.getX());
+						data.writeShort(position.getY());
+					}
+				}
+			} catch (IOException e) {
+				// Writing to a byte array can't fail.
+				throw new UncheckedIOException(e);
+			}
+			return bytes.toByteArray();
+		}
+	};
+
+	/**
+	 * Encode a solution as a record.
+	 *
+	 * @param solution The words of the solution, in slot order.
+	 * @return The record.
+	 */
+	abstract byte[] encode(List<FoundWord> solution);
+
+	/**
+	 * Get a format by the name used on the command line.
+	 *
+	 * @param name The name: "text", "jsonl" or "binary".
+	 * @return The format.
+	 * @throws IllegalArgumentException If there is no format with this name.
+	 */
+	static SolutionFormat forName(String name) throws IllegalArgumentException {
+		switch (name) {
+			case "text":
+				return TEXT;
+			case "jsonl":
+				return JSON_LINES;
+			case "binary":
+				return BINARY;
+			default:
+				throw new IllegalArgumentException("Unknown output format: " + name);
+		}
+	}
+
+	/**
+	 * Append a string to some JSON, escaped for use inside quotes.
+	 *
+	 * @param json The JSON.
+	 * @param text The string.
+	 */
+	private static void appendEscaped(StringBuilder json, String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c == '"' || c == '\\') {
+				json.append('\\').append(c);
+			} else if (c < ' ') {
+				json.append(String.format("\\u%04x", (int) c));
+			} else {
+				json.append(c);
+			}
+		}
+	}
+}
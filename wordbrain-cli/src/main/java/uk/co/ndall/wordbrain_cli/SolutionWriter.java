@@ -0,0 +1,229 @@
+package uk.co.ndall.wordbrain_cli;
+
+import uk.co.ndall.wordbrain.FoundWord;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+/**
+ * Writes solutions to an output stream as they are found, without holding up the solver.
+ * <p>
+ * Solutions are encoded into records on the solver's threads (see {@link SolutionFormat}), which then hand them to a
+ * bounded queue. A single writer thread takes records from the queue, optionally drops duplicates (see
+ * {@link Deduplicator}), and writes them through a buffer, so there is no locking or flushing per solution. If the
+ * writer falls behind, the solver's threads wait for room in the queue rather than the records piling up in memory.
+ */
+final class SolutionWriter implements Consumer<List<FoundWord>>, Closeable {
+
+	// Number of records which may be waiting to be written.
+	private static final int QUEUE_CAPACITY = 4096;
+
+	// Size of the output buffer, in bytes.
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	// Marker put on the queue to ask the writer to finish the current puzzle.
+	private static final byte[] END_PUZZLE = new byte[0];
+
+	// Marker put on the queue to ask the writer to stop.
+	private static final byte[] CLOSE = new byte[0];
+
+	// The format of the records.
+	private final SolutionFormat format;
+
+	// Records waiting to be written.
+	private final BlockingQueue<byte[]> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+	// Released by the writer each time it finishes a puzzle.
+	private final Semaphore puzzlesEnded = new Semaphore(0);
+
+	// The stream to write to, buffered.
+	private final OutputStream out;
+
+	// Filter for duplicate records, or null to write every record.
+	private final Deduplicator deduplicator;
+
+	// True to flush the output whenever the queue is empty, so that solutions appear as they are found.
+	private final boolean flushWhenIdle;
+
+	// The thread writing the records.
+	private final Thread writer;
+
+	// The first error writing the records, or null if there has been none.
+	private volatile IOException error;
+
+	/**
+	 * Constructor. Starts the writer thread.
+	 *
+	 * @param out          The stream to write to. Closed when this writer is closed.
+	 * @param format       The format of the records.
+	 * @param deduplicator Filter for duplicate records, or null to write every record.
+	 */
+	SolutionWriter(OutputStream out, SolutionFormat format, Deduplicator deduplicator) {
+		this(out, format, deduplicator, false);
+	}
+
+	/**
+	 * Constructor. Starts the writer thread.
+	 *
+	 * @param out           The stream to write to. Closed when this writer is closed.
+	 * @param format        The format of the records.
+	 * @param deduplicator  Filter for duplicate records, or null to write every record.
+	 * @param flushWhenIdle True to flush the output whenever there are no more records waiting, so that solutions
+	 *                      appear as they are found rather than when the buffer fills or the puzzle ends.
+	 */
+	SolutionWriter(OutputStream out, SolutionFormat format, Deduplicator deduplicator, boolean flushWhenIdle) {
+		this.out = new BufferedOutputStream(out, BUFFER_SIZE);
+		this.format = format;
+		this.deduplicator = deduplicator;
+		this.flushWhenIdle = flushWhenIdle;
+		this.writer = new Thread(this::writeRecords, "solution-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Encode a solution and queue it to be written. May be called by any number of threads at once.
+	 *
+	 * @param solution The words of the solution, in slot order.
+	 * @throws UncheckedIOException If an earlier record could not be written, or the thread was interrupted.
+	 */
+	@Override
+	public void accept(List<FoundWord> solution) throws UncheckedIOException {
+		put(format.encode(solution));
+	}
+
+	/**
+	 * Finish the current puzzle: write any records which were deferred to skip duplicates, flush the output, and
+	 * forget the records seen so that the next puzzle's solutions aren't compared with this one's. Returns once all
+	 * of this puzzle's solutions have been written.
+	 *
+	 * @throws UncheckedIOException If a record could not be written, or the thread was interrupted.
+	 */
+	void endPuzzle() throws UncheckedIOException {
+		put(END_PUZZLE);
+		try {
+			puzzlesEnded.acquire();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting for solutions to be written"));
+		}
+		checkError();
+	}
+
+	/**
+	 * Finish the current puzzle, stop the writer thread and close the output stream.
+	 *
+	 * @throws IOException If a record could not be written, or the stream could not be closed.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			put(CLOSE);
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for solutions to be written");
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			if (deduplicator != null) {
+				deduplicator.close();
+			}
+			out.close();
+		}
+		if (error != null) {
+			throw error;
+		}
+	}
+
+	/**
+	 * Queue a record, waiting for room if needed.
+	 *
+	 * @param record The record, or a marker.
+	 * @throws UncheckedIOException If an earlier record could not be written, or the thread was interrupted.
+	 */
+	private void put(byte[] record) throws UncheckedIOException {
+		checkError();
+		try {
+			queue.put(record);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new UncheckedIOException(new InterruptedIOException("Interrupted waiting to write a solution"));
+		}
+	}
+
+	/**
+	 * Throw the first error writing the records, if there has been one.
+	 *
+	 * @throws UncheckedIOException The error.
+	 */
+	private void checkError() throws UncheckedIOException {
+		IOException e = error;
+		if (e != null) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Body of the writer thread: write records from the queue until asked to stop. After an error, records are taken
+	 * from the queue and discarded, so that threads adding them don't wait forever.
+	 */
+	private void writeRecords() {
+		while (true) {
+			byte[] record;
+			try {
+				record = queue.take();
+			} catch (InterruptedException e) {
+				return;
+			}
+
+			try {
+				if (record == END_PUZZLE || record == CLOSE) {
+					if (error == null) {
+						endRecords();
+					}
+					if (record == CLOSE) {
+						return;
+					}
+					puzzlesEnded.release();
+				} else if (error == null) {
+					if (deduplicator == null || deduplicator.offer(record) == Deduplicator.Outcome.NEW) {
+						out.write(record);
+					}
+					if (flushWhenIdle && queue.isEmpty()) {
+						out.flush();
+					}
+				}
+			} catch (IOException e) {
+				error = e;
+				if (record == CLOSE) {
+					return;
+				}
+				if (record == END_PUZZLE) {
+					puzzlesEnded.release();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Write the records deferred by the deduplicator, and flush the output.
+	 *
+	 * @throws IOException If the records could not be written.
+	 */
+	private void endRecords() throws IOException {
+		if (deduplicator != null) {
+			deduplicator.drain(out);
+		}
+		out.flush();
+	}
+}
@@ -0,0 +1,90 @@
+package uk.co.ndall.wordbrain_cli;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests for Deduplicator.
+ */
+public class DeduplicatorTest {
+
+	@Test
+	public void duplicatesDetectedInMemory() throws IOException {
+		try (Deduplicator deduplicator = new Deduplicator(10)) {
+			assertEquals(Deduplicator.Outcome.NEW, deduplicator.offer(bytes("a")));
+			assertEquals(Deduplicator.Outcome.NEW, deduplicator.offer(bytes("b")));
+			assertEquals(Deduplicator.Outcome.DUPLICATE, deduplicator.offer(bytes("a")));
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			deduplicator.drain(out);
+			assertEquals(0, out.size());
+
+			// Draining forgets the records seen.
+			assertEquals(Deduplicator.Outcome.NEW, deduplicator.offer(bytes("a")));
+		}
+	}
+
+	@Test
+	public void recordsSpilledOnceFull() throws IOException {
+		try (Deduplicator deduplicator = new Deduplicator(2)) {
+			assertEquals(Deduplicator.Outcome.NEW, deduplicator.offer(bytes("a\n")));
+			assertEquals(Deduplicator.Outcome.NEW, deduplicator.offer(bytes("b\n")));
+			assertEquals(Deduplicator.Outcome.DUPLICATE, deduplicator.offer(bytes("a\n")));
+			for (String record : new String[]{"c\n", "d\n", "c\n", "e\n", "d\n", "c\n"}) {
+				assertEquals(Deduplicator.Outcome.DEFERRED, deduplicator.offer(bytes(record)));
+			}
+			assertEquals(Deduplicator.Outcome.DUPLICATE, deduplicator.offer(bytes("b\n")));
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			deduplicator.drain(out);
+			String[] drained = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+			Arrays.sort(drained);
+			assertEquals("[c, d, e]", Arrays.toString(drained));
+		}
+	}
+
+	@Test
+	public void largePartitionsSplitAgain() throws IOException {
+		try (Deduplicator deduplicator = new Deduplicator(3)) {
+			int deferred = 0;
+			for (int repeat = 0; repeat < 2; repeat++) {
+				for (int i = 0; i < 500; i++) {
+					if (deduplicator.offer(bytes(i + "\n")) == Deduplicator.Outcome.DEFERRED) {
+						deferred++;
+					}
+				}
+			}
+			assertEquals(2 * 497, deferred);
+
+			// Each partition has far more distinct records than fit in memory, so is split again while draining.
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			deduplicator.drain(out);
+			String[] drained = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+			assertEquals(497, drained.length);
+			assertEquals(497, Arrays.stream(drained).distinct().count());
+			assertFalse(Arrays.asList(drained).contains("0"));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void noEntriesRejected() {
+		new Deduplicator(0);
+	}
+
+	/**
+	 * Encode a string as a record.
+	 *
+	 * @param text The string.
+	 * @return The record.
+	 */
+	private static byte[] bytes(String text) {
+		return text.getBytes(StandardCharsets.UTF_8);
+	}
+}
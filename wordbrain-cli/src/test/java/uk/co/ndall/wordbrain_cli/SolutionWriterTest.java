@@ -0,0 +1,126 @@
+package uk.co.ndall.wordbrain_cli;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.ndall.wordbrain.FoundWord;
+import uk.co.ndall.wordbrain.WordBrainSolver;
+import uk.co.ndall.wordbrain.WordbrainBoard;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests for SolutionWriter and SolutionFormat.
+ */
+public class SolutionWriterTest {
+
+	/**
+	 * Solutions to a small puzzle, "ab" then "cd" and "cd" then "ab".
+	 */
+	private List<List<FoundWord>> solutions;
+
+	/**
+	 * The solution removing "ab" first.
+	 */
+	private List<FoundWord> abFirst;
+
+	@Before
+	public void setUp() {
+		WordBrainSolver solver = new WordBrainSolver(Arrays.asList("ab", "cd").stream());
+		solutions = solver.solve(new WordbrainBoard("ab,cd"), 2, 2).collect(Collectors.toList());
+		abFirst = solutions.stream().filter(solution -> solution.get(0).getWord().equals("ab")).findAny().get();
+	}
+
+	@Test
+	public void textFormatListsWords() {
+		assertEquals("ab, cd\n", new String(SolutionFormat.TEXT.encode(abFirst), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void jsonLinesFormatIncludesStepsAndPositions() {
+		assertEquals("{\"words\":[\"ab\",\"cd\"],\"steps\":[0,1],\"positions\":[[[0,0],[1,0]],[[0,1],[1,1]]]}\n",
+				new String(SolutionFormat.JSON_LINES.encode(abFirst), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void binaryFormatIncludesStepsAndPositions() throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(SolutionFormat.BINARY.encode(abFirst)));
+		assertEquals(2, in.readUnsignedShort());
+		assertEquals("ab", in.readUTF());
+		assertEquals(0, in.readUnsignedShort());
+		assertEquals(2, in.readUnsignedShort());
+		assertEquals(Arrays.asList(0, 0, 1, 0), Arrays.asList(
+				in.readUnsignedShort(), in.readUnsignedShort(), in.readUnsignedShort(), in.readUnsignedShort()));
+		assertEquals("cd", in.readUTF());
+		assertEquals(1, in.readUnsignedShort());
+		assertEquals(2, in.readUnsignedShort());
+		assertEquals(Arrays.asList(0, 1, 1, 1), Arrays.asList(
+				in.readUnsignedShort(), in.readUnsignedShort(), in.readUnsignedShort(), in.readUnsignedShort()));
+		assertEquals(-1, in.read());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownFormatRejected() {
+		SolutionFormat.forName("xml");
+	}
+
+	@Test
+	public void writerWritesEverySolution() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (SolutionWriter writer = new SolutionWriter(out, SolutionFormat.TEXT, null)) {
+			solutions.parallelStream().forEach(writer);
+			solutions.parallelStream().forEach(writer);
+			writer.endPuzzle();
+			assertEquals(4, countLines(out));
+		}
+	}
+
+	@Test
+	public void writerSkipsDuplicatesWithinPuzzle() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (SolutionWriter writer = new SolutionWriter(out, SolutionFormat.TEXT, new Deduplicator(1))) {
+			solutions.parallelStream().forEach(writer);
+			solutions.parallelStream().forEach(writer);
+			writer.endPuzzle();
+			assertEquals(2, countLines(out));
+
+			// The next puzzle's solutions are written even if an earlier puzzle had the same ones.
+			solutions.forEach(writer);
+			writer.endPuzzle();
+			assertEquals(4, countLines(out));
+		}
+	}
+
+	/**
+	 * Count the lines written to a stream.
+	 *
+	 * @param out The stream.
+	 * @return The number of lines.
+	 */
+	@Test
+	public void writerFlushesWhenIdle() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (SolutionWriter writer = new SolutionWriter(out, SolutionFormat.TEXT, null, true)) {
+			solutions.forEach(writer);
+
+			// The solutions are written without ending the puzzle.
+			long deadline = System.currentTimeMillis() + 10_000;
+			while (countLines(out) < 2 && System.currentTimeMillis() < deadline) {
+				Thread.sleep(10);
+			}
+			assertEquals(2, countLines(out));
+		}
+	}
+
+	private static int countLines(ByteArrayOutputStream out) {
+		return new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n").length;
+	}
+}
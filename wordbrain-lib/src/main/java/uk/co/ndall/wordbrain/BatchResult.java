@@ -0,0 +1,156 @@
+package uk.co.ndall.wordbrain;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The results of solving a batch of puzzles (see {@link WordBrainSolver#solveBatch}), with the time each puzzle took
+ * and the throughput of the batch as a whole.
+ */
+public final class BatchResult {
+
+	/**
+	 * The result of solving one puzzle in a batch.
+	 */
+	public static final class PuzzleResult {
+
+		// The puzzle.
+		private final Puzzle puzzle;
+
+		// The solutions found, and whether the search finished.
+		private final SolveResult result;
+
+		// The time from starting the puzzle to finishing it.
+		private final Duration latency;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param puzzle  The puzzle.
+		 * @param result  The solutions found, and whether the search finished.
+		 * @param latency The time from starting the puzzle to finishing it.
+		 */
+		PuzzleResult(Puzzle puzzle, SolveResult result, Duration latency) {
+			this.puzzle = puzzle;
+			this.result = result;
+			this.latency = latency;
+		}
+
+		/**
+		 * Get the puzzle.
+		 *
+		 * @return The puzzle.
+		 */
+		public Puzzle getPuzzle() {
+			return puzzle;
+		}
+
+		/**
+		 * Get the solutions found, and whether the search finished.
+		 *
+		 * @return The result.
+		 */
+		public SolveResult getResult() {
+			return result;
+		}
+
+		/**
+		 * Get the time from starting the puzzle to finishing it. Other puzzles are solved at the same time, so this
+		 * includes time spent waiting for threads they were using.
+		 *
+		 * @return The latency.
+		 */
+		public Duration getLatency() {
+			return latency;
+		}
+	}
+
+	// The result of each puzzle, in the order the puzzles were given.
+	private final List<PuzzleResult> results;
+
+	// The time taken to solve the whole batch.
+	private final Duration elapsed;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param results The result of each puzzle, in the order the puzzles were given.
+	 * @param elapsed The time taken to solve the whole batch.
+	 */
+	BatchResult(List<PuzzleResult> results, Duration elapsed) {
+		this.results = Collections.unmodifiableList(results);
+		this.elapsed = elapsed;
+	}
+
+	/**
+	 * Get the result of each puzzle.
+	 *
+	 * @return Unmodifiable list of results, in the order the puzzles were given.
+	 */
+	public List<PuzzleResult> getResults() {
+		return results;
+	}
+
+	/**
+	 * Get the time taken to solve the whole batch.
+	 *
+	 * @return The elapsed time.
+	 */
+	public Duration getElapsed() {
+		return elapsed;
+	}
+
+	/**
+	 * Count the solutions found for every puzzle.
+	 *
+	 * @return The total number of solutions.
+	 */
+	public long getTotalSolutions() {
+		return results.stream().mapToLong(result -> result.getResult().getSolutions().size()).sum();
+	}
+
+	/**
+	 * Count the words tried for every puzzle.
+	 *
+	 * @return The total number of nodes visited.
+	 */
+	public long getTotalNodes() {
+		return results.stream().mapToLong(result -> result.getResult().getNodesVisited()).sum();
+	}
+
+	/**
+	 * Get the number of puzzles solved per second of elapsed time.
+	 *
+	 * @return The throughput, or zero if no time has elapsed.
+	 */
+	public double getPuzzlesPerSecond() {
+		return perSecond(results.size());
+	}
+
+	/**
+	 * Get the number of words tried per second of elapsed time, across every puzzle.
+	 *
+	 * @return The throughput, or zero if no time has elapsed.
+	 */
+	public double getNodesPerSecond() {
+		return perSecond(getTotalNodes());
+	}
+
+	/**
+	 * Get a rate per second of elapsed time.
+	 *
+	 * @param count The number of things done in the elapsed time.
+	 * @return The rate, or zero if no time has elapsed.
+	 */
+	private double perSecond(long count) {
+		long nanos = elapsed.toNanos();
+		return nanos == 0 ? 0 : count * 1e9 / nanos;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("puzzles=%d solutions=%d elapsed=%dms puzzlesPerSecond=%.3g nodesPerSecond=%.3g",
+				results.size(), getTotalSolutions(), elapsed.toMillis(), getPuzzlesPerSecond(), getNodesPerSecond());
+	}
+}
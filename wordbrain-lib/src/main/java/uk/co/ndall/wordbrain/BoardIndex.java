@@ -0,0 +1,228 @@
+package uk.co.ndall.wordbrain;
+
+import uk.co.ndall.wordgames.Coords2D;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Flattened view of a WordbrainBoard, precomputed so that the solver can look up letters and neighbours using
+ * primitive cell indexes, without allocating Coords2D or Optional objects. A cell index is y * width + x, so cells are
+ * numbered from top left to bottom right.
+ * <p>
+ * Which cells neighbour each other only depends on the size of the board, so the neighbour tables are built once per
+ * size and shared by every board of that size (including the boards left after removing words).
+ */
+final class BoardIndex {
+
+	/**
+	 * Value of a cell with no letter in it.
+	 */
+	static final char EMPTY = ' ';
+
+	// Neighbour tables, keyed by board size (width in the high int, height in the low int).
+	private static final ConcurrentMap<Long, int[][]> NEIGHBOURS = new ConcurrentHashMap<>();
+
+	// Number of columns.
+	private final int width;
+
+	// Number of rows.
+	private final int height;
+
+	// Letter in each cell, or EMPTY.
+	private final char[] cells;
+
+	// Indexes of the cells surrounding each cell, whether or not they contain letters.
+	private final int[][] neighbours;
+
+	// Indexes of the cells containing letters, in ascending order.
+	private final int[] occupied;
+
+	// The distinct letters on the board, sorted.
+	private final char[] letters;
+
+	// Indexes of the cells containing each letter in the letters array, in ascending order.
+	private final int[][] letterCells;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param columns The letters on the board, as an array of columns. All columns must be the same length.
+	 * @throws IllegalArgumentException If the rows of the board are not all the same length, or the board has more than
+	 *                                  WordbrainBoard.MAX_CELLS squares.
+	 */
+	BoardIndex(char[][] columns) throws IllegalArgumentException {
+		width = columns.length;
+		height = width == 0 ? 0 : columns[0].length;
+		if ((long) width * height > WordbrainBoard.MAX_CELLS) {
+			throw new IllegalArgumentException("Board has more than " + WordbrainBoard.MAX_CELLS + " squares");
+		}
+		cells = new char[width * height];
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < height; y++) {
+				if (columns[x][y] == WordbrainBoard.NO_SQUARE) {
+					throw new IllegalArgumentException("Board rows are not all the same length");
+				}
+				cells[y * width + x] = columns[x][y];
+			}
+		}
+		neighbours = getNeighbourTable(width, height);
+
+		// Count the cells, and the cells for each letter, then fill in the indexes.
+		int count = 0;
+		char[] sorted = new char[cells.length];
+		for (char letter : cells) {
+			if (letter != EMPTY) {
+				sorted[count++] = letter;
+			}
+		}
+		occupied = new int[count];
+		sorted = Arrays.copyOf(sorted, count);
+		Arrays.sort(sorted);
+
+		int distinct = 0;
+		for (int i = 0; i < count; i++) {
+			if (i == 0 || sorted[i] != sorted[i - 1]) {
+				sorted[distinct++] = sorted[i];
+			}
+		}
+		letters = Arrays.copyOf(sorted, distinct);
+
+		int[] letterCounts = new int[distinct];
+		for (char letter : cells) {
+			if (letter != EMPTY) {
+				letterCounts[Arrays.binarySearch(letters, letter)]++;
+			}
+		}
+		letterCells = new int[distinct][];
+		for (int i = 0; i < distinct; i++) {
+			letterCells[i] = new int[letterCounts[i]];
+			letterCounts[i] = 0;
+		}
+
+		count = 0;
+		for (int cell = 0; cell < cells.length; cell++) {
+			if (cells[cell] != EMPTY) {
+				occupied[count++] = cell;
+				int letter = Arrays.binarySearch(letters, cells[cell]);
+				letterCells[letter][letterCounts[letter]++] = cell;
+			}
+		}
+	}
+
+	/**
+	 * Get the table of neighbouring cells for a board size, building it if this is the first board of this size.
+	 *
+	 * @param width  Number of columns.
+	 * @param height Number of rows.
+	 * @return For each cell index, the indexes of the surrounding cells (from top left to bottom right).
+	 */
+	private static int[][] getNeighbourTable(int width, int height) {
+		return NEIGHBOURS.computeIfAbsent(((long) width << 32) | height, key -> {
+			int[][] table = new int[width * height][];
+			int[] buffer = new int[8];
+			for (int y = 0; y < height; y++) {
+				for (int x = 0; x < width; x++) {
+					int count = 0;
+					for (int y1 = Math.max(0, y - 1); y1 <= Math.min(height - 1, y + 1); y1++) {
+						for (int x1 = Math.max(0, x - 1); x1 <= Math.min(width - 1, x + 1); x1++) {
+							if (x1 != x || y1 != y) {
+								buffer[count++] = y1 * width + x1;
+							}
+						}
+					}
+					table[y * width + x] = Arrays.copyOf(buffer, count);
+				}
+			}
+			return table;
+		});
+	}
+
+	/**
+	 * Get the number of columns.
+	 *
+	 * @return The width of the board.
+	 */
+	int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Get the number of rows.
+	 *
+	 * @return The height of the board.
+	 */
+	int getHeight() {
+		return height;
+	}
+
+	/**
+	 * Get the number of cells (occupied or not).
+	 *
+	 * @return The width multiplied by the height.
+	 */
+	int getSize() {
+		return cells.length;
+	}
+
+	/**
+	 * Get the letter in a cell.
+	 *
+	 * @param cell The cell index.
+	 * @return The letter, or EMPTY.
+	 */
+	char getLetter(int cell) {
+		return cells[cell];
+	}
+
+	/**
+	 * Get the cells surrounding a cell, whether or not they contain letters. The returned array must not be modified.
+	 *
+	 * @param cell The cell index.
+	 * @return Indexes of the surrounding cells.
+	 */
+	int[] getNeighbours(int cell) {
+		return neighbours[cell];
+	}
+
+	/**
+	 * Get the cells which contain letters. The returned array must not be modified.
+	 *
+	 * @return Indexes of the occupied cells, from top left to bottom right.
+	 */
+	int[] getOccupiedCells() {
+		return occupied;
+	}
+
+	/**
+	 * Get the cells containing a particular letter. The returned array must not be modified.
+	 *
+	 * @param letter The letter.
+	 * @return Indexes of the cells containing the letter, from top left to bottom right.
+	 */
+	int[] getCellsWithLetter(char letter) {
+		int i = Arrays.binarySearch(letters, letter);
+		return i < 0 ? new int[0] : letterCells[i];
+	}
+
+	/**
+	 * Get the index of the cell at a position.
+	 *
+	 * @param pos The position.
+	 * @return The cell index.
+	 */
+	int getCell(Coords2D pos) {
+		return pos.getY() * width + pos.getX();
+	}
+
+	/**
+	 * Get the position of a cell.
+	 *
+	 * @param cell The cell index.
+	 * @return The position.
+	 */
+	Coords2D getCoords(int cell) {
+		return new Coords2D(cell % width, cell / width);
+	}
+}
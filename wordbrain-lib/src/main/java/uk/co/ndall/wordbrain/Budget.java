@@ -0,0 +1,251 @@
+package uk.co.ndall.wordbrain;
+
+import uk.co.ndall.wordgames.FlightRecorderSupport;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The limits on a single search, shared by all the threads working on it. Each thread counts the words it tries using
+ * its own {@link Meter}, which adds them to the shared total and checks the time limit every so often, so threads
+ * don't contend on every word. Once any limit is exceeded every thread sees it on its next word and stops. Finding
+ * the paths of words on a board isn't counted as trying words, but is stepped through the meter too, so that the time
+ * limit also stops a search that is still finding the words on a big board.
+ */
+final class Budget {
+
+	// Most words a meter counts before adding them to the total and checking the limits.
+	private static final int CHECK_INTERVAL = 256;
+
+	// Number of path finding steps a meter counts before checking the time limit.
+	private static final int STEP_CHECK_INTERVAL = 4096;
+
+	// Number of words a meter counts before adding them to the total and checking the limits. Smaller than
+	// CHECK_INTERVAL for small node limits, so they aren't overshot by much.
+	private final int checkInterval;
+
+	// System.nanoTime() after which the search must stop, or Long.MAX_VALUE for no limit.
+	private final long deadline;
+
+	// Whether there is a time limit.
+	private final boolean hasDeadline;
+
+	// The number of words which may be tried.
+	private final long maxNodes;
+
+	// The number of solutions which may be kept.
+	private final long maxSolutions;
+
+	// The number of words tried, by meters which have added their counts.
+	private final AtomicLong nodes = new AtomicLong();
+
+	// The number of solutions kept.
+	private final AtomicLong solutions = new AtomicLong();
+
+	// The number of bytes of direct memory which may be used for solutions.
+	private final long maxOffHeapBytes;
+
+	// The number of bytes of direct memory reserved for solutions.
+	private final AtomicLong offHeapBytes = new AtomicLong();
+
+	// Direct buffers released once the solutions in them were streamed, to be reused rather than allocating more.
+	private final Queue<ByteBuffer> spareBuffers = new ConcurrentLinkedQueue<>();
+
+	// Whether the search is within its limits, or which limit it exceeded.
+	private volatile SolveResult.Status status = SolveResult.Status.COMPLETE;
+
+	/**
+	 * Constructor. The time limit starts now.
+	 *
+	 * @param options The options holding the limits.
+	 */
+	Budget(SolveOptions options) {
+		Duration timeLimit = options.getTimeLimit();
+		this.hasDeadline = timeLimit != null;
+		this.deadline = hasDeadline ? System.nanoTime() + timeLimit.toNanos() : Long.MAX_VALUE;
+		this.maxNodes = options.getNodeLimit();
+		this.maxSolutions = options.getSolutionLimit();
+		this.maxOffHeapBytes = options.getOffHeapBytes();
+		this.checkInterval = (int) Math.max(1, Math.min(CHECK_INTERVAL, maxNodes / 64));
+	}
+
+	/**
+	 * Check whether a limit has been exceeded.
+	 *
+	 * @return True if the search must stop.
+	 */
+	boolean isExceeded() {
+		return status != SolveResult.Status.COMPLETE;
+	}
+
+	/**
+	 * Get whether the search is within its limits, or which limit it exceeded first.
+	 *
+	 * @return The status.
+	 */
+	SolveResult.Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Get the number of words tried, by meters which have added their counts.
+	 *
+	 * @return The number of words.
+	 */
+	long getNodes() {
+		return nodes.get();
+	}
+
+	/**
+	 * Get the number of solutions kept.
+	 *
+	 * @return The number of solutions.
+	 */
+	long getSolutions() {
+		return Math.min(solutions.get(), maxSolutions);
+	}
+
+	/**
+	 * Reserve space for a solution.
+	 *
+	 * @return True if the solution may be kept, false if it is one more than the solution limit allows (the search must
+	 * stop, and the solution is dropped).
+	 */
+	boolean addSolution() {
+		if (solutions.incrementAndGet() > maxSolutions) {
+			exceed(SolveResult.Status.SOLUTION_LIMIT_EXCEEDED);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Reserve direct memory for storing solutions.
+	 *
+	 * @param bytes The number of bytes.
+	 * @return True if the memory may be allocated, false if it would exceed the off-heap budget.
+	 */
+	boolean reserveOffHeap(long bytes) {
+		if (offHeapBytes.addAndGet(bytes) > maxOffHeapBytes) {
+			offHeapBytes.addAndGet(-bytes);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Take a direct buffer for storing solutions: a buffer released earlier if there is one of the right size,
+	 * otherwise a new one if the off-heap budget allows.
+	 *
+	 * @param bytes The size of the buffer.
+	 * @return The buffer, cleared, or null if it would exceed the off-heap budget.
+	 */
+	ByteBuffer allocateOffHeap(int bytes) {
+		ByteBuffer spare = spareBuffers.poll();
+		if (spare != null) {
+			if (spare.capacity() == bytes) {
+				spare.clear();
+				return spare;
+			}
+			// Not worth keeping: give its bytes back to the budget, and let the garbage collector free it.
+			offHeapBytes.addAndGet(-spare.capacity());
+		}
+		return reserveOffHeap(bytes) ? ByteBuffer.allocateDirect(bytes) : null;
+	}
+
+	/**
+	 * Release a direct buffer taken from allocateOffHeap, once nothing more will be read from it, so it can be reused.
+	 *
+	 * @param buffer The buffer.
+	 */
+	void releaseOffHeap(ByteBuffer buffer) {
+		spareBuffers.add(buffer);
+	}
+
+	/**
+	 * Record that a limit has been exceeded, unless another limit was exceeded first.
+	 *
+	 * @param exceeded The limit exceeded.
+	 */
+	private synchronized void exceed(SolveResult.Status exceeded) {
+		if (status == SolveResult.Status.COMPLETE) {
+			status = exceeded;
+			if (FlightRecorderSupport.isAvailable()) {
+				SearchStoppedEvent.record(exceeded, nodes.get(), getSolutions());
+			}
+		}
+	}
+
+	/**
+	 * Counts the words tried by one thread.
+	 */
+	final class Meter {
+
+		// The number of words counted since they were last added to the total.
+		private int unchecked = 0;
+
+		// The number of path finding steps counted since the time limit was last checked.
+		private int steps = 0;
+
+		/**
+		 * Constructor. Checks the limits straight away, so nothing is searched after the time limit has passed.
+		 */
+		Meter() {
+			flush();
+		}
+
+		/**
+		 * Count a word about to be tried.
+		 *
+		 * @return True if the word may be tried, false if a limit has been exceeded (the search must stop).
+		 */
+		boolean tick() {
+			if (++unchecked >= checkInterval) {
+				flush();
+			}
+			return !isExceeded();
+		}
+
+		/**
+		 * Count a step of finding the paths of words on a board (see WordPaths), which isn't counted as a word tried.
+		 *
+		 * @return True if the search may continue, false if a limit has been exceeded (the search must stop).
+		 */
+		boolean step() {
+			if (++steps >= STEP_CHECK_INTERVAL) {
+				steps = 0;
+				if (hasDeadline && System.nanoTime() - deadline > 0) {
+					exceed(SolveResult.Status.TIME_LIMIT_EXCEEDED);
+				}
+			}
+			return !isExceeded();
+		}
+
+		/**
+		 * Check the limits now, for a step of work which is too slow to only check every few thousand steps, such as
+		 * finding the next word for the board's dictionary.
+		 *
+		 * @return True if the search may continue, false if a limit has been exceeded (the search must stop).
+		 */
+		boolean check() {
+			flush();
+			return !isExceeded();
+		}
+
+		/**
+		 * Add the words counted to the total, and check the limits.
+		 */
+		void flush() {
+			if (nodes.addAndGet(unchecked) > maxNodes) {
+				exceed(SolveResult.Status.NODE_LIMIT_EXCEEDED);
+			}
+			unchecked = 0;
+			if (hasDeadline && System.nanoTime() - deadline > 0) {
+				exceed(SolveResult.Status.TIME_LIMIT_EXCEEDED);
+			}
+		}
+	}
+}
@@ -0,0 +1,190 @@
+package uk.co.ndall.wordbrain;
+
+import uk.co.ndall.wordgames.Coords2D;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The canonical form of a WordbrainBoard, shared by every board which has the same solutions up to a change of
+ * coordinates (see {@link WordbrainBoard#getCanonicalForm}), and the change of coordinates between the two.
+ * <p>
+ * Letters only ever fall straight down, so blank rows at the top of a board and blank columns at either side stay
+ * blank, and can be trimmed off without changing the solutions. Gravity is also unchanged by flipping the board left
+ * to right, so a board and its mirror image have mirror image solutions. The canonical form is the trimmed board, or
+ * its mirror image if that has the smaller layout. Two canonical forms are equal if their layouts are equal, so they
+ * can be used as the keys of a cache of results, and solutions found on the canonical board converted back to the
+ * original board's coordinates.
+ */
+public final class CanonicalBoard {
+
+	// The canonical board.
+	private final WordbrainBoard board;
+
+	// The canonical board's rows, separated by commas.
+	private final String layout;
+
+	// 64-bit hash of the layout.
+	private final long hash;
+
+	// Whether the canonical board is the mirror image of the original.
+	private final boolean mirrored;
+
+	// The original column which is the first (or last, if mirrored) canonical column.
+	private final int left;
+
+	// The original column which is the last (or first, if mirrored) canonical column.
+	private final int right;
+
+	// The original row which is the first canonical row.
+	private final int top;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param board    The canonical board.
+	 * @param layout   The canonical board's rows, separated by commas.
+	 * @param mirrored Whether the canonical board is the mirror image of the original.
+	 * @param left     The first original column kept.
+	 * @param right    The last original column kept.
+	 * @param top      The first original row kept.
+	 */
+	CanonicalBoard(WordbrainBoard board, String layout, boolean mirrored, int left, int right, int top) {
+		this.board = board;
+		this.layout = layout;
+		this.hash = LongHash.of(layout);
+		this.mirrored = mirrored;
+		this.left = left;
+		this.right = right;
+		this.top = top;
+	}
+
+	/**
+	 * Get the canonical board.
+	 *
+	 * @return The board.
+	 */
+	public WordbrainBoard getBoard() {
+		return board;
+	}
+
+	/**
+	 * Get a 64-bit hash of the canonical board's layout. Boards with the same canonical form have the same hash; boards
+	 * with different canonical forms are very unlikely to.
+	 *
+	 * @return The hash.
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * Check whether the canonical board is the mirror image of the original board.
+	 *
+	 * @return True if the board was flipped left to right.
+	 */
+	public boolean isMirrored() {
+		return mirrored;
+	}
+
+	/**
+	 * Convert a position on the original board to the same square on the canonical board.
+	 *
+	 * @param pos The position on the original board. Must not be in a row or column which was trimmed.
+	 * @return The position on the canonical board.
+	 */
+	public Coords2D toCanonical(Coords2D pos) {
+		return new Coords2D(mirrored ? right - pos.getX() : pos.getX() - left, pos.getY() - top);
+	}
+
+	/**
+	 * Convert a position on the canonical board to the same square on the original board.
+	 *
+	 * @param pos The position on the canonical board.
+	 * @return The position on the original board.
+	 */
+	public Coords2D toOriginal(Coords2D pos) {
+		return new Coords2D(mirrored ? right - pos.getX() : pos.getX() + left, pos.getY() + top);
+	}
+
+	/**
+	 * Convert a solution found on the canonical board to the same solution on the original board. The positions of
+	 * each word are converted; its letters and step are unchanged.
+	 *
+	 * @param solution The words of the solution on the canonical board, in slot order.
+	 * @return Unmodifiable list of the words on the original board, in slot order. The solution itself if no
+	 * conversion is needed.
+	 */
+	public List<FoundWord> toOriginal(List<FoundWord> solution) {
+		if (isIdentity()) {
+			return solution;
+		}
+		List<FoundWord> converted = new ArrayList<>(solution.size());
+		for (FoundWord word : solution) {
+			Coords2D[] positions = new Coords2D[word.positions.length];
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = toOriginal(word.positions[i]);
+			}
+			converted.add(new FoundWord(positions, word.word, word.step));
+		}
+		return Collections.unmodifiableList(converted);
+	}
+
+	/**
+	 * Convert the solutions found on the canonical board to the same solutions on the original board, as they are read.
+	 * The solutions aren't copied, so any packed into direct memory (see OffHeapSolutions) stay packed.
+	 *
+	 * @param solutions The solutions on the canonical board.
+	 * @return List of the solutions on the original board, each converted by toOriginal whenever it is read.
+	 */
+	List<List<FoundWord>> allToOriginal(List<List<FoundWord>> solutions) {
+		if (isIdentity()) {
+			return solutions;
+		}
+		return new AbstractList<List<FoundWord>>() {
+
+			@Override
+			public List<FoundWord> get(int i) {
+				return toOriginal(solutions.get(i));
+			}
+
+			@Override
+			public int size() {
+				return solutions.size();
+			}
+		};
+	}
+
+	/**
+	 * Check whether the canonical board is the original board, so no conversion is needed.
+	 *
+	 * @return True if the board was neither trimmed nor mirrored.
+	 */
+	boolean isIdentity() {
+		return !mirrored && left == 0 && top == 0;
+	}
+
+	@Override
+	public boolean equals(Object object) {
+		if (this == object) {
+			return true;
+		}
+		if (!(object instanceof CanonicalBoard)) {
+			return false;
+		}
+		CanonicalBoard other = (CanonicalBoard) object;
+		return hash == other.hash && layout.equals(other.layout);
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) hash;
+	}
+
+	@Override
+	public String toString() {
+		return layout;
+	}
+}
@@ -0,0 +1,82 @@
+package uk.co.ndall.wordbrain;
+
+/**
+ * Helpers for sets of cells stored as bitsets: arrays of longs, with bit (cell % 64) of element (cell / 64) set for
+ * each cell in the set. A set for the biggest supported board (see WordbrainBoard.MAX_CELLS) is 1024 longs, but a set
+ * for a 15x15 board is only four.
+ */
+final class CellBits {
+
+	/**
+	 * Constructor. Not used: this class only has static methods.
+	 */
+	private CellBits() {
+	}
+
+	/**
+	 * Create an empty set.
+	 *
+	 * @param size The number of cells on the board.
+	 * @return The set.
+	 */
+	static long[] create(int size) {
+		return new long[length(size)];
+	}
+
+	/**
+	 * Get the number of longs in a set.
+	 *
+	 * @param size The number of cells on the board.
+	 * @return The length of the array holding the set.
+	 */
+	static int length(int size) {
+		return (size + 63) >>> 6;
+	}
+
+	/**
+	 * Add a cell to a set.
+	 *
+	 * @param bits The set.
+	 * @param cell The cell index.
+	 */
+	static void add(long[] bits, int cell) {
+		bits[cell >>> 6] |= 1L << cell;
+	}
+
+	/**
+	 * Remove a cell from a set.
+	 *
+	 * @param bits The set.
+	 * @param cell The cell index.
+	 */
+	static void remove(long[] bits, int cell) {
+		bits[cell >>> 6] &= ~(1L << cell);
+	}
+
+	/**
+	 * Check whether a cell is in a set.
+	 *
+	 * @param bits The set.
+	 * @param cell The cell index.
+	 * @return True if the cell is in the set.
+	 */
+	static boolean contains(long[] bits, int cell) {
+		return (bits[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/**
+	 * Check whether two sets have any cells in common.
+	 *
+	 * @param a The first set.
+	 * @param b The second set, the same size as the first.
+	 * @return True if any cell is in both sets.
+	 */
+	static boolean intersects(long[] a, long[] b) {
+		for (int i = 0; i < a.length; i++) {
+			if ((a[i] & b[i]) != 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+}
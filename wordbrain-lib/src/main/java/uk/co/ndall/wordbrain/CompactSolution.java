@@ -0,0 +1,134 @@
+package uk.co.ndall.wordbrain;
+
+import uk.co.ndall.wordgames.Coords2D;
+
+import java.util.AbstractList;
+
+/**
+ * A solution found by the solver, stored compactly until its words are asked for.
+ * <p>
+ * During the search each word removed is recorded in a {@link Step}, linked to the step before it, so solutions which
+ * begin with the same words share those steps rather than copying them. A step only holds the cells of its word, as
+ * indexes into the initial board. The FoundWord objects, with their letters and positions, are made the first time
+ * any word of the solution is asked for, by replaying the removals on a copy of the board.
+ */
+final class CompactSolution extends AbstractList<FoundWord> {
+
+	/**
+	 * A word removed during the search, linked to the words removed before it.
+	 */
+	static final class Step {
+
+		// The step before this one, or null if this is the first word removed.
+		final Step previous;
+
+		// The slot filled by the word.
+		final int slot;
+
+		// The cells of the word, in order, on the board as it was when the word was removed. Never modified.
+		final int[] path;
+
+		// The number of words removed before this one.
+		final int depth;
+
+		// Fingerprint of the words removed up to and including this one, in their slots (see Search.wordFingerprint).
+		final long fingerprint;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param previous The step before this one, or null if this is the first word removed.
+		 * @param slot     The slot filled by the word.
+		 * @param path     The cells of the word. The array is not copied, so must not be modified afterwards.
+		 */
+		Step(Step previous, int slot, int[] path) {
+			this(previous, slot, path, 0);
+		}
+
+		/**
+		 * Constructor.
+		 *
+		 * @param previous        The step before this one, or null if this is the first word removed.
+		 * @param slot            The slot filled by the word.
+		 * @param path            The cells of the word. The array is not copied, so must not be modified afterwards.
+		 * @param wordFingerprint Fingerprint of the word in its slot, added to those of the earlier words.
+		 */
+		Step(Step previous, int slot, int[] path, long wordFingerprint) {
+			this.previous = previous;
+			this.slot = slot;
+			this.path = path;
+			this.depth = previous == null ? 0 : previous.depth + 1;
+			this.fingerprint = (previous == null ? 0 : previous.fingerprint) + wordFingerprint;
+		}
+	}
+
+	// The initial board.
+	private final BoardIndex index;
+
+	// The last word removed.
+	private final Step last;
+
+	// The words in slot order, made when first needed.
+	private volatile FoundWord[] words;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param index The initial board.
+	 * @param last  The last word removed, which must fill the last unfilled slot.
+	 */
+	CompactSolution(BoardIndex index, Step last) {
+		this.index = index;
+		this.last = last;
+	}
+
+	/**
+	 * Get the last word removed, linked to the words removed before it.
+	 *
+	 * @return The last step.
+	 */
+	Step getLastStep() {
+		return last;
+	}
+
+	@Override
+	public FoundWord get(int slot) {
+		return getWords()[slot];
+	}
+
+	@Override
+	public int size() {
+		return last.depth + 1;
+	}
+
+	/**
+	 * Get the words of this solution, making them the first time they are needed.
+	 *
+	 * @return The words in slot order.
+	 */
+	private FoundWord[] getWords() {
+		FoundWord[] result = words;
+		if (result == null) {
+			// Two threads may both make the words, but they will be equal so it doesn't matter which are kept.
+			Step[] steps = new Step[size()];
+			for (Step step = last; step != null; step = step.previous) {
+				steps[step.depth] = step;
+			}
+
+			MutableBoard board = new MutableBoard(index);
+			result = new FoundWord[steps.length];
+			for (Step step : steps) {
+				Coords2D[] positions = new Coords2D[step.path.length];
+				char[] letters = new char[step.path.length];
+				for (int i = 0; i < step.path.length; i++) {
+					positions[i] = board.getCoords(step.path[i]);
+					letters[i] = board.getLetter(step.path[i]);
+				}
+				result[step.slot] = new FoundWord(positions, new String(letters), step.depth);
+				board.removeLetters(step.path, step.path.length);
+			}
+			words = result;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,94 @@
+package uk.co.ndall.wordbrain;
+
+/**
+ * The words tried and time spent at each depth of a search, recorded while search depth events are being recorded
+ * (see SearchDepthEvent). Each task counts into its own {@link Task}, which is added to the totals when the task
+ * finishes, so threads don't contend while searching.
+ * <p>
+ * Depth d covers the boards with d words already removed. The time at a depth includes the depths below it, so depth
+ * 0 is the whole search, and the difference between two depths is the time spent finding and updating word paths.
+ */
+final class DepthTimings {
+
+	// Number of boards searched at each depth. Guarded by synchronizing on this object.
+	private final long[] boards;
+
+	// Number of words tried at each depth. Guarded by synchronizing on this object.
+	private final long[] words;
+
+	// Nanoseconds spent at each depth, on all threads. Guarded by synchronizing on this object.
+	private final long[] nanos;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param depths The number of depths: one for each word to find.
+	 */
+	DepthTimings(int depths) {
+		boards = new long[depths];
+		words = new long[depths];
+		nanos = new long[depths];
+	}
+
+	/**
+	 * Commit a SearchDepthEvent for each depth.
+	 */
+	synchronized void commit() {
+		for (int depth = 0; depth < boards.length; depth++) {
+			SearchDepthEvent event = new SearchDepthEvent();
+			event.depth = depth;
+			event.boards = boards[depth];
+			event.words = words[depth];
+			event.searchTime = nanos[depth];
+			event.commit();
+		}
+	}
+
+	/**
+	 * The words tried and time spent at each depth by one task.
+	 */
+	final class Task {
+
+		// Number of boards searched at each depth.
+		private final long[] boards = new long[DepthTimings.this.boards.length];
+
+		// Number of words tried at each depth.
+		private final long[] words = new long[DepthTimings.this.boards.length];
+
+		// Nanoseconds spent at each depth.
+		private final long[] nanos = new long[DepthTimings.this.boards.length];
+
+		/**
+		 * Count a word tried.
+		 *
+		 * @param depth The number of words already found.
+		 */
+		void word(int depth) {
+			words[depth]++;
+		}
+
+		/**
+		 * Add the time spent searching a board.
+		 *
+		 * @param depth The number of words already found.
+		 * @param time  The nanoseconds spent, including the depths below.
+		 */
+		void board(int depth, long time) {
+			boards[depth]++;
+			nanos[depth] += time;
+		}
+
+		/**
+		 * Add this task's counts to the totals.
+		 */
+		void flush() {
+			synchronized (DepthTimings.this) {
+				for (int depth = 0; depth < boards.length; depth++) {
+					DepthTimings.this.boards[depth] += boards[depth];
+					DepthTimings.this.words[depth] += words[depth];
+					DepthTimings.this.nanos[depth] += nanos[depth];
+				}
+			}
+		}
+	}
+}
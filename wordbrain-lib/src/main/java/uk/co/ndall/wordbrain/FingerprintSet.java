@@ -0,0 +1,63 @@
+package uk.co.ndall.wordbrain;
+
+/**
+ * A set of 64-bit fingerprints, shared by all the threads searching for the solutions to a puzzle, used to drop
+ * solutions whose words have already been found (see SolveOptions.withDistinctWords).
+ * <p>
+ * The set is split into shards by the top bits of each fingerprint, each a {@link LongSet} which is also its own lock.
+ * There are several shards for every thread which may add to the set, so two threads rarely want the same lock at
+ * once, and adding more threads doesn't make one lock a bottleneck.
+ */
+final class FingerprintSet {
+
+	// Initial number of slots in each shard.
+	private static final int INITIAL_SLOTS = 64;
+
+	// The shards, indexed by the top bits of a fingerprint. Each is guarded by synchronizing on it.
+	private final LongSet[] shards;
+
+	// Number of bits to shift a fingerprint right by to get its shard.
+	private final int shardShift;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param threads The number of threads which may add to the set at once.
+	 */
+	FingerprintSet(int threads) {
+		int count = Integer.highestOneBit(Math.max(16, threads * 4) - 1) << 1;
+		this.shards = new LongSet[count];
+		for (int i = 0; i < count; i++) {
+			shards[i] = new LongSet(INITIAL_SLOTS);
+		}
+		this.shardShift = 64 - Integer.numberOfTrailingZeros(count);
+	}
+
+	/**
+	 * Add a fingerprint to the set.
+	 *
+	 * @param fingerprint The fingerprint.
+	 * @return True if the fingerprint was added, false if it was already present.
+	 */
+	boolean add(long fingerprint) {
+		LongSet shard = shards[(int) (fingerprint >>> shardShift)];
+		synchronized (shard) {
+			return shard.add(fingerprint);
+		}
+	}
+
+	/**
+	 * Get the number of fingerprints in the set.
+	 *
+	 * @return The size.
+	 */
+	long size() {
+		long size = 0;
+		for (LongSet shard : shards) {
+			synchronized (shard) {
+				size += shard.size();
+			}
+		}
+		return size;
+	}
+}
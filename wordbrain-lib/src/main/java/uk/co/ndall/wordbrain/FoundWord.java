@@ -15,6 +15,9 @@ public class FoundWord {
 	// The word.
 	final String word;
 
+	// The number of words removed from the board before this one.
+	final int step;
+
 	/**
 	 * Get the found word as a string.
 	 *
@@ -33,6 +36,31 @@ public class FoundWord {
 	protected FoundWord(List<Coords2D> positions, String word) {
 		this.positions = positions.toArray(new Coords2D[positions.size()]);
 		this.word = word;
+		this.step = 0;
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param positions The positions of the tiles. The array is not copied, so must not be modified afterwards.
+	 * @param word      The word.
+	 * @param step      The number of words removed from the board before this one.
+	 */
+	FoundWord(Coords2D[] positions, String word, int step) {
+		this.positions = positions;
+		this.word = word;
+		this.step = step;
+	}
+
+	/**
+	 * Get the number of words removed from the board before this one. The positions of this word's tiles are their
+	 * positions on the board at that point. Unless the solver was allowed to find words in any order, this is the same
+	 * as the word's position in its solution.
+	 *
+	 * @return The step at which this word is removed (0 for the first word).
+	 */
+	public int getStep() {
+		return step;
 	}
 
 	/**
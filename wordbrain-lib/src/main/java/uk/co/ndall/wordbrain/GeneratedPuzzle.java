@@ -0,0 +1,65 @@
+package uk.co.ndall.wordbrain;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A puzzle made by a PuzzleGenerator, with the words planted on it and the solutions found when it was checked.
+ */
+public final class GeneratedPuzzle {
+
+	// The puzzle.
+	private final Puzzle puzzle;
+
+	// The words planted on the board, in slot order.
+	private final List<String> plantedWords;
+
+	// The distinct solutions of the puzzle.
+	private final List<List<FoundWord>> solutions;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param puzzle       The puzzle.
+	 * @param plantedWords The words planted on the board, in slot order.
+	 * @param solutions    The distinct solutions of the puzzle.
+	 */
+	GeneratedPuzzle(Puzzle puzzle, List<String> plantedWords, List<List<FoundWord>> solutions) {
+		this.puzzle = puzzle;
+		this.plantedWords = Collections.unmodifiableList(plantedWords);
+		this.solutions = solutions;
+	}
+
+	/**
+	 * Get the puzzle.
+	 *
+	 * @return The puzzle.
+	 */
+	public Puzzle getPuzzle() {
+		return puzzle;
+	}
+
+	/**
+	 * Get the words planted on the board, which are always one of its solutions.
+	 *
+	 * @return Unmodifiable list of the words, in slot order.
+	 */
+	public List<String> getPlantedWords() {
+		return plantedWords;
+	}
+
+	/**
+	 * Get the distinct solutions of the puzzle: one solution for each sequence of words which can be found on the board,
+	 * whichever tiles they are made from (see {@link SolveOptions#withDistinctWords}).
+	 *
+	 * @return Unmodifiable list of solutions, each represented by a list of words in slot order.
+	 */
+	public List<List<FoundWord>> getSolutions() {
+		return solutions;
+	}
+
+	@Override
+	public String toString() {
+		return puzzle + " " + plantedWords;
+	}
+}
@@ -0,0 +1,54 @@
+package uk.co.ndall.wordbrain;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The solutions found by the tasks of a search, as the lists each task found joined end to end without copying them.
+ * So solutions packed into direct memory by a task (see OffHeapSolutions) stay packed until they are read, rather than
+ * all being unpacked onto the heap when the search finishes.
+ */
+final class JoinedSolutions extends AbstractList<List<FoundWord>> {
+
+	// The solutions found by each task, in search order.
+	private final List<List<List<FoundWord>>> parts;
+
+	// The index of the first solution of each part, then the total number of solutions.
+	private final int[] starts;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param parts The solutions found by each task, in search order. Not modified afterwards.
+	 */
+	JoinedSolutions(List<List<List<FoundWord>>> parts) {
+		this.parts = parts;
+		this.starts = new int[parts.size() + 1];
+		for (int i = 0; i < parts.size(); i++) {
+			starts[i + 1] = starts[i] + parts.get(i).size();
+		}
+	}
+
+	@Override
+	public List<FoundWord> get(int i) {
+		if (i < 0 || i >= size()) {
+			throw new IndexOutOfBoundsException("No solution " + i);
+		}
+		// Find the last part starting at or before i (parts with no solutions start at the same index as the next).
+		int part = Arrays.binarySearch(starts, i);
+		if (part < 0) {
+			part = -part - 2;
+		} else {
+			while (starts[part + 1] == i) {
+				part++;
+			}
+		}
+		return parts.get(part).get(i - starts[part]);
+	}
+
+	@Override
+	public int size() {
+		return starts[starts.length - 1];
+	}
+}
@@ -0,0 +1,84 @@
+package uk.co.ndall.wordbrain;
+
+/**
+ * A 64-bit hash, used where values are remembered by hash rather than compared: FNV-1a, followed by the MurmurHash3
+ * finaliser to spread the bits. Values are added one at a time, without allocating, so the search can hash boards and
+ * words in its inner loops:
+ * <pre>
+ * long hash = LongHash.SEED;
+ * for (...) {
+ *     hash = LongHash.add(hash, value);
+ * }
+ * return LongHash.finish(hash);
+ * </pre>
+ */
+public final class LongHash {
+
+	/**
+	 * The starting value of a hash (the FNV-1a offset basis).
+	 */
+	public static final long SEED = 0xcbf29ce484222325L;
+
+	// The FNV-1a prime.
+	private static final long PRIME = 0x100000001b3L;
+
+	/**
+	 * Constructor. Not used: this class only has static methods.
+	 */
+	private LongHash() {
+	}
+
+	/**
+	 * Add a value to a hash.
+	 *
+	 * @param hash  The hash so far.
+	 * @param value The value.
+	 * @return The new hash.
+	 */
+	public static long add(long hash, int value) {
+		return (hash ^ value) * PRIME;
+	}
+
+	/**
+	 * Finish a hash, spreading its bits so that the low bits can be used to index a table.
+	 *
+	 * @param hash The hash of every value.
+	 * @return The finished hash.
+	 */
+	public static long finish(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	/**
+	 * Work out the hash of some bytes.
+	 *
+	 * @param bytes The bytes, each added as an unsigned value.
+	 * @return The finished hash.
+	 */
+	public static long of(byte[] bytes) {
+		long hash = SEED;
+		for (byte b : bytes) {
+			hash = add(hash, b & 0xff);
+		}
+		return finish(hash);
+	}
+
+	/**
+	 * Work out the hash of some chars.
+	 *
+	 * @param chars The chars.
+	 * @return The finished hash.
+	 */
+	public static long of(CharSequence chars) {
+		long hash = SEED;
+		for (int i = 0; i < chars.length(); i++) {
+			hash = add(hash, chars.charAt(i));
+		}
+		return finish(hash);
+	}
+}
@@ -0,0 +1,124 @@
+package uk.co.ndall.wordbrain;
+
+/**
+ * An open-addressed hash set of longs, without boxing. Meant for values which are already well mixed hashes (see
+ * {@link LongHash}), since a value's slot is taken from its low bits. Not thread safe.
+ */
+public final class LongSet {
+
+	// The number of slots in a new set.
+	private final int initialSlots;
+
+	// The values, at the slot given by their low bits or the next free slot after it. Zero marks an empty slot.
+	private long[] slots;
+
+	// Whether zero is in the set (it can't be stored in a slot).
+	private boolean hasZero = false;
+
+	// The number of values in the set.
+	private int size = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param initialSlots The number of slots to start with, a power of two. The set holds half as many values before
+	 *                     it grows.
+	 * @throws IllegalArgumentException If the number of slots is not a positive power of two.
+	 */
+	public LongSet(int initialSlots) throws IllegalArgumentException {
+		if (initialSlots <= 0 || Integer.bitCount(initialSlots) != 1) {
+			throw new IllegalArgumentException("Number of slots must be a positive power of two");
+		}
+		this.initialSlots = initialSlots;
+		this.slots = new long[initialSlots];
+	}
+
+	/**
+	 * Get the number of values in the set.
+	 *
+	 * @return The size.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Check whether a value is in the set.
+	 *
+	 * @param value The value.
+	 * @return True if the value is present.
+	 */
+	public boolean contains(long value) {
+		if (value == 0) {
+			return hasZero;
+		}
+		int mask = slots.length - 1;
+		for (int slot = (int) value & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+			if (slots[slot] == value) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Add a value to the set.
+	 *
+	 * @param value The value.
+	 * @return True if the value was added, false if it was already present.
+	 */
+	public boolean add(long value) {
+		if (value == 0) {
+			if (hasZero) {
+				return false;
+			}
+			hasZero = true;
+			size++;
+			return true;
+		}
+		if (!insert(slots, value)) {
+			return false;
+		}
+		size++;
+		if (size * 2 > slots.length) {
+			// Keep the table at most half full, so runs of used slots stay short.
+			long[] grown = new long[slots.length * 2];
+			for (long old : slots) {
+				if (old != 0) {
+					insert(grown, old);
+				}
+			}
+			slots = grown;
+		}
+		return true;
+	}
+
+	/**
+	 * Remove every value from the set, shrinking it back to its initial number of slots.
+	 */
+	public void clear() {
+		slots = new long[initialSlots];
+		hasZero = false;
+		size = 0;
+	}
+
+	/**
+	 * Put a non-zero value into a table of slots, unless it is already there.
+	 *
+	 * @param table The slots.
+	 * @param value The value.
+	 * @return True if the value was inserted.
+	 */
+	private static boolean insert(long[] table, long value) {
+		int mask = table.length - 1;
+		int slot = (int) value & mask;
+		while (table[slot] != 0) {
+			if (table[slot] == value) {
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		table[slot] = value;
+		return true;
+	}
+}
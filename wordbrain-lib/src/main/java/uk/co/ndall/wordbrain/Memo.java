@@ -0,0 +1,70 @@
+package uk.co.ndall.wordbrain;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A memo of the number of ways to finish counting solutions from a board layout and set of filled slots, shared by all
+ * the threads counting the solutions to a puzzle. The same layout is often reached by removing different paths or the
+ * same words in a different order, so its count only needs working out once.
+ */
+interface Memo {
+
+	/**
+	 * Count returned by get when the memo doesn't hold a count for the layout.
+	 */
+	long UNKNOWN = -1;
+
+	/**
+	 * Look up the number of ways to finish from a board layout.
+	 *
+	 * @param board  The board layout.
+	 * @param filled Flags marking the slots filled so far.
+	 * @return The number of ways to finish, or UNKNOWN.
+	 */
+	long get(MutableBoard board, boolean[] filled);
+
+	/**
+	 * Record the number of ways to finish from a board layout.
+	 *
+	 * @param board  The board layout.
+	 * @param filled Flags marking the slots filled so far.
+	 * @param count  The number of ways to finish.
+	 */
+	void put(MutableBoard board, boolean[] filled, long count);
+
+	/**
+	 * A memo on the heap, which keeps every count.
+	 */
+	final class OnHeap implements Memo {
+
+		// The counts, by key.
+		private final Map<String, Long> counts = new ConcurrentHashMap<>();
+
+		@Override
+		public long get(MutableBoard board, boolean[] filled) {
+			Long count = counts.get(key(board, filled));
+			return count == null ? UNKNOWN : count;
+		}
+
+		@Override
+		public void put(MutableBoard board, boolean[] filled, long count) {
+			counts.put(key(board, filled), count);
+		}
+
+		/**
+		 * Make the key for a board layout and set of filled slots.
+		 *
+		 * @param board  The board layout.
+		 * @param filled Flags marking the slots filled so far.
+		 * @return The key.
+		 */
+		private static String key(MutableBoard board, boolean[] filled) {
+			StringBuilder key = new StringBuilder(board.getLayout());
+			for (boolean slotFilled : filled) {
+				key.append(slotFilled ? '1' : '0');
+			}
+			return key.toString();
+		}
+	}
+}
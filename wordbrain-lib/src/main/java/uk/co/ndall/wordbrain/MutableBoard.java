@@ -0,0 +1,287 @@
+package uk.co.ndall.wordbrain;
+
+import uk.co.ndall.wordgames.Coords2D;
+
+import java.util.Arrays;
+import java.util.StringJoiner;
+
+/**
+ * A copy of a board which words can be removed from and then put back, in place. Used by the solver to try removing
+ * each candidate word in turn without allocating a new board for each one.
+ * <p>
+ * Cells are numbered in the same way as BoardIndex. Each removal only rearranges the columns it touches, and saves
+ * their previous contents so that {@link #undo()} can restore them. Removals must be undone in reverse order.
+ */
+final class MutableBoard {
+
+	// Index of the board this was copied from, used for its neighbour tables.
+	private final BoardIndex index;
+
+	// Number of columns.
+	private final int width;
+
+	// Number of rows.
+	private final int height;
+
+	// Letter in each cell, or BoardIndex.EMPTY.
+	private final char[] cells;
+
+	// Number of letters left on the board.
+	private int letterCount;
+
+	// Flags marking the columns touched by the removal in progress.
+	private final boolean[] touched;
+
+	// Previous contents of the columns changed by each removal, oldest first, one column (height letters) at a time.
+	private char[] savedLetters;
+
+	// Which column each saved column came from.
+	private int[] savedColumns;
+
+	// Number of columns saved.
+	private int savedColumnCount = 0;
+
+	// Number of columns saved by each removal, oldest first.
+	private int[] removalSizes;
+
+	// Number of removals which have not been undone.
+	private int removalCount = 0;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param index The board to copy.
+	 */
+	MutableBoard(BoardIndex index) {
+		this.index = index;
+		this.width = index.getWidth();
+		this.height = index.getHeight();
+		this.cells = new char[index.getSize()];
+		for (int cell = 0; cell < cells.length; cell++) {
+			cells[cell] = index.getLetter(cell);
+		}
+		this.letterCount = index.getOccupiedCells().length;
+		this.touched = new boolean[width];
+		this.savedLetters = new char[cells.length];
+		this.savedColumns = new int[width];
+		this.removalSizes = new int[8];
+	}
+
+	/**
+	 * Get the index of the board this was copied from.
+	 *
+	 * @return The index of the initial board.
+	 */
+	BoardIndex getIndex() {
+		return index;
+	}
+
+	/**
+	 * Get the number of cells (occupied or not).
+	 *
+	 * @return The width multiplied by the height.
+	 */
+	int getSize() {
+		return cells.length;
+	}
+
+	/**
+	 * Get the number of columns.
+	 *
+	 * @return The width of the board.
+	 */
+	int getWidth() {
+		return width;
+	}
+
+	/**
+	 * Get the letter in a cell.
+	 *
+	 * @param cell The cell index.
+	 * @return The letter, or BoardIndex.EMPTY.
+	 */
+	char getLetter(int cell) {
+		return cells[cell];
+	}
+
+	/**
+	 * Get the cells surrounding a cell, whether or not they contain letters. The returned array must not be modified.
+	 *
+	 * @param cell The cell index.
+	 * @return Indexes of the surrounding cells.
+	 */
+	int[] getNeighbours(int cell) {
+		return index.getNeighbours(cell);
+	}
+
+	/**
+	 * Count the letters left on the board.
+	 *
+	 * @return The number of occupied cells.
+	 */
+	int countLetters() {
+		return letterCount;
+	}
+
+	/**
+	 * Get the letters in every cell, as a string which identifies the current layout.
+	 *
+	 * @return The letter in each cell in index order, with BoardIndex.EMPTY for empty cells.
+	 */
+	String getLayout() {
+		return new String(cells);
+	}
+
+	/**
+	 * Get the index of the cell at a position.
+	 *
+	 * @param pos The position.
+	 * @return The cell index.
+	 */
+	int getCell(Coords2D pos) {
+		return index.getCell(pos);
+	}
+
+	/**
+	 * Get the position of a cell.
+	 *
+	 * @param cell The cell index.
+	 * @return The position.
+	 */
+	Coords2D getCoords(int cell) {
+		return index.getCoords(cell);
+	}
+
+	/**
+	 * Remove the letters of a word from the board, letting the letters above fall into the gaps.
+	 *
+	 * @param word The word to remove.
+	 */
+	void removeLetters(FoundWord word) {
+		int[] removed = new int[word.positions.length];
+		for (int i = 0; i < removed.length; i++) {
+			removed[i] = getCell(word.positions[i]);
+		}
+		removeLetters(removed, removed.length);
+	}
+
+	/**
+	 * Remove letters from the board, letting the letters above fall into the gaps. Only the columns containing removed
+	 * letters are changed.
+	 *
+	 * @param removed Array containing the indexes of the cells to remove.
+	 * @param count   The number of cells in the array to remove.
+	 */
+	void removeLetters(int[] removed, int count) {
+		if (removalCount == removalSizes.length) {
+			removalSizes = Arrays.copyOf(removalSizes, removalCount * 2);
+		}
+
+		// Save the columns which are about to change, then clear the removed cells.
+		int columnCount = 0;
+		for (int i = 0; i < count; i++) {
+			int x = removed[i] % width;
+			if (!touched[x]) {
+				touched[x] = true;
+				saveColumn(x);
+				columnCount++;
+			}
+		}
+		for (int i = 0; i < count; i++) {
+			cells[removed[i]] = BoardIndex.EMPTY;
+		}
+		letterCount -= count;
+
+		// Let the letters in each changed column fall.
+		for (int i = savedColumnCount - columnCount; i < savedColumnCount; i++) {
+			int x = savedColumns[i];
+			touched[x] = false;
+			int to = (height - 1) * width + x;
+			for (int from = to; from >= 0; from -= width) {
+				if (cells[from] != BoardIndex.EMPTY) {
+					cells[to] = cells[from];
+					to -= width;
+				}
+			}
+			for (; to >= 0; to -= width) {
+				cells[to] = BoardIndex.EMPTY;
+			}
+		}
+		removalSizes[removalCount++] = columnCount;
+	}
+
+	/**
+	 * Save the contents of a column, so it can be restored by undo().
+	 *
+	 * @param x The column.
+	 */
+	private void saveColumn(int x) {
+		if (savedColumnCount == savedColumns.length) {
+			savedColumns = Arrays.copyOf(savedColumns, savedColumnCount * 2);
+			savedLetters = Arrays.copyOf(savedLetters, savedColumns.length * height);
+		}
+		int offset = savedColumnCount * height;
+		for (int y = 0; y < height; y++) {
+			savedLetters[offset + y] = cells[y * width + x];
+		}
+		savedColumns[savedColumnCount++] = x;
+	}
+
+	/**
+	 * Flag the cells changed by the most recent removal which has not been undone: the removed cells, and the cells
+	 * which letters fell into or out of. Cells which ended up with the same letter as before are not flagged.
+	 *
+	 * @param changed Set of cells as a bitset (see CellBits). Changed cells are added, and the others are left alone.
+	 * @throws IllegalStateException If there is no removal to describe.
+	 */
+	void markChangedCells(long[] changed) throws IllegalStateException {
+		if (removalCount == 0) {
+			throw new IllegalStateException("Nothing has been removed");
+		}
+		int columnCount = removalSizes[removalCount - 1];
+		for (int i = savedColumnCount - columnCount; i < savedColumnCount; i++) {
+			int x = savedColumns[i];
+			int offset = i * height;
+			for (int y = 0; y < height; y++) {
+				if (savedLetters[offset + y] != cells[y * width + x]) {
+					CellBits.add(changed, y * width + x);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Put back the letters removed by the most recent removal which has not yet been undone.
+	 *
+	 * @throws IllegalStateException If there is nothing to undo.
+	 */
+	void undo() throws IllegalStateException {
+		if (removalCount == 0) {
+			throw new IllegalStateException("Nothing to undo");
+		}
+		int columnCount = removalSizes[--removalCount];
+		for (int i = 0; i < columnCount; i++) {
+			int x = savedColumns[--savedColumnCount];
+			int offset = savedColumnCount * height;
+			for (int y = 0; y < height; y++) {
+				char letter = savedLetters[offset + y];
+				if (letter != BoardIndex.EMPTY) {
+					letterCount++;
+				}
+				if (cells[y * width + x] != BoardIndex.EMPTY) {
+					letterCount--;
+				}
+				cells[y * width + x] = letter;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		StringJoiner sj = new StringJoiner("\n");
+		for (int y = 0; y < height; y++) {
+			sj.add(new String(cells, y * width, width));
+		}
+		return sj.toString();
+	}
+}
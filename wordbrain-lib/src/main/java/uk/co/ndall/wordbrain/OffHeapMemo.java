@@ -0,0 +1,295 @@
+package uk.co.ndall.wordbrain;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A memo held in direct memory, outside the garbage collected heap, in a table which grows up to a fixed budget.
+ * <p>
+ * The table is split into buckets of a few entries. Each entry holds a board layout (the letter in every cell, and a
+ * byte per slot), a hash of it, and its count plus one, so zeroed memory is empty. A layout can only be stored in the
+ * bucket its hash picks. When that bucket is full, the entry with the smallest count is replaced: those are usually
+ * layouts near the end of the search, which are the quickest to count again. Layouts are compared in full, so a count
+ * is never given for the wrong layout; an evicted layout is just counted again if it is reached again.
+ * <p>
+ * The table starts with a single page of buckets, and doubles whenever it is half full, until the next doubling would
+ * exceed the budget. Doubling adds as many pages again and moves half of each bucket's entries to its new twin, so the
+ * pages already allocated are kept rather than copied, and a count which only needs a small table only allocates a
+ * small table. Pages are freed by the garbage collector once the count has finished.
+ * <p>
+ * The table is shared by the threads counting a puzzle, so each bucket is guarded by one of a fixed set of locks. A
+ * thread which finds the table half full doubles it while the others carry on. A count looked up or stored while a
+ * bucket is being split may be missed or put where it won't be found, which only means it is counted again.
+ */
+final class OffHeapMemo implements Memo {
+
+	// Number of entries in each bucket.
+	private static final int WAYS = 4;
+
+	// Smallest size of a page of buckets.
+	private static final int MIN_PAGE_BYTES = 64 * 1024;
+
+	// Largest size of a page of buckets, the most a single direct buffer can hold.
+	private static final int MAX_PAGE_BYTES = 1 << 30;
+
+	// Number of pages the budget is split into, unless that would make them smaller than MIN_PAGE_BYTES.
+	private static final int BUDGET_PAGES = 1024;
+
+	// Number of locks guarding the buckets.
+	private static final int LOCKS = 256;
+
+	// Offset of the hash in an entry.
+	private static final int HASH = 0;
+
+	// Offset of the count plus one in an entry (zero for an empty entry).
+	private static final int COUNT = 8;
+
+	// Offset of the letters in an entry, followed by the slot flags.
+	private static final int LETTERS = 16;
+
+	// Number of cells on the board.
+	private final int cells;
+
+	// Number of slots.
+	private final int slots;
+
+	// Size of an entry in bytes, a multiple of 8.
+	private final int entryBytes;
+
+	// Size of a bucket in bytes.
+	private final int bucketBytes;
+
+	// Number of buckets in each page.
+	private final int pageBuckets;
+
+	// The most pages the table may grow to, a power of two.
+	private final int maxPages;
+
+	// The locks guarding the buckets. The lock for a bucket only depends on its position in its page, so a bucket and
+	// the twin it is split into when the table doubles share a lock.
+	private final Object[] locks;
+
+	// Number of entries in use in the buckets guarded by each lock, guarded by that lock.
+	private final int[] used;
+
+	// Lock held while doubling the table.
+	private final Object growLock = new Object();
+
+	// The current table.
+	private volatile Table table;
+
+	/**
+	 * The pages of the table at one size.
+	 */
+	private static final class Table {
+
+		// The pages of buckets.
+		final ByteBuffer[] pages;
+
+		// Number of buckets in the table.
+		final long buckets;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param pages   The pages of buckets.
+		 * @param buckets Number of buckets in the table.
+		 */
+		Table(ByteBuffer[] pages, long buckets) {
+			this.pages = pages;
+			this.buckets = buckets;
+		}
+	}
+
+	/**
+	 * Constructor. Allocates the first page of the table.
+	 *
+	 * @param maxBytes Most bytes the table may use. At least one bucket is allocated, whatever the budget.
+	 * @param cells    Number of cells on the board.
+	 * @param slots    Number of slots.
+	 */
+	OffHeapMemo(long maxBytes, int cells, int slots) {
+		this.cells = cells;
+		this.slots = slots;
+		this.entryBytes = (LETTERS + 2 * cells + slots + 7) & ~7;
+		this.bucketBytes = entryBytes * WAYS;
+		long pageBytes = Math.max(MIN_PAGE_BYTES, maxBytes / BUDGET_PAGES);
+		pageBytes = Math.min(maxBytes, Math.min(MAX_PAGE_BYTES, pageBytes));
+		int fit = (int) Math.max(1, pageBytes / bucketBytes);
+
+		// Give every lock the same number of buckets in a page, so they fill at the same rate.
+		this.pageBuckets = fit >= LOCKS ? fit / LOCKS * LOCKS : fit;
+		this.maxPages = Integer.highestOneBit((int) Math.min(
+				Integer.MAX_VALUE, Math.max(1, maxBytes / ((long) pageBuckets * bucketBytes))));
+
+		int lockCount = Math.min(LOCKS, pageBuckets);
+		this.locks = new Object[lockCount];
+		for (int i = 0; i < lockCount; i++) {
+			locks[i] = new Object();
+		}
+		this.used = new int[lockCount];
+		this.table = new Table(new ByteBuffer[]{ByteBuffer.allocateDirect(pageBuckets * bucketBytes)}, pageBuckets);
+	}
+
+	/**
+	 * Get the number of bytes of direct memory allocated for the table so far.
+	 *
+	 * @return The size of the table's pages.
+	 */
+	long getAllocatedBytes() {
+		return (long) table.pages.length * pageBuckets * bucketBytes;
+	}
+
+	@Override
+	public long get(MutableBoard board, boolean[] filled) {
+		long hash = hash(board, filled);
+		Table current = table;
+		long bucket = Long.remainderUnsigned(hash, current.buckets);
+		ByteBuffer page = current.pages[(int) (bucket / pageBuckets)];
+		int first = (int) (bucket % pageBuckets) * bucketBytes;
+		synchronized (locks[lockFor(bucket)]) {
+			for (int entry = first; entry < first + bucketBytes; entry += entryBytes) {
+				long stored = page.getLong(entry + COUNT);
+				if (stored != 0 && page.getLong(entry + HASH) == hash && matches(page, entry, board, filled)) {
+					return stored - 1;
+				}
+			}
+		}
+		return UNKNOWN;
+	}
+
+	@Override
+	public void put(MutableBoard board, boolean[] filled, long count) {
+		long hash = hash(board, filled);
+		Table current = table;
+		long bucket = Long.remainderUnsigned(hash, current.buckets);
+		ByteBuffer page = current.pages[(int) (bucket / pageBuckets)];
+		int first = (int) (bucket % pageBuckets) * bucketBytes;
+		int lock = lockFor(bucket);
+		boolean halfFull = false;
+		synchronized (locks[lock]) {
+			// Use the entry already holding this layout or an empty one if there is one, otherwise the smallest count.
+			int chosen = first;
+			long chosenCount = Long.MAX_VALUE;
+			for (int entry = first; entry < first + bucketBytes; entry += entryBytes) {
+				long stored = page.getLong(entry + COUNT);
+				if (stored == 0
+						|| (page.getLong(entry + HASH) == hash && matches(page, entry, board, filled))) {
+					chosen = entry;
+					chosenCount = stored;
+					break;
+				}
+				if (stored < chosenCount) {
+					chosen = entry;
+					chosenCount = stored;
+				}
+			}
+			if (chosenCount == 0) {
+				// The locks guard equal shares of the buckets, so each lock's share of the entries tracks the whole.
+				halfFull = ++used[lock] * (long) locks.length * 2 > current.buckets * WAYS;
+			}
+
+			page.putLong(chosen + HASH, hash);
+			page.putLong(chosen + COUNT, count + 1);
+			for (int cell = 0; cell < cells; cell++) {
+				page.putChar(chosen + LETTERS + 2 * cell, board.getLetter(cell));
+			}
+			for (int slot = 0; slot < slots; slot++) {
+				page.put(chosen + LETTERS + 2 * cells + slot, (byte) (filled[slot] ? 1 : 0));
+			}
+		}
+		if (halfFull) {
+			grow(current);
+		}
+	}
+
+	/**
+	 * Double the size of the table, unless it is already as big as the budget allows or another thread has doubled it.
+	 * Each bucket's entries whose hashes now pick its twin in the new pages are moved there.
+	 *
+	 * @param from The table found to be half full.
+	 */
+	private void grow(Table from) {
+		synchronized (growLock) {
+			if (table != from || from.pages.length >= maxPages) {
+				return;
+			}
+			int pages = from.pages.length;
+			ByteBuffer[] grown = Arrays.copyOf(from.pages, pages * 2);
+			for (int i = pages; i < grown.length; i++) {
+				grown[i] = ByteBuffer.allocateDirect(pageBuckets * bucketBytes);
+			}
+
+			long buckets = from.buckets;
+			for (long bucket = 0; bucket < buckets; bucket++) {
+				ByteBuffer page = grown[(int) (bucket / pageBuckets)];
+				ByteBuffer twinPage = grown[(int) (bucket / pageBuckets) + pages];
+				int first = (int) (bucket % pageBuckets) * bucketBytes;
+				synchronized (locks[lockFor(bucket)]) {
+					for (int entry = first; entry < first + bucketBytes; entry += entryBytes) {
+						if (page.getLong(entry + COUNT) == 0
+								|| Long.remainderUnsigned(page.getLong(entry + HASH), buckets * 2) == bucket) {
+							continue;
+						}
+						for (int offset = 0; offset < entryBytes; offset += 8) {
+							twinPage.putLong(entry + offset, page.getLong(entry + offset));
+						}
+						page.putLong(entry + COUNT, 0);
+					}
+				}
+			}
+			table = new Table(grown, buckets * 2);
+		}
+	}
+
+	/**
+	 * Get the lock guarding a bucket.
+	 *
+	 * @param bucket The bucket.
+	 * @return The index of its lock.
+	 */
+	private int lockFor(long bucket) {
+		return (int) (bucket % pageBuckets) % locks.length;
+	}
+
+	/**
+	 * Check whether an entry holds a board layout.
+	 *
+	 * @param page    The page holding the entry.
+	 * @param entry   The offset of the entry in the page.
+	 * @param board   The board layout.
+	 * @param filled  Flags marking the slots filled so far.
+	 * @return True if the entry's layout is the same.
+	 */
+	private boolean matches(ByteBuffer page, int entry, MutableBoard board, boolean[] filled) {
+		for (int cell = 0; cell < cells; cell++) {
+			if (page.getChar(entry + LETTERS + 2 * cell) != board.getLetter(cell)) {
+				return false;
+			}
+		}
+		for (int slot = 0; slot < slots; slot++) {
+			if ((page.get(entry + LETTERS + 2 * cells + slot) != 0) != filled[slot]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Work out a 64-bit hash of a board layout (see {@link LongHash}).
+	 *
+	 * @param board  The board layout.
+	 * @param filled Flags marking the slots filled so far.
+	 * @return The hash.
+	 */
+	private long hash(MutableBoard board, boolean[] filled) {
+		long hash = LongHash.SEED;
+		for (int cell = 0; cell < cells; cell++) {
+			hash = LongHash.add(hash, board.getLetter(cell));
+		}
+		for (int slot = 0; slot < slots; slot++) {
+			hash = LongHash.add(hash, filled[slot] ? 1 : 0);
+		}
+		return LongHash.finish(hash);
+	}
+}
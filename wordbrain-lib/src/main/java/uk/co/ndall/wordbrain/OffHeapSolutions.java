@@ -0,0 +1,163 @@
+package uk.co.ndall.wordbrain;
+
+import java.nio.ByteBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The solutions found by one search task, packed into direct memory outside the garbage collected heap, so a task
+ * which finds a great many solutions doesn't fill the heap with them before they are streamed to the caller.
+ * <p>
+ * Each solution is packed as the number of words, then each word's slot, length and cells as unsigned shorts (cell
+ * indexes fit, since boards have at most WordbrainBoard.MAX_CELLS cells). That is a few bytes per letter, rather than
+ * the objects of a CompactSolution and its steps, and the only heap used is the offset of each solution. Solutions are
+ * unpacked into a CompactSolution when asked for.
+ * <p>
+ * Buffers are taken from the search's off-heap budget a chunk at a time. Once the budget runs out, this and every
+ * later solution of the task is kept on the heap instead, so the solutions stay in the order they were added. When the
+ * task's solutions have been streamed to the caller, its buffers are released to the budget for later tasks to reuse
+ * (see release); when they are kept in a SolveResult instead, they stay packed until the result is no longer used.
+ */
+final class OffHeapSolutions extends AbstractList<List<FoundWord>> {
+
+	// Size of each buffer, unless a single solution needs more.
+	private static final int CHUNK_BYTES = 64 * 1024;
+
+	// Bits of a solution's offset holding its position in its buffer. The higher bits hold the buffer's index.
+	private static final int POSITION_BITS = 32;
+
+	// The initial board.
+	private final BoardIndex index;
+
+	// The budget to reserve buffers from.
+	private final Budget budget;
+
+	// The buffers holding the packed solutions.
+	private final List<ByteBuffer> chunks = new ArrayList<>();
+
+	// The offset of each packed solution: the index of its buffer, then its position in the buffer.
+	private long[] offsets = new long[16];
+
+	// The number of packed solutions.
+	private int packed = 0;
+
+	// Solutions added after the budget ran out, or null if it hasn't.
+	private List<List<FoundWord>> overflow = null;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param index  The initial board.
+	 * @param budget The budget to reserve buffers from.
+	 */
+	OffHeapSolutions(BoardIndex index, Budget budget) {
+		this.index = index;
+		this.budget = budget;
+	}
+
+	/**
+	 * Add a solution found by the search.
+	 *
+	 * @param solution The solution. If it is a CompactSolution, it is packed; otherwise it is kept on the heap.
+	 * @return True.
+	 */
+	@Override
+	public boolean add(List<FoundWord> solution) {
+		if (overflow == null
+				&& solution instanceof CompactSolution
+				&& pack(((CompactSolution) solution).getLastStep())) {
+			return true;
+		}
+		if (overflow == null) {
+			overflow = new ArrayList<>();
+		}
+		return overflow.add(solution);
+	}
+
+	/**
+	 * Pack a solution into the current buffer, reserving a new one if it is full.
+	 *
+	 * @param last The last word of the solution, linked to the words found before it.
+	 * @return True if the solution was packed, false if the budget has run out.
+	 */
+	private boolean pack(CompactSolution.Step last) {
+		int bytes = 2;
+		for (CompactSolution.Step step = last; step != null; step = step.previous) {
+			bytes += 4 + 2 * step.path.length;
+		}
+
+		ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+		if (chunk == null || chunk.remaining() < bytes) {
+			chunk = budget.allocateOffHeap(Math.max(CHUNK_BYTES, bytes));
+			if (chunk == null) {
+				return false;
+			}
+			chunks.add(chunk);
+		}
+
+		if (packed == offsets.length) {
+			offsets = Arrays.copyOf(offsets, packed * 2);
+		}
+		offsets[packed++] = ((long) (chunks.size() - 1) << POSITION_BITS) | chunk.position();
+
+		CompactSolution.Step[] steps = new CompactSolution.Step[last.depth + 1];
+		for (CompactSolution.Step step = last; step != null; step = step.previous) {
+			steps[step.depth] = step;
+		}
+		chunk.putChar((char) steps.length);
+		for (CompactSolution.Step step : steps) {
+			chunk.putChar((char) step.slot);
+			chunk.putChar((char) step.path.length);
+			for (int cell : step.path) {
+				chunk.putChar((char) cell);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Release the buffers back to the budget, once every solution has been read, and forget the solutions.
+	 */
+	void release() {
+		for (ByteBuffer chunk : chunks) {
+			budget.releaseOffHeap(chunk);
+		}
+		chunks.clear();
+		packed = 0;
+		overflow = null;
+	}
+
+	@Override
+	public List<FoundWord> get(int i) {
+		if (i >= packed) {
+			if (overflow == null) {
+				throw new IndexOutOfBoundsException("No solution " + i);
+			}
+			return overflow.get(i - packed);
+		}
+
+		ByteBuffer chunk = chunks.get((int) (offsets[i] >>> POSITION_BITS));
+		int position = (int) offsets[i];
+		int words = chunk.getChar(position);
+		position += 2;
+		CompactSolution.Step step = null;
+		for (int word = 0; word < words; word++) {
+			int slot = chunk.getChar(position);
+			int[] path = new int[chunk.getChar(position + 2)];
+			position += 4;
+			for (int letter = 0; letter < path.length; letter++) {
+				path[letter] = chunk.getChar(position);
+				position += 2;
+			}
+			step = new CompactSolution.Step(step, slot, path);
+		}
+		return new CompactSolution(index, step);
+	}
+
+	@Override
+	public int size() {
+		return packed + (overflow == null ? 0 : overflow.size());
+	}
+}
@@ -0,0 +1,141 @@
+package uk.co.ndall.wordbrain;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * A solve running in the background, started by {@link WordBrainSolver#solveProgressively}, which gives feedback
+ * before it finishes. The candidate words for the first slot are found before the search starts, so are available
+ * straight away; each solution is passed to a listener as soon as it is found; and the first words can be ranked by
+ * the number of solutions found for each so far, at any time.
+ */
+public final class ProgressiveSolve {
+
+	// The words which could fill the first slot on the initial board.
+	private final List<FoundWord> firstWords;
+
+	// The number of solutions found so far for each word filling the first slot, by word.
+	private final Map<String, LongAdder> solutionCounts = new ConcurrentHashMap<>();
+
+	// The position of each word in the ranking when their counts are equal: first words in the order found, then
+	// words only found in solutions.
+	private final Map<String, Integer> order = new ConcurrentHashMap<>();
+
+	// Listener passed each solution as it is found.
+	private final Consumer<List<FoundWord>> listener;
+
+	// Completed with every solution found, once the search finishes.
+	private final CompletableFuture<SolveResult> result = new CompletableFuture<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param firstWords The words which could fill the first slot on the initial board.
+	 * @param listener   Listener to pass each solution to as it is found.
+	 */
+	ProgressiveSolve(List<FoundWord> firstWords, Consumer<List<FoundWord>> listener) {
+		this.firstWords = Collections.unmodifiableList(firstWords);
+		this.listener = listener;
+		for (FoundWord word : firstWords) {
+			addWord(word.getWord());
+		}
+	}
+
+	/**
+	 * Get the words which could fill the first slot on the initial board, found before the search started. Every
+	 * solution starts with one of these when words are found in FIXED order; in other orders, a word in the first slot
+	 * may also be one which only appears once other words have been removed.
+	 *
+	 * @return Unmodifiable list of the words, with their positions, ordered by their first letter's position from top
+	 * left to bottom right.
+	 */
+	public List<FoundWord> getFirstWords() {
+		return firstWords;
+	}
+
+	/**
+	 * Rank the words filling the first slot by the number of solutions found for each so far. Words with the same
+	 * number are in the order of {@link #getFirstWords}. While the search runs, the counts only grow, so a word's
+	 * final rank can still change.
+	 *
+	 * @return Map from each distinct first word to its number of solutions so far, iterating in rank order (most
+	 * solutions first).
+	 */
+	public Map<String, Long> getRanking() {
+		List<String> words = new ArrayList<>(solutionCounts.keySet());
+		Map<String, Long> counts = new LinkedHashMap<>();
+		words.forEach(word -> counts.put(word, solutionCounts.get(word).sum()));
+		words.sort(Comparator.comparing((String word) -> -counts.get(word)).thenComparing(order::get));
+
+		Map<String, Long> ranking = new LinkedHashMap<>();
+		words.forEach(word -> ranking.put(word, counts.get(word)));
+		return ranking;
+	}
+
+	/**
+	 * Get the result of the search.
+	 *
+	 * @return Future completed with the solutions found, in search order, and whether the search finished, once it
+	 * has stopped. Completed exceptionally if the search or the listener threw.
+	 */
+	public CompletableFuture<SolveResult> getResult() {
+		return result;
+	}
+
+	/**
+	 * Record a solution, and pass it to the listener. Called by the search threads.
+	 *
+	 * @param solution The solution.
+	 */
+	void solutionFound(List<FoundWord> solution) {
+		addWord(solution.get(0).getWord()).increment();
+		listener.accept(solution);
+	}
+
+	/**
+	 * Complete the result.
+	 *
+	 * @param solveResult The result of the search.
+	 */
+	void finished(SolveResult solveResult) {
+		result.complete(solveResult);
+	}
+
+	/**
+	 * Complete the result with an error.
+	 *
+	 * @param error The error which stopped the search.
+	 */
+	void failed(Throwable error) {
+		result.completeExceptionally(error);
+	}
+
+	/**
+	 * Add a word to the ranking, if it isn't there already.
+	 *
+	 * @param word The word.
+	 * @return The word's count of solutions.
+	 */
+	private LongAdder addWord(String word) {
+		LongAdder count = solutionCounts.get(word);
+		if (count == null) {
+			synchronized (order) {
+				count = solutionCounts.get(word);
+				if (count == null) {
+					order.put(word, order.size());
+					count = new LongAdder();
+					solutionCounts.put(word, count);
+				}
+			}
+		}
+		return count;
+	}
+}
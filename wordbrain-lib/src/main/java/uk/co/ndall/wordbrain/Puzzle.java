@@ -0,0 +1,50 @@
+package uk.co.ndall.wordbrain;
+
+import java.util.Arrays;
+
+/**
+ * A WordBrain puzzle to solve as part of a batch (see {@link WordBrainSolver#solveBatch}): a board and the lengths of
+ * the words to find on it.
+ */
+public final class Puzzle {
+
+	// The board layout.
+	private final WordbrainBoard board;
+
+	// The lengths of words to find.
+	private final int[] wordLengths;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param board       The board layout.
+	 * @param wordLengths The lengths of words to find (ordered).
+	 */
+	public Puzzle(WordbrainBoard board, int... wordLengths) {
+		this.board = board;
+		this.wordLengths = wordLengths.clone();
+	}
+
+	/**
+	 * Get the board layout.
+	 *
+	 * @return The board.
+	 */
+	public WordbrainBoard getBoard() {
+		return board;
+	}
+
+	/**
+	 * Get the lengths of words to find.
+	 *
+	 * @return Copy of the lengths, in order.
+	 */
+	public int[] getWordLengths() {
+		return wordLengths.clone();
+	}
+
+	@Override
+	public String toString() {
+		return board.toString().replace('\n', ',') + " " + Arrays.toString(wordLengths);
+	}
+}
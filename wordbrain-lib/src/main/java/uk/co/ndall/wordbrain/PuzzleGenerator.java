@@ -0,0 +1,381 @@
+package uk.co.ndall.wordbrain;
+
+import uk.co.ndall.wordgames.WordTrie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Makes WordBrain puzzles with few solutions, from the words in a dictionary.
+ * <p>
+ * A board is built by playing the game backwards. Starting from an empty board, the words are planted from the last
+ * slot to the first. Each word is laid along a random path of neighbouring squares, and the letters already in each
+ * column it crosses are pushed up to make room: the reverse of removing the word and letting the letters above fall.
+ * So removing the words in slot order solves the board, whatever else is on it. Once every word is planted, the board
+ * is solved with the words in a fixed order, keeping only distinct words and stopping as soon as one more solution
+ * than allowed is found, so boards with many solutions are rejected cheaply. A rejected board is replaced with a new
+ * one, up to a number of attempts.
+ * <p>
+ * Generators don't keep any state between puzzles, so one generator may make puzzles on any number of threads at
+ * once; {@link #generateMany} makes a batch on all cores.
+ */
+public final class PuzzleGenerator {
+
+	/**
+	 * The number of boards tried for each puzzle before giving up.
+	 */
+	public static final int DEFAULT_ATTEMPTS = 1000;
+
+	/**
+	 * The most words the solver may try when checking a board. Boards which take longer to check are rejected.
+	 */
+	public static final long DEFAULT_NODE_LIMIT = 1_000_000;
+
+	// The number of squares tried when looking for a path for a word, before picking other words.
+	private static final int PATH_STEPS = 500;
+
+	// The words in the dictionary which can be put on a board, indexed by length.
+	private final List<List<String>> wordsByLength = new ArrayList<>();
+
+	// The solver used to check boards.
+	private final WordBrainSolver solver;
+
+	// The most words the solver may try when checking a board.
+	private final long nodeLimit;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dict The dictionary to take words from, and to check boards with.
+	 */
+	public PuzzleGenerator(WordTrie dict) {
+		this(dict, DEFAULT_NODE_LIMIT);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dict      The dictionary to take words from, and to check boards with.
+	 * @param nodeLimit The most words the solver may try when checking a board.
+	 * @throws IllegalArgumentException If the node limit is not positive.
+	 */
+	public PuzzleGenerator(WordTrie dict, long nodeLimit) throws IllegalArgumentException {
+		if (nodeLimit <= 0) {
+			throw new IllegalArgumentException("Node limit must be positive");
+		}
+		dict.getPacked().forEachWord(word -> {
+			if (isPlantable(word)) {
+				while (wordsByLength.size() <= word.length()) {
+					wordsByLength.add(new ArrayList<>());
+				}
+				wordsByLength.get(word.length()).add(word);
+			}
+		});
+		this.solver = new WordBrainSolver(dict);
+		this.nodeLimit = nodeLimit;
+
+		// Every board is different, so there is no point caching their results.
+		solver.setResultCacheSize(0);
+	}
+
+	/**
+	 * Make a puzzle.
+	 *
+	 * @param width        The number of columns.
+	 * @param height       The number of rows.
+	 * @param wordLengths  The lengths of the words, in slot order. They must add up to the number of squares.
+	 * @param maxSolutions The most distinct solutions the puzzle may have (1 for a puzzle with a single answer).
+	 * @param random       Source of random choices.
+	 * @return The puzzle, or empty if none was found within DEFAULT_ATTEMPTS boards.
+	 * @throws IllegalArgumentException If the board size, word lengths or maximum solutions are not valid.
+	 */
+	public Optional<GeneratedPuzzle> generate(int width, int height, int[] wordLengths, int maxSolutions, Random random)
+			throws IllegalArgumentException {
+		checkArguments(width, height, wordLengths, maxSolutions);
+		for (int length : wordLengths) {
+			if (length >= wordsByLength.size() || wordsByLength.get(length).isEmpty()) {
+				return Optional.empty();
+			}
+		}
+
+		SolveOptions options = SolveOptions.DEFAULT
+				.withDistinctWords(true)
+				.withSolutionLimit(maxSolutions)
+				.withNodeLimit(nodeLimit);
+		for (int attempt = 0; attempt < DEFAULT_ATTEMPTS; attempt++) {
+			String[] words = new String[wordLengths.length];
+			WordbrainBoard board = plant(width, height, wordLengths, words, random);
+			if (board == null) {
+				continue;
+			}
+			SolveResult result = solver.solveWithLimits(board, options, wordLengths);
+			if (result.isComplete()) {
+				return Optional.of(new GeneratedPuzzle(
+						new Puzzle(board, wordLengths), Arrays.asList(words), result.getSolutions()));
+			}
+		}
+		return Optional.empty();
+	}
+
+	/**
+	 * Make a batch of puzzles in parallel, on the common fork-join pool. The puzzle at each position in the batch only
+	 * depends on the seed and the position, so the same seed always gives the same puzzles.
+	 *
+	 * @param count        The number of puzzles to try to make.
+	 * @param width        The number of columns.
+	 * @param height       The number of rows.
+	 * @param wordLengths  The lengths of the words, in slot order. They must add up to the number of squares.
+	 * @param maxSolutions The most distinct solutions each puzzle may have.
+	 * @param seed         Seed for the random choices.
+	 * @return The puzzles made, in order. Fewer than count if some couldn't be made.
+	 * @throws IllegalArgumentException If the board size, word lengths or maximum solutions are not valid.
+	 */
+	public List<GeneratedPuzzle> generateMany(
+			int count,
+			int width,
+			int height,
+			int[] wordLengths,
+			int maxSolutions,
+			long seed) throws IllegalArgumentException {
+
+		checkArguments(width, height, wordLengths, maxSolutions);
+		return IntStream.range(0, count)
+				.parallel()
+				.mapToObj(i -> generate(width, height, wordLengths, maxSolutions,
+						new Random(seed + i * 0x9e3779b97f4a7c15L)))
+				.filter(Optional::isPresent)
+				.map(Optional::get)
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * Check the arguments describing the puzzles to make.
+	 *
+	 * @param width        The number of columns.
+	 * @param height       The number of rows.
+	 * @param wordLengths  The lengths of the words.
+	 * @param maxSolutions The most distinct solutions each puzzle may have.
+	 * @throws IllegalArgumentException If any are not valid.
+	 */
+	private static void checkArguments(int width, int height, int[] wordLengths, int maxSolutions)
+			throws IllegalArgumentException {
+		if (width <= 0 || height <= 0 || (long) width * height > WordbrainBoard.MAX_CELLS) {
+			throw new IllegalArgumentException("Board must have between 1 and " + WordbrainBoard.MAX_CELLS + " squares");
+		}
+		if (wordLengths.length == 0 || Arrays.stream(wordLengths).anyMatch(length -> length <= 0)) {
+			throw new IllegalArgumentException("Puzzle must have at least one word, and every word a letter");
+		}
+		if (Arrays.stream(wordLengths).asLongStream().sum() != (long) width * height) {
+			throw new IllegalArgumentException("Word lengths must add up to the number of squares on the board");
+		}
+		if (maxSolutions < 1) {
+			throw new IllegalArgumentException("Puzzle must be allowed at least one solution");
+		}
+	}
+
+	/**
+	 * Check whether a word can be put on a board: each of its letters must be a single char, and not be mistaken for a
+	 * space or a row separator.
+	 *
+	 * @param word The word.
+	 * @return True if the word can be planted.
+	 */
+	private static boolean isPlantable(String word) {
+		for (int i = 0; i < word.length(); i++) {
+			char letter = word.charAt(i);
+			if (!Character.isLetter(letter) || Character.isSurrogate(letter)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Make a board by planting random words of the given lengths, from the last slot to the first.
+	 *
+	 * @param width       The number of columns.
+	 * @param height      The number of rows.
+	 * @param wordLengths The lengths of the words, adding up to the number of squares.
+	 * @param words       Array to fill with the words planted, in slot order.
+	 * @param random      Source of random choices.
+	 * @return The board, or null if a word couldn't be planted.
+	 */
+	private WordbrainBoard plant(int width, int height, int[] wordLengths, String[] words, Random random) {
+		// The letters in each column, from the bottom up, and the number of letters in each column.
+		char[][] columns = new char[width][height];
+		int[] heights = new int[width];
+
+		for (int slot = wordLengths.length - 1; slot >= 0; slot--) {
+			List<String> candidates = wordsByLength.get(wordLengths[slot]);
+			int[] path = findPath(heights, height, wordLengths[slot], random);
+			if (path == null) {
+				return null;
+			}
+			words[slot] = candidates.get(random.nextInt(candidates.size()));
+			insert(columns, heights, height, path, words[slot]);
+		}
+
+		// Every column is now full, since the word lengths add up to the number of squares.
+		StringBuilder layout = new StringBuilder();
+		for (int y = 0; y < height; y++) {
+			if (y > 0) {
+				layout.append(',');
+			}
+			for (int x = 0; x < width; x++) {
+				layout.append(columns[x][height - 1 - y]);
+			}
+		}
+		return new WordbrainBoard(layout.toString());
+	}
+
+	/**
+	 * Find a random path of neighbouring squares along which a word can be inserted into the board. The squares are
+	 * those the word's letters will be in after the insertion, so each column must have room for the letters put into
+	 * it, and each letter must be within its column's letters once they have been pushed up.
+	 *
+	 * @param heights The number of letters in each column.
+	 * @param height  The number of rows.
+	 * @param length  The length of the word.
+	 * @param random  Source of random choices.
+	 * @return The squares, each as column * height + row from the bottom, or null if no path was found in PATH_STEPS
+	 * squares.
+	 */
+	private static int[] findPath(int[] heights, int height, int length, Random random) {
+		List<Integer> starts = new ArrayList<>();
+		for (int x = 0; x < heights.length; x++) {
+			for (int row = 0; row <= heights[x] && heights[x] < height; row++) {
+				starts.add(x * height + row);
+			}
+		}
+		if (starts.isEmpty()) {
+			return null;
+		}
+		int[] path = new int[length];
+		path[0] = starts.get(random.nextInt(starts.size()));
+		int[] inserted = new int[heights.length];
+		inserted[path[0] / height]++;
+		int[] steps = new int[]{PATH_STEPS};
+		return extendPath(heights, height, path, 1, inserted, random, steps) ? path : null;
+	}
+
+	/**
+	 * Extend a path by a square, trying the neighbours of its last square in a random order, then the rest of the path
+	 * from there.
+	 *
+	 * @param heights  The number of letters in each column before the insertion.
+	 * @param height   The number of rows.
+	 * @param path     The path. Squares from the current length onwards are filled in.
+	 * @param found    The current length of the path.
+	 * @param inserted The number of squares of the path in each column.
+	 * @param random   Source of random choices.
+	 * @param steps    The number of squares which may still be tried, in element 0.
+	 * @return True if the path was completed.
+	 */
+	private static boolean extendPath(
+			int[] heights,
+			int height,
+			int[] path,
+			int found,
+			int[] inserted,
+			Random random,
+			int[] steps) {
+
+		if (found == path.length) {
+			return true;
+		}
+		int x = path[found - 1] / height;
+		int row = path[found - 1] % height;
+		int[] neighbours = new int[8];
+		int count = 0;
+		for (int x1 = x - 1; x1 <= x + 1; x1++) {
+			for (int row1 = row - 1; row1 <= row + 1; row1++) {
+				if (x1 >= 0 && x1 < heights.length && row1 >= 0 && row1 < height && (x1 != x || row1 != row)) {
+					neighbours[count++] = x1 * height + row1;
+				}
+			}
+		}
+
+		for (int i = count; i > 0; i--) {
+			// Shuffle as we go, taking a random neighbour from those not yet tried.
+			int pick = random.nextInt(i);
+			int square = neighbours[pick];
+			neighbours[pick] = neighbours[i - 1];
+			if (--steps[0] < 0) {
+				return false;
+			}
+
+			int x1 = square / height;
+			int row1 = square % height;
+			int columnHeight = heights[x1] + inserted[x1] + 1;
+			if (columnHeight > height || row1 >= columnHeight || contains(path, found, square)) {
+				continue;
+			}
+			path[found] = square;
+			inserted[x1]++;
+			if (extendPath(heights, height, path, found + 1, inserted, random, steps)) {
+				return true;
+			}
+			inserted[x1]--;
+		}
+		return false;
+	}
+
+	/**
+	 * Check whether the start of a path contains a square.
+	 *
+	 * @param path   The path.
+	 * @param length The number of squares to check.
+	 * @param square The square.
+	 * @return True if the square is in the path.
+	 */
+	private static boolean contains(int[] path, int length, int square) {
+		for (int i = 0; i < length; i++) {
+			if (path[i] == square) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Insert a word into the board along a path, pushing up the letters already in each column it crosses.
+	 *
+	 * @param columns The letters in each column, from the bottom up. Modified.
+	 * @param heights The number of letters in each column. Modified.
+	 * @param height  The number of rows.
+	 * @param path    The squares of the word's letters after the insertion, from findPath.
+	 * @param word    The word.
+	 */
+	private static void insert(char[][] columns, int[] heights, int height, int[] path, String word) {
+		char[] letters = new char[height];
+		boolean[] isNew = new boolean[height];
+		for (int x = 0; x < columns.length; x++) {
+			int added = 0;
+			Arrays.fill(isNew, false);
+			for (int i = 0; i < path.length; i++) {
+				if (path[i] / height == x) {
+					letters[path[i] % height] = word.charAt(i);
+					isNew[path[i] % height] = true;
+					added++;
+				}
+			}
+			if (added == 0) {
+				continue;
+			}
+
+			int old = 0;
+			for (int row = 0; row < heights[x] + added; row++) {
+				if (!isNew[row]) {
+					letters[row] = columns[x][old++];
+				}
+			}
+			heights[x] += added;
+			System.arraycopy(letters, 0, columns[x], 0, heights[x]);
+		}
+	}
+}
@@ -0,0 +1,254 @@
+package uk.co.ndall.wordbrain;
+
+import uk.co.ndall.wordgames.WordTrie;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A cache of the results of recent searches, keyed by the canonical form of the board (see CanonicalBoard), so that
+ * boards which are mirror images of each other, or only differ by blank edges, share their results. Results are held
+ * for the canonical board, and converted back by the caller.
+ * <p>
+ * The least recently used result is dropped once the cache is full. Only complete results are kept, and solve results
+ * with more than MAX_SOLUTIONS solutions aren't kept at all, so a few big puzzles can't fill the heap.
+ * <p>
+ * A result is only found again for the same dictionary at the same version (see {@link WordTrie#getVersion}), so
+ * adding a word makes the dictionary's earlier results unreachable. The cache only holds the dictionaries weakly, so
+ * it doesn't keep a replaced or evicted dictionary in memory: once one has been collected, its results are dropped.
+ */
+final class ResultCache {
+
+	/**
+	 * The most solutions a cached solve result may hold.
+	 */
+	static final int MAX_SOLUTIONS = 10_000;
+
+	/**
+	 * The kind of result held in the cache.
+	 */
+	enum Kind {
+
+		/**
+		 * A SolveResult from solveWithLimits.
+		 */
+		SOLVE,
+
+		/**
+		 * A Long from countSolutions.
+		 */
+		COUNT
+	}
+
+	// The results, from least to most recently used. Guarded by synchronizing on the map.
+	private final LeastRecentlyUsedMap results;
+
+	// Queue of references to dictionaries which have been collected, so their results can be dropped.
+	private final ReferenceQueue<WordTrie> collected = new ReferenceQueue<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param maxEntries The most results to keep, or 0 to keep none.
+	 * @throws IllegalArgumentException If maxEntries is negative.
+	 */
+	ResultCache(int maxEntries) throws IllegalArgumentException {
+		if (maxEntries < 0) {
+			throw new IllegalArgumentException("Result cache size must not be negative");
+		}
+		this.results = new LeastRecentlyUsedMap(maxEntries);
+	}
+
+	/**
+	 * Look up a result.
+	 *
+	 * @param kind        The kind of result.
+	 * @param dict        The dictionary searched.
+	 * @param board       The canonical board.
+	 * @param options     The options used.
+	 * @param wordLengths The lengths of words found.
+	 * @return The result for the canonical board, or null if it isn't in the cache.
+	 */
+	Object get(Kind kind, WordTrie dict, CanonicalBoard board, SolveOptions options, int[] wordLengths) {
+		Key key = new Key(kind, dict, board, options, wordLengths, null);
+		synchronized (results) {
+			dropCollected();
+			return results.get(key);
+		}
+	}
+
+	/**
+	 * Add a result, if it may be kept.
+	 *
+	 * @param kind        The kind of result.
+	 * @param dict        The dictionary searched.
+	 * @param board       The canonical board.
+	 * @param options     The options used.
+	 * @param wordLengths The lengths of words found. Not copied, so must not be modified afterwards.
+	 * @param result      The result for the canonical board.
+	 */
+	void put(Kind kind, WordTrie dict, CanonicalBoard board, SolveOptions options, int[] wordLengths, Object result) {
+		if (result instanceof SolveResult) {
+			SolveResult solveResult = (SolveResult) result;
+			if (!solveResult.isComplete() || solveResult.getSolutions().size() > MAX_SOLUTIONS) {
+				return;
+			}
+		}
+		Key key = new Key(kind, dict, board, options, wordLengths, collected);
+		synchronized (results) {
+			dropCollected();
+			results.put(key, result);
+		}
+	}
+
+	/**
+	 * Remove every result.
+	 */
+	void clear() {
+		synchronized (results) {
+			results.clear();
+		}
+	}
+
+	/**
+	 * Remove the results for dictionaries which have been collected. Must be called while synchronized on the results.
+	 */
+	private void dropCollected() {
+		Reference<? extends WordTrie> reference;
+		while ((reference = collected.poll()) != null) {
+			results.remove(((DictionaryReference) reference).key);
+		}
+	}
+
+	/**
+	 * Map of results in access order, which drops the least recently used result once it holds too many.
+	 */
+	private static final class LeastRecentlyUsedMap extends LinkedHashMap<Key, Object> {
+
+		private static final long serialVersionUID = 1L;
+
+		// The most results to keep.
+		private final int maxEntries;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param maxEntries The most results to keep.
+		 */
+		LeastRecentlyUsedMap(int maxEntries) {
+			super(16, 0.75f, true);
+			this.maxEntries = maxEntries;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+			return size() > maxEntries;
+		}
+	}
+
+	/**
+	 * Weak reference to the dictionary searched for a result, which knows the key holding it.
+	 */
+	private static final class DictionaryReference extends WeakReference<WordTrie> {
+
+		// The key holding this reference.
+		private final Key key;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param dict  The dictionary.
+		 * @param key   The key holding this reference.
+		 * @param queue Queue to add this reference to once the dictionary is collected, or null.
+		 */
+		DictionaryReference(WordTrie dict, Key key, ReferenceQueue<WordTrie> queue) {
+			super(dict, queue);
+			this.key = key;
+		}
+	}
+
+	/**
+	 * Identifies a search: everything which affects its complete result.
+	 */
+	private static final class Key {
+
+		// The kind of result.
+		private final Kind kind;
+
+		// The dictionary searched, compared by identity, and held weakly so that it can be collected.
+		private final DictionaryReference dict;
+
+		// The identity hash code of the dictionary, kept since the dictionary may be collected.
+		private final int dictHash;
+
+		// The version of the dictionary searched.
+		private final long dictVersion;
+
+		// The canonical board.
+		private final CanonicalBoard board;
+
+		// The order in which words may be found.
+		private final SolveOptions.WordOrder wordOrder;
+
+		// Whether only one solution is kept for each sequence of words (always false for a count).
+		private final boolean distinctWords;
+
+		// The lengths of words found.
+		private final int[] wordLengths;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param kind        The kind of result.
+		 * @param dict        The dictionary searched.
+		 * @param board       The canonical board.
+		 * @param options     The options used.
+		 * @param wordLengths The lengths of words found.
+		 * @param queue       Queue to add the reference to the dictionary to once it is collected, or null for a key
+		 *                    only used to look up a result.
+		 */
+		Key(
+				Kind kind,
+				WordTrie dict,
+				CanonicalBoard board,
+				SolveOptions options,
+				int[] wordLengths,
+				ReferenceQueue<WordTrie> queue) {
+
+			this.kind = kind;
+			this.dict = new DictionaryReference(dict, this, queue);
+			this.dictHash = System.identityHashCode(dict);
+			this.dictVersion = dict.getVersion();
+			this.board = board;
+			this.wordOrder = options.getWordOrder();
+			// Counting ignores distinct words, so counts are shared whether or not it was asked for.
+			this.distinctWords = kind == Kind.SOLVE && options.isDistinctWords();
+			this.wordLengths = wordLengths;
+		}
+
+		@Override
+		public boolean equals(Object object) {
+			if (object == this) {
+				return true;
+			}
+			if (!(object instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) object;
+			WordTrie searched = dict.get();
+			return kind == other.kind && searched != null && searched == other.dict.get()
+					&& dictVersion == other.dictVersion && wordOrder == other.wordOrder
+					&& distinctWords == other.distinctWords
+					&& board.equals(other.board) && Arrays.equals(wordLengths, other.wordLengths);
+		}
+
+		@Override
+		public int hashCode() {
+			return ((board.hashCode() * 31 + Arrays.hashCode(wordLengths)) * 31 + kind.ordinal()) * 31 + dictHash;
+		}
+	}
+}
@@ -0,0 +1,806 @@
+package uk.co.ndall.wordbrain;
+
+import uk.co.ndall.wordgames.Coords2D;
+import uk.co.ndall.wordgames.PackedTrie;
+import uk.co.ndall.wordgames.WordStatistics;
+import uk.co.ndall.wordgames.WordTrie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * A single search for the solutions to a WordBrain puzzle, with a fixed dictionary, list of word lengths and options.
+ * <p>
+ * Each word length is a "slot" which must be filled by a word. The search removes one word at a time from the board,
+ * backtracking on a MutableBoard. In FIXED order the slots are filled in turn; otherwise, any unfilled slot may be
+ * filled next.
+ * <p>
+ * The candidate words for each unfilled slot are kept in a WordPaths, found once for the initial board and then
+ * updated after each removal for only the cells that changed. Words at least as long as the options' bidirectional
+ * length are found on the initial board using a SuffixIndex. Both look words up in a PackedTrie holding only the
+ * dictionary's words which can be made from the board's letters, so following a letter is an array lookup whatever
+ * the language.
+ * <p>
+ * Cells are held as int indexes and sets of cells as bitsets (see CellBits), so boards of up to
+ * WordbrainBoard.MAX_CELLS squares are supported. Paths are found without recursion (see WordPaths), and the search
+ * only recurses once per word removed, so the stack depth doesn't grow with the board or the words. Memory for each
+ * task is the WordPaths for each level of the search, roughly (paths * (length + cells / 32)) ints, plus the solutions
+ * found, or the memo when counting; with an off-heap budget in the options these are kept in direct memory instead
+ * (see OffHeapSolutions and OffHeapMemo). The time taken grows with the number of candidate words for each slot,
+ * multiplied across the slots: on a board much bigger than the standard 5x5 with more than two or three words this
+ * quickly becomes too many to enumerate, so use estimate first, and limits or count rather than a full solve.
+ */
+final class Search {
+
+	// The dictionary of words to search for, packed into arrays.
+	private final PackedTrie fullDict;
+
+	// The words in the dictionary which could be made from the board's letters, set when the board is first seen.
+	private PackedTrie dict;
+
+	// Statistics about the dictionary.
+	private final WordStatistics stats;
+
+	// The options controlling the search.
+	private final SolveOptions options;
+
+	// The lengths of words to find, one per slot.
+	private final int[] wordLengths;
+
+	// The dictionary with every word reversed, or null if no words are long enough to search for from both ends.
+	private final PackedTrie reversed;
+
+	// The limits on the search, starting from when it was created.
+	private final Budget budget;
+
+	// Fingerprints of the words of the solutions found, or null if duplicates are kept.
+	private final FingerprintSet foundWords;
+
+	// The metrics to report each solve or count to.
+	private final SolverMetrics metrics;
+
+	// The progressive solve to pass each solution to as it is found, or null if the solve isn't progressive.
+	private volatile ProgressiveSolve progress;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param dict        The dictionary of words to search for.
+	 * @param options     The options controlling the search.
+	 * @param wordLengths The lengths of words to find (in the order given by the user).
+	 * @param metrics     The metrics to report each solve or count to.
+	 */
+	Search(WordTrie dict, SolveOptions options, int[] wordLengths, SolverMetrics metrics) {
+		this.fullDict = dict.getPacked();
+		this.stats = dict.getStatistics();
+		this.options = options;
+		this.wordLengths = wordLengths;
+
+		boolean bidirectional = false;
+		for (int length : wordLengths) {
+			bidirectional |= length >= options.getBidirectionalMinLength();
+		}
+		this.reversed = bidirectional ? dict.getReversed().getPacked() : null;
+		this.budget = new Budget(options);
+		this.foundWords = options.isDistinctWords()
+				? new FingerprintSet(Runtime.getRuntime().availableProcessors())
+				: null;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Find all valid solutions for a WordBrain board. Solutions are searched for in parallel, split up by the slot
+	 * filled first and the position of its first letter. Solutions are ordered by search order (see startCells). If a
+	 * limit in the options is exceeded, the stream ends early. The solve is reported to the metrics when the last task
+	 * finishes, or when the stream is closed if that is sooner; a stream which is abandoned before its last task runs,
+	 * and never closed, is not reported. Once a task's solutions have been streamed, any direct memory holding them is
+	 * released for later tasks to reuse.
+	 *
+	 * @param board The board layout
+	 * @return Stream of solutions, each represented by an unmodifiable list of FoundWord objects in slot order. The
+	 * FoundWord objects are only made when a solution's words are first asked for (see CompactSolution).
+	 */
+	Stream<List<FoundWord>> solve(WordbrainBoard board) {
+		// base case: caller has found a complete solution.
+		if (wordLengths.length == 0) {
+			return Stream.of(new ArrayList<FoundWord>());
+		}
+
+		return solveTasks(board).flatMap(solutions -> solutions.stream().onClose(() -> release(solutions)));
+	}
+
+	/**
+	 * Find all valid solutions for a WordBrain board, as for solve, but keeping the solutions found by each task
+	 * together rather than streaming them one by one.
+	 *
+	 * @param board The board layout
+	 * @return Stream of the solutions found by each task, in search order.
+	 */
+	private Stream<List<List<FoundWord>>> solveTasks(WordbrainBoard board) {
+		SolveMonitor monitor = new SolveMonitor(
+				metrics, SolverMetrics.Operation.SOLVE, board.getIndex(), options, wordLengths);
+		MutableBoard initial = new MutableBoard(board.getIndex());
+		return solveFrom(initial, findFirstPaths(initial), monitor);
+	}
+
+	/**
+	 * Release the direct memory holding a task's solutions, once they have all been streamed.
+	 *
+	 * @param solutions The solutions found by the task.
+	 */
+	private static void release(List<List<FoundWord>> solutions) {
+		if (solutions instanceof OffHeapSolutions) {
+			((OffHeapSolutions) solutions).release();
+		}
+	}
+
+	/**
+	 * Find the word paths for the first slot on the initial board, after restricting the dictionary to the board's
+	 * letters: the first part of a solve, which needs no other slot's paths.
+	 *
+	 * @param initial The initial board layout.
+	 * @return The word paths for each slot, with only the first slot's filled in.
+	 */
+	private WordPaths[] findFirstPaths(MutableBoard initial) {
+		Budget.Meter meter = budget.new Meter();
+		useBoardDictionary(initial.getIndex(), meter);
+		WordPaths[] initialPaths = new WordPaths[wordLengths.length];
+		initialPaths[0] = findPaths(initial, initialPaths, 0, meter);
+		return initialPaths;
+	}
+
+	/**
+	 * Find the word paths for the remaining slots on the initial board, then search for the solutions in parallel.
+	 *
+	 * @param initial      The initial board layout.
+	 * @param initialPaths The word paths for each slot, with the first slot's filled in (see findFirstPaths).
+	 * @param monitor      The monitor to report the solve to when the last task finishes, or when the stream is
+	 *                     closed if that is sooner.
+	 * @return Stream of the solutions found by each task, in search order.
+	 */
+	private Stream<List<List<FoundWord>>> solveFrom(
+			MutableBoard initial,
+			WordPaths[] initialPaths,
+			SolveMonitor monitor) {
+
+		Budget.Meter meter = budget.new Meter();
+		for (int slot = 1; slot < wordLengths.length; slot++) {
+			initialPaths[slot] = findPaths(initial, initialPaths, slot, meter);
+		}
+
+		// Each task is searched on its own copy of the board, sharing the word paths found on the initial board.
+		BoardIndex index = initial.getIndex();
+		int[] tasks = firstTasks(initial, initialPaths);
+		AtomicInteger unfinished = new AtomicInteger(tasks.length);
+		AtomicBoolean reported = new AtomicBoolean();
+		Runnable finished = () -> {
+			if (reported.compareAndSet(false, true)) {
+				monitor.finished(false, budget.getStatus(), budget.getSolutions(), budget.getNodes());
+			}
+		};
+		if (tasks.length == 0) {
+			finished.run();
+		}
+		return IntStream.of(tasks)
+				.parallel()
+				.mapToObj(task -> {
+					List<List<FoundWord>> solutions = solutionsFrom(new MutableBoard(index), task >>> 16, task & 0xFFFF,
+							initialPaths, monitor.getDepthTimings());
+					if (unfinished.decrementAndGet() == 0) {
+						finished.run();
+					}
+					return solutions;
+				})
+				.onClose(finished);
+	}
+
+	/**
+	 * Find the valid solutions for a WordBrain board, within the limits in the options. The solutions found by each
+	 * task are joined rather than copied, so any packed into direct memory stay packed until they are read.
+	 *
+	 * @param board The board layout
+	 * @return The solutions found, and whether the search finished.
+	 */
+	SolveResult solveWithLimits(WordbrainBoard board) {
+		if (wordLengths.length == 0) {
+			return new SolveResult(solve(board).collect(Collectors.toList()), budget.getStatus(), budget.getNodes());
+		}
+		List<List<FoundWord>> solutions = new JoinedSolutions(solveTasks(board).collect(Collectors.toList()));
+		return new SolveResult(solutions, budget.getStatus(), budget.getNodes());
+	}
+
+	/**
+	 * Start finding the valid solutions for a WordBrain board in the background, within the limits in the options. Only
+	 * the words which could fill the first slot are found before this returns; the other slots' words are then found
+	 * and the search run on a pool, passing each solution to a listener as soon as it is found.
+	 *
+	 * @param board    The board layout
+	 * @param listener Listener to pass each solution to as it is found, on the thread which found it.
+	 * @param pool     The pool to search on.
+	 * @return The solve, with the first words found.
+	 */
+	ProgressiveSolve solveProgressively(WordbrainBoard board, Consumer<List<FoundWord>> listener, ForkJoinPool pool) {
+		SolveMonitor monitor = new SolveMonitor(
+				metrics, SolverMetrics.Operation.SOLVE, board.getIndex(), options, wordLengths);
+		MutableBoard initial = new MutableBoard(board.getIndex());
+		WordPaths[] initialPaths = findFirstPaths(initial);
+		ProgressiveSolve started = new ProgressiveSolve(describePaths(initial, initialPaths[0]), listener);
+		progress = started;
+		CompletableFuture
+				.supplyAsync(() -> new JoinedSolutions(
+						solveFrom(initial, initialPaths, monitor).collect(Collectors.toList())), pool)
+				.whenComplete((found, error) -> {
+					if (error != null) {
+						started.failed(error);
+					} else {
+						started.finished(new SolveResult(found, budget.getStatus(), budget.getNodes()));
+					}
+				});
+		return started;
+	}
+
+	/**
+	 * Count the valid solutions for a WordBrain board, without building them. Tasks are split up as for solve, but share
+	 * a memo of the number of ways to finish from each board layout and set of filled slots, since the same layout is
+	 * often reached by removing different paths or the same words in a different order.
+	 *
+	 * @param board The board layout
+	 * @return The number of solutions solve would find.
+	 */
+	long count(WordbrainBoard board) {
+		if (wordLengths.length == 0) {
+			return 1;
+		}
+
+		BoardIndex index = board.getIndex();
+		SolveMonitor monitor = new SolveMonitor(metrics, SolverMetrics.Operation.COUNT, index, options, wordLengths);
+		useBoardDictionary(index, null);
+		MutableBoard initial = new MutableBoard(index);
+		WordPaths[] initialPaths = new WordPaths[wordLengths.length];
+		for (int slot = 0; slot < wordLengths.length; slot++) {
+			initialPaths[slot] = findPaths(initial, initialPaths, slot, null);
+		}
+		Memo memo = options.getOffHeapBytes() > 0
+				? new OffHeapMemo(options.getOffHeapBytes(), index.getSize(), wordLengths.length)
+				: new Memo.OnHeap();
+		long count = IntStream.of(firstTasks(initial, initialPaths))
+				.parallel()
+				.mapToLong(task -> countFrom(new MutableBoard(index), task >>> 16, task & 0xFFFF, initialPaths, memo))
+				.sum();
+		monitor.finished(false, SolveResult.Status.COMPLETE, count, 0);
+		return count;
+	}
+
+	/**
+	 * Estimate the cost of the search, by finding the candidate words for each slot on the initial board only.
+	 *
+	 * @param board The board layout
+	 * @return The estimate.
+	 */
+	SearchEstimate estimate(WordbrainBoard board) {
+		useBoardDictionary(board.getIndex(), null);
+		MutableBoard initial = new MutableBoard(board.getIndex());
+		WordPaths[] initialPaths = new WordPaths[wordLengths.length];
+		int[] candidates = new int[wordLengths.length];
+		for (int slot = 0; slot < wordLengths.length; slot++) {
+			initialPaths[slot] = findPaths(initial, initialPaths, slot, null);
+			candidates[slot] = initialPaths[slot].count();
+		}
+		return new SearchEstimate(wordLengths, candidates, options.getWordOrder());
+	}
+
+	/**
+	 * Split the search into tasks, each searching for the solutions which fill a particular slot first, starting at a
+	 * particular cell.
+	 *
+	 * @param board The board layout.
+	 * @param paths The word paths for each slot on the board.
+	 * @return The tasks in search order, each holding the slot in the high 16 bits and the cell in the low 16 bits.
+	 */
+	private int[] firstTasks(MutableBoard board, WordPaths[] paths) {
+		IntStream.Builder tasks = IntStream.builder();
+		for (int slot : slotsToTry(new boolean[wordLengths.length], 0, paths)) {
+			for (int cell : startCells(board, wordLengths[slot])) {
+				tasks.add((slot << 16) | cell);
+			}
+		}
+		return tasks.build().toArray();
+	}
+
+	/**
+	 * Find all valid solutions which fill a particular slot first, with a word starting at a particular position.
+	 *
+	 * @param board   The board layout. Words are removed from it during the search, and put back afterwards.
+	 * @param slot    The slot to fill first.
+	 * @param cell    The index of the starting cell for the first word.
+	 * @param paths   The word paths for each slot on the initial board.
+	 * @param timings The words tried and time spent at each depth, or null if they aren't being recorded.
+	 * @return List of solutions, each represented by a list of FoundWord objects in slot order.
+	 */
+	private List<List<FoundWord>> solutionsFrom(
+			MutableBoard board,
+			int slot,
+			int cell,
+			WordPaths[] paths,
+			DepthTimings timings) {
+
+		List<List<FoundWord>> solutions = options.getOffHeapBytes() > 0
+				? new OffHeapSolutions(board.getIndex(), budget)
+				: new ArrayList<>();
+		boolean[] filled = new boolean[wordLengths.length];
+		Budget.Meter meter = budget.new Meter();
+		DepthTimings.Task timer = timings == null ? null : timings.new Task();
+		long started = timer == null ? 0 : System.nanoTime();
+
+		filled[slot] = true;
+		for (int i = paths[slot].firstPath(cell); i < paths[slot].firstPath(cell + 1); i++) {
+			int[] path = paths[slot].getPath(i);
+			if (!meter.tick()) {
+				break;
+			}
+			if (timer != null) {
+				timer.word(0);
+			}
+			CompactSolution.Step step = new CompactSolution.Step(null, slot, path, wordFingerprint(board, slot, path));
+			if (wordLengths.length == 1) {
+				if (!addSolution(board, step, solutions)) {
+					break;
+				}
+				continue;
+			}
+			long removed = timer == null ? 0 : System.nanoTime();
+			board.removeLetters(path, path.length);
+			solveRemaining(board, step, filled, 1, updatePaths(board, paths, filled, meter), meter, timer, solutions);
+			board.undo();
+			if (timer != null) {
+				timer.board(1, System.nanoTime() - removed);
+			}
+		}
+		meter.flush();
+		if (timer != null) {
+			timer.board(0, System.nanoTime() - started);
+			timer.flush();
+		}
+		return solutions;
+	}
+
+	/**
+	 * Count the valid solutions which fill a particular slot first, with a word starting at a particular position.
+	 *
+	 * @param board The board layout. Words are removed from it during the search, and put back afterwards.
+	 * @param slot  The slot to fill first.
+	 * @param cell  The index of the starting cell for the first word.
+	 * @param paths The word paths for each slot on the initial board.
+	 * @param memo  Memo of the number of ways to finish.
+	 * @return The number of solutions.
+	 */
+	private long countFrom(MutableBoard board, int slot, int cell, WordPaths[] paths, Memo memo) {
+		boolean[] filled = new boolean[wordLengths.length];
+		filled[slot] = true;
+		long count = 0;
+		for (int i = paths[slot].firstPath(cell); i < paths[slot].firstPath(cell + 1); i++) {
+			int[] path = paths[slot].getPath(i);
+			board.removeLetters(path, path.length);
+			count += countAfterRemoval(board, filled, 1, paths, memo);
+			board.undo();
+		}
+		return count;
+	}
+
+	/**
+	 * Count the ways to finish a solution after a word has been removed, using the memo if this board layout and set of
+	 * filled slots has been counted before.
+	 *
+	 * @param board  The board layout, with the word just removed.
+	 * @param filled Flags marking the slots filled so far, including the one just filled.
+	 * @param found  The number of words found so far.
+	 * @param paths  The word paths for each unfilled slot before the word was removed.
+	 * @param memo   Memo of the number of ways to finish.
+	 * @return The number of ways to finish.
+	 */
+	private long countAfterRemoval(
+			MutableBoard board,
+			boolean[] filled,
+			int found,
+			WordPaths[] paths,
+			Memo memo) {
+
+		if (found == wordLengths.length) {
+			return 1;
+		}
+
+		long known = memo.get(board, filled);
+		if (known != Memo.UNKNOWN) {
+			return known;
+		}
+		long count = countRemaining(board, filled, found, updatePaths(board, paths, filled, null), memo);
+		memo.put(board, filled, count);
+		return count;
+	}
+
+	/**
+	 * Recursively count the ways to finish a solution, by trying each possible next word in turn. The last word is not
+	 * removed: every path for the last slot finishes a solution.
+	 *
+	 * @param board  The board layout, with the words found so far removed.
+	 * @param filled Flags marking the slots filled so far.
+	 * @param found  The number of words found so far.
+	 * @param paths  The word paths for each unfilled slot on the board.
+	 * @param memo   Memo of the number of ways to finish.
+	 * @return The number of ways to finish.
+	 */
+	private long countRemaining(
+			MutableBoard board,
+			boolean[] filled,
+			int found,
+			WordPaths[] paths,
+			Memo memo) {
+
+		long count = 0;
+		for (int slot : slotsToTry(filled, found, paths)) {
+			if (paths[slot].count() == 0) {
+				continue;
+			}
+			if (found == wordLengths.length - 1) {
+				count += paths[slot].count();
+				continue;
+			}
+
+			filled[slot] = true;
+			for (int cell : startCells(board, wordLengths[slot])) {
+				for (int i = paths[slot].firstPath(cell); i < paths[slot].firstPath(cell + 1); i++) {
+					int[] path = paths[slot].getPath(i);
+					board.removeLetters(path, path.length);
+					count += countAfterRemoval(board, filled, found + 1, paths, memo);
+					board.undo();
+				}
+			}
+			filled[slot] = false;
+		}
+		return count;
+	}
+
+	/**
+	 * Recursively find the remaining words of solutions, by trying each possible next word in turn: removing it from
+	 * the board, searching for the words after it, and then putting it back.
+	 *
+	 * The last word of each solution is not removed: every path for the last slot completes a solution.
+	 *
+	 * @param board     The board layout, with the words found so far removed.
+	 * @param previous  The last word found so far, linked to the words found before it.
+	 * @param filled    Flags marking the slots filled so far.
+	 * @param found     The number of words found so far.
+	 * @param paths     The word paths for each unfilled slot on the board.
+	 * @param meter     Meter counting the words tried, which stops the search when a limit is exceeded.
+	 * @param timer     Counts of the words tried and time spent at each depth, or null if they aren't being recorded.
+	 * @param solutions List to add complete solutions to.
+	 */
+	private void solveRemaining(
+			MutableBoard board,
+			CompactSolution.Step previous,
+			boolean[] filled,
+			int found,
+			WordPaths[] paths,
+			Budget.Meter meter,
+			DepthTimings.Task timer,
+			List<List<FoundWord>> solutions) {
+
+		boolean last = found == wordLengths.length - 1;
+		for (int slot : slotsToTry(filled, found, paths)) {
+			int length = wordLengths[slot];
+			if (paths[slot].count() == 0) {
+				continue;
+			}
+			filled[slot] = true;
+			for (int cell : startCells(board, length)) {
+				for (int i = paths[slot].firstPath(cell); i < paths[slot].firstPath(cell + 1); i++) {
+					int[] path = paths[slot].getPath(i);
+					if (!meter.tick()) {
+						filled[slot] = false;
+						return;
+					}
+					if (timer != null) {
+						timer.word(found);
+					}
+					CompactSolution.Step step = new CompactSolution.Step(
+							previous, slot, path, wordFingerprint(board, slot, path));
+					if (last) {
+						// Base case: a complete solution.
+						if (!addSolution(board, step, solutions)) {
+							filled[slot] = false;
+							return;
+						}
+						continue;
+					}
+					long removed = timer == null ? 0 : System.nanoTime();
+					board.removeLetters(path, path.length);
+					WordPaths[] updated = updatePaths(board, paths, filled, meter);
+					solveRemaining(board, step, filled, found + 1, updated, meter, timer, solutions);
+					board.undo();
+					if (timer != null) {
+						timer.board(found + 1, System.nanoTime() - removed);
+					}
+				}
+			}
+			filled[slot] = false;
+		}
+	}
+
+	/**
+	 * Add a complete solution, if the solution limit allows and, when only distinct words are kept, its words haven't
+	 * been found already.
+	 *
+	 * @param board     The board layout.
+	 * @param last      The last word of the solution, linked to the words found before it.
+	 * @param solutions List to add the solution to.
+	 * @return True if the solution was added or dropped as a duplicate, false if the solution limit has been reached
+	 * (the search must stop).
+	 */
+	private boolean addSolution(MutableBoard board, CompactSolution.Step last, List<List<FoundWord>> solutions) {
+		if (foundWords != null && !foundWords.add(last.fingerprint)) {
+			return true;
+		}
+		if (!budget.addSolution()) {
+			return false;
+		}
+		CompactSolution solution = new CompactSolution(board.getIndex(), last);
+		solutions.add(solution);
+		if (progress != null) {
+			progress.solutionFound(solution);
+		}
+		return true;
+	}
+
+	/**
+	 * Work out the fingerprint of a word in a slot, if only distinct words are kept. The fingerprints of a solution's
+	 * words are added together, so the total doesn't depend on the order they were removed in, and is the same for
+	 * every solution making the same words in the same slots.
+	 *
+	 * @param board The board layout, before the word is removed.
+	 * @param slot  The slot filled by the word.
+	 * @param path  The cells of the word.
+	 * @return The fingerprint: a 64-bit hash (see {@link LongHash}) of the slot and the word's letters, or 0 if
+	 * duplicates are kept.
+	 */
+	private long wordFingerprint(MutableBoard board, int slot, int[] path) {
+		if (foundWords == null) {
+			return 0;
+		}
+		long hash = LongHash.add(LongHash.SEED, slot);
+		for (int cell : path) {
+			hash = LongHash.add(hash, board.getLetter(cell));
+		}
+		return LongHash.finish(hash);
+	}
+
+	/**
+	 * Choose which slots to try filling next. Slots of the same length are interchangeable, so only the first unfilled
+	 * slot of each length is tried.
+	 *
+	 * @param filled Flags marking the slots filled so far.
+	 * @param found  The number of words found so far.
+	 * @param paths  The word paths for each unfilled slot on the current board.
+	 * @return The slots to try, in the order to try them.
+	 */
+	private int[] slotsToTry(boolean[] filled, int found, WordPaths[] paths) {
+		if (options.getWordOrder() == SolveOptions.WordOrder.FIXED) {
+			return new int[]{found};
+		}
+
+		int[] slots = new int[wordLengths.length];
+		int count = 0;
+		for (int slot = 0; slot < wordLengths.length; slot++) {
+			if (!filled[slot] && !hasEarlierUnfilledSlot(filled, slot)) {
+				slots[count++] = slot;
+			}
+		}
+		slots = Arrays.copyOf(slots, count);
+
+		if (options.getWordOrder() == SolveOptions.WordOrder.MOST_CONSTRAINED_FIRST && count > 1) {
+			// Sort keys holding the number of words on the board in the high int, and the slot in the low int. The paths
+			// are already up to date for the board, so this costs nothing beyond the sort.
+			long[] keys = new long[count];
+			for (int i = 0; i < count; i++) {
+				keys[i] = ((long) paths[slots[i]].count() << 32) | slots[i];
+			}
+			Arrays.sort(keys);
+			for (int i = 0; i < count; i++) {
+				slots[i] = (int) keys[i];
+			}
+		}
+		return slots;
+	}
+
+	/**
+	 * Check whether there is an unfilled slot before a given slot, with the same length.
+	 *
+	 * @param filled Flags marking the slots filled so far.
+	 * @param slot   The slot.
+	 * @return True if there is an earlier unfilled slot of the same length.
+	 */
+	private boolean hasEarlierUnfilledSlot(boolean[] filled, int slot) {
+		for (int earlier = 0; earlier < slot; earlier++) {
+			if (!filled[earlier] && wordLengths[earlier] == wordLengths[slot]) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Choose the cells to search for words of a certain length from. Cells where no word of that length can start are
+	 * skipped: the dictionary must have words of that length starting with the cell's letter, and (for longer words)
+	 * starting with that letter followed by the letter of one of the cell's neighbours. The remaining cells are ordered
+	 * by the number of dictionary words that could start there, fewest first, so that the most constrained cells are
+	 * searched first. Ties are broken by position, from top left to bottom right.
+	 *
+	 * @param board  The board layout.
+	 * @param length The length of the words.
+	 * @return Indexes of the cells to search from, in the order to search them.
+	 */
+	private int[] startCells(MutableBoard board, int length) {
+		// Sort keys holding the number of possible words in the high int, and the cell in the low int.
+		long[] keys = new long[board.countLetters()];
+		int count = 0;
+		for (int cell = 0; cell < board.getSize(); cell++) {
+			long possible = countPossibleWords(board, cell, length);
+			if (possible > 0) {
+				keys[count++] = (possible << 32) | cell;
+			}
+		}
+		Arrays.sort(keys, 0, count);
+
+		int[] cells = new int[count];
+		for (int i = 0; i < count; i++) {
+			cells[i] = (int) keys[i];
+		}
+		return cells;
+	}
+
+	/**
+	 * Count the dictionary words of a certain length which start with a cell's letter followed by the letter of one of
+	 * its neighbours. Words using the same pair of letters are counted once for each such neighbour.
+	 *
+	 * @param board  The board layout.
+	 * @param cell   The index of the starting cell.
+	 * @param length The length of the words.
+	 * @return The number of words, or zero if the cell is empty.
+	 */
+	private long countPossibleWords(MutableBoard board, int cell, int length) {
+		char letter = board.getLetter(cell);
+		if (letter == BoardIndex.EMPTY) {
+			return 0;
+		}
+		if (length <= 1) {
+			return stats.countWords(letter, length);
+		}
+		if (stats.countWords(letter, length) == 0) {
+			return 0;
+		}
+
+		long possible = 0;
+		for (int neighbour : board.getNeighbours(cell)) {
+			char next = board.getLetter(neighbour);
+			if (next != BoardIndex.EMPTY) {
+				possible += stats.countWords(letter, next, length);
+			}
+		}
+		return possible;
+	}
+
+	/**
+	 * Make the words for a set of word paths.
+	 *
+	 * @param board The board layout the paths were found on.
+	 * @param paths The word paths.
+	 * @return The words, in the order of the paths.
+	 */
+	private static List<FoundWord> describePaths(MutableBoard board, WordPaths paths) {
+		List<FoundWord> words = new ArrayList<>(paths.count());
+		for (int i = 0; i < paths.count(); i++) {
+			int[] path = paths.getPath(i);
+			Coords2D[] positions = new Coords2D[path.length];
+			char[] letters = new char[path.length];
+			for (int j = 0; j < path.length; j++) {
+				positions[j] = board.getCoords(path[j]);
+				letters[j] = board.getLetter(path[j]);
+			}
+			words.add(new FoundWord(positions, new String(letters), 0));
+		}
+		return words;
+	}
+
+	/**
+	 * Restrict the dictionary to the words of the slots' lengths which can be made from the board's letters, each used
+	 * no more times than it appears on the board (see PackedTrie.anagrams). No other word can be found, so this
+	 * doesn't change the solutions, but the trie is much smaller, and prefixes which can't be finished from the
+	 * letters available are pruned straight away rather than followed to the end of every path.
+	 *
+	 * @param index The board.
+	 * @param meter Meter to check for each word, or null for no limits. If it stops the search, the dictionary only
+	 *              holds the words found so far.
+	 */
+	private void useBoardDictionary(BoardIndex index, Budget.Meter meter) {
+		if (dict != null) {
+			return;
+		}
+		StringBuilder letters = new StringBuilder();
+		for (int cell : index.getOccupiedCells()) {
+			letters.append(index.getLetter(cell));
+		}
+		List<String> words = new ArrayList<>();
+		for (int length : IntStream.of(wordLengths).distinct().toArray()) {
+			Iterator<String> anagrams = fullDict.anagrams(letters.toString(), length).iterator();
+			while (anagrams.hasNext() && (meter == null || meter.check())) {
+				words.add(anagrams.next());
+			}
+		}
+		dict = new PackedTrie(words);
+	}
+
+	/**
+	 * Find the word paths for a slot on the initial board, reusing those of an earlier slot of the same length.
+	 *
+	 * @param board The initial board layout.
+	 * @param paths The word paths found for the earlier slots.
+	 * @param slot  The slot.
+	 * @param meter Meter to step while searching the board, or null for no limits.
+	 * @return The word paths, which are incomplete if the meter stopped the search.
+	 */
+	private WordPaths findPaths(MutableBoard board, WordPaths[] paths, int slot, Budget.Meter meter) {
+		int length = wordLengths[slot];
+		for (int earlier = 0; earlier < slot; earlier++) {
+			if (wordLengths[earlier] == length) {
+				return paths[earlier];
+			}
+		}
+		SuffixIndex suffixes = length >= options.getBidirectionalMinLength()
+				? new SuffixIndex(board, reversed, length, meter)
+				: null;
+		return WordPaths.find(board, dict, suffixes, length, meter);
+	}
+
+	/**
+	 * Update the word paths for each unfilled slot after a word has been removed from the board. Slots of the same
+	 * length share their paths.
+	 *
+	 * @param board  The board layout, with the word just removed.
+	 * @param paths  The word paths for each unfilled slot before the word was removed.
+	 * @param filled Flags marking the slots filled so far, including the one just filled.
+	 * @param meter  Meter to step while searching the board, or null for no limits.
+	 * @return The word paths for each unfilled slot on the board (null for filled slots), which are incomplete if the
+	 * meter stopped the search.
+	 */
+	private WordPaths[] updatePaths(MutableBoard board, WordPaths[] paths, boolean[] filled, Budget.Meter meter) {
+		WordPaths[] updated = new WordPaths[paths.length];
+		long[] changed = null;
+		for (int slot = 0; slot < paths.length; slot++) {
+			if (filled[slot]) {
+				continue;
+			}
+			for (int earlier = 0; earlier < slot && updated[slot] == null; earlier++) {
+				if (updated[earlier] != null && wordLengths[earlier] == wordLengths[slot]) {
+					updated[slot] = updated[earlier];
+				}
+			}
+			if (updated[slot] == null) {
+				if (changed == null) {
+					changed = CellBits.create(board.getSize());
+					board.markChangedCells(changed);
+				}
+				updated[slot] = paths[slot].update(board, dict, changed, meter);
+			}
+		}
+		return updated;
+	}
+}
@@ -0,0 +1,47 @@
+package uk.co.ndall.wordbrain;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event summarising one depth of a search: the words tried there, and the time spent below it, added
+ * up over every thread. One is committed per depth when the search finishes. Only create one if
+ * {@link uk.co.ndall.wordgames.FlightRecorderSupport#isAvailable} is true.
+ */
+@Name("uk.co.ndall.wordbrain.SearchDepth")
+@Label("Search Depth")
+@Category("WordBrain")
+@Description("The words tried at one depth of a search, and the time spent searching from there")
+@StackTrace(false)
+final class SearchDepthEvent extends Event {
+
+	@Label("Depth")
+	@Description("The number of words already found")
+	int depth;
+
+	@Label("Boards")
+	@Description("The number of boards searched at this depth")
+	long boards;
+
+	@Label("Words Tried")
+	long words;
+
+	@Label("Search Time")
+	@Description("The time spent searching the boards at this depth, including the depths below, on all threads")
+	@Timespan(Timespan.NANOSECONDS)
+	long searchTime;
+
+	/**
+	 * Check whether these events are being recorded.
+	 *
+	 * @return True if they are.
+	 */
+	static boolean isRecorded() {
+		return new SearchDepthEvent().isEnabled();
+	}
+}
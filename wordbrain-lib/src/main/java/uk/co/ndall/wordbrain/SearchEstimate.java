@@ -0,0 +1,122 @@
+package uk.co.ndall.wordbrain;
+
+import java.util.Arrays;
+import java.util.TreeMap;
+
+/**
+ * A quick estimate of how expensive a WordBrain puzzle is to solve, made without running the full search. Useful for
+ * choosing timeouts or queue priorities before solving.
+ * <p>
+ * The estimate starts from the exact number of candidate words for each slot on the initial board. The search tree is
+ * then sized as if the same candidates were available at every step. That isn't true: removing a word destroys some
+ * candidates and, as letters fall, creates others (often including the words of the solution). So the estimate is not
+ * a prediction of the exact cost, but it does rank puzzles sensibly: one with more candidates, more words or more
+ * freedom in the word order costs more to solve. A slot with no candidates on the initial board is counted as having
+ * one, since its words may only appear once others are removed.
+ */
+public final class SearchEstimate {
+
+	// The number of candidate words for each slot on the initial board.
+	private final int[] candidates;
+
+	// The estimated number of words tried during the search.
+	private final double nodes;
+
+	// The estimated number of complete sequences of words tried.
+	private final double leaves;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param wordLengths The lengths of words to find, one per slot.
+	 * @param candidates  The number of candidate words for each slot on the initial board.
+	 * @param wordOrder   The order in which words may be found.
+	 */
+	SearchEstimate(int[] wordLengths, int[] candidates, SolveOptions.WordOrder wordOrder) {
+		this.candidates = candidates;
+		int[] branching = new int[candidates.length];
+		for (int slot = 0; slot < candidates.length; slot++) {
+			branching[slot] = Math.max(1, candidates[slot]);
+		}
+
+		if (wordOrder == SolveOptions.WordOrder.FIXED) {
+			// One path through the slots: each level multiplies the number of branches by that slot's candidates.
+			double branches = 1;
+			double total = 0;
+			for (int count : branching) {
+				branches *= count;
+				total += branches;
+			}
+			this.nodes = total;
+			this.leaves = candidates.length == 0 ? 1 : branches;
+		} else {
+			// Any order: count the ways of reaching each combination of filled slots. Slots of the same length are
+			// interchangeable, so a combination is the number of slots filled of each distinct length.
+			TreeMap<Integer, Integer> slotsByLength = new TreeMap<>();
+			TreeMap<Integer, Integer> candidatesByLength = new TreeMap<>();
+			for (int slot = 0; slot < wordLengths.length; slot++) {
+				slotsByLength.merge(wordLengths[slot], 1, Integer::sum);
+				candidatesByLength.put(wordLengths[slot], branching[slot]);
+			}
+			int[] limits = slotsByLength.values().stream().mapToInt(Integer::intValue).toArray();
+			int[] counts = candidatesByLength.values().stream().mapToInt(Integer::intValue).toArray();
+
+			// States are numbered in mixed radix, with one digit per distinct length holding the slots filled.
+			int[] radix = new int[limits.length];
+			int states = 1;
+			for (int i = 0; i < limits.length; i++) {
+				radix[i] = states;
+				states *= limits[i] + 1;
+			}
+			double[] ways = new double[states];
+			ways[0] = 1;
+			double total = 0;
+			for (int state = 1; state < states; state++) {
+				for (int i = 0; i < limits.length; i++) {
+					if ((state / radix[i]) % (limits[i] + 1) > 0) {
+						ways[state] += ways[state - radix[i]] * counts[i];
+					}
+				}
+				total += ways[state];
+			}
+			this.nodes = total;
+			this.leaves = ways[states - 1];
+		}
+	}
+
+	/**
+	 * Get the number of candidate words for each slot on the initial board. These are exact: every word of the right
+	 * length which can be made on the board, by any path.
+	 *
+	 * @return Array holding the number of candidates for each slot, in the order the lengths were given.
+	 */
+	public int[] getCandidateCounts() {
+		return candidates.clone();
+	}
+
+	/**
+	 * Get the estimated number of words tried during the search (nodes in the search tree). This is a measure of the
+	 * cost of the search, for comparing puzzles.
+	 *
+	 * @return The estimated number of nodes.
+	 */
+	public double getEstimatedNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Get the estimated number of words which can be tried at each step of the search, on average. This is the
+	 * geometric mean of the branching at each level of the search tree.
+	 *
+	 * @return The branch factor, or zero if there are no words to find.
+	 */
+	public double getBranchFactor() {
+		return candidates.length == 0 ? 0 : Math.pow(leaves, 1.0 / candidates.length);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("candidates=%s nodes=%.3g branchFactor=%.3g",
+				Arrays.toString(candidates), nodes, getBranchFactor());
+	}
+}
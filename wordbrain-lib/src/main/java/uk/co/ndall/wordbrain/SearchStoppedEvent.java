@@ -0,0 +1,46 @@
+package uk.co.ndall.wordbrain;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a search being cancelled because it exceeded a limit, committed by the thread which found
+ * the limit exceeded. Only create one if {@link uk.co.ndall.wordgames.FlightRecorderSupport#isAvailable} is true.
+ */
+@Name("uk.co.ndall.wordbrain.SearchStopped")
+@Label("Search Stopped")
+@Category("WordBrain")
+@Description("A search cancelled because it exceeded a limit")
+@StackTrace(false)
+final class SearchStoppedEvent extends Event {
+
+	@Label("Reason")
+	String reason;
+
+	@Label("Words Tried")
+	long nodes;
+
+	@Label("Solutions")
+	long solutions;
+
+	/**
+	 * Record an event, if it is enabled.
+	 *
+	 * @param reason    The limit exceeded.
+	 * @param nodes     The number of words tried so far.
+	 * @param solutions The number of solutions kept so far.
+	 */
+	static void record(SolveResult.Status reason, long nodes, long solutions) {
+		SearchStoppedEvent event = new SearchStoppedEvent();
+		if (event.shouldCommit()) {
+			event.reason = reason.name();
+			event.nodes = nodes;
+			event.solutions = solutions;
+			event.commit();
+		}
+	}
+}
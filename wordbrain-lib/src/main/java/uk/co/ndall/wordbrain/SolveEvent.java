@@ -0,0 +1,69 @@
+package uk.co.ndall.wordbrain;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for a solve or count, from when it starts to when its search finishes. Only create one if
+ * {@link uk.co.ndall.wordgames.FlightRecorderSupport#isAvailable} is true.
+ */
+@Name("uk.co.ndall.wordbrain.Solve")
+@Label("Solve")
+@Category("WordBrain")
+@Description("A WordBrain puzzle being solved or its solutions counted")
+@StackTrace(false)
+final class SolveEvent extends Event {
+
+	@Label("Operation")
+	String operation;
+
+	@Label("Dictionary")
+	String dictionaryId;
+
+	@Label("Board Width")
+	int boardWidth;
+
+	@Label("Board Height")
+	int boardHeight;
+
+	@Label("Letters")
+	int letters;
+
+	@Label("Word Lengths")
+	String wordLengths;
+
+	@Label("Word Order")
+	String wordOrder;
+
+	@Label("Cached")
+	@Description("Whether the result was taken from the solver's result cache")
+	boolean cached;
+
+	@Label("Status")
+	@Description("Whether the search finished, or which limit stopped it")
+	String status;
+
+	@Label("Solutions")
+	long solutions;
+
+	@Label("Words Tried")
+	long nodes;
+
+	/**
+	 * Create an event and start timing it, if it is enabled.
+	 *
+	 * @return The event, or null if it isn't enabled.
+	 */
+	static SolveEvent start() {
+		SolveEvent event = new SolveEvent();
+		if (!event.isEnabled()) {
+			return null;
+		}
+		event.begin();
+		return event;
+	}
+}
@@ -0,0 +1,111 @@
+package uk.co.ndall.wordbrain;
+
+import uk.co.ndall.wordgames.FlightRecorderSupport;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Measures a single solve or count, from its start to the end of its search, and reports it to the solver's metrics
+ * and, while a flight recording is running, as a SolveEvent (see {@link WordBrainSolver#setMetrics}).
+ */
+final class SolveMonitor {
+
+	// The metrics to report the solve to.
+	private final SolverMetrics metrics;
+
+	// The kind of request.
+	private final SolverMetrics.Operation operation;
+
+	// The board being solved.
+	private final BoardIndex board;
+
+	// The options controlling the search.
+	private final SolveOptions options;
+
+	// The lengths of words to find, one per slot.
+	private final int[] wordLengths;
+
+	// System.nanoTime() when the solve started.
+	private final long start = System.nanoTime();
+
+	// The flight recorder event, or null if it isn't being recorded.
+	private final SolveEvent event;
+
+	// The words tried and time spent at each depth, or null if search depth events aren't being recorded.
+	private final DepthTimings depthTimings;
+
+	/**
+	 * Constructor. The solve starts now.
+	 *
+	 * @param metrics     The metrics to report the solve to.
+	 * @param operation   The kind of request.
+	 * @param board       The board being solved.
+	 * @param options     The options controlling the search.
+	 * @param wordLengths The lengths of words to find, one per slot.
+	 */
+	SolveMonitor(
+			SolverMetrics metrics,
+			SolverMetrics.Operation operation,
+			BoardIndex board,
+			SolveOptions options,
+			int[] wordLengths) {
+
+		this.metrics = metrics;
+		this.operation = operation;
+		this.board = board;
+		this.options = options;
+		this.wordLengths = wordLengths;
+		boolean recording = FlightRecorderSupport.isAvailable();
+		this.event = recording ? SolveEvent.start() : null;
+		this.depthTimings = recording && operation == SolverMetrics.Operation.SOLVE && SearchDepthEvent.isRecorded()
+				? new DepthTimings(wordLengths.length)
+				: null;
+	}
+
+	/**
+	 * Get the words tried and time spent at each depth of the search, to be counted into by each task.
+	 *
+	 * @return The timings, or null if they aren't being recorded.
+	 */
+	DepthTimings getDepthTimings() {
+		return depthTimings;
+	}
+
+	/**
+	 * Report the end of the solve.
+	 *
+	 * @param cached    True if the result was taken from the solver's result cache.
+	 * @param status    Whether the search finished, or which limit stopped it.
+	 * @param solutions The number of solutions found or counted.
+	 * @param nodes     The number of words tried.
+	 */
+	void finished(boolean cached, SolveResult.Status status, long solutions, long nodes) {
+		long elapsed = System.nanoTime() - start;
+		metrics.solveFinished(operation, cached, status, solutions, nodes, Duration.ofNanos(elapsed));
+
+		if (depthTimings != null && !cached) {
+			depthTimings.commit();
+		}
+		if (event != null) {
+			event.end();
+			if (event.shouldCommit()) {
+				event.operation = operation.name();
+				event.dictionaryId = options.getDictionaryId();
+				event.boardWidth = board.getWidth();
+				event.boardHeight = board.getHeight();
+				event.letters = board.getOccupiedCells().length;
+				event.wordLengths = Arrays.stream(wordLengths)
+						.mapToObj(String::valueOf)
+						.collect(Collectors.joining(","));
+				event.wordOrder = options.getWordOrder().name();
+				event.cached = cached;
+				event.status = status.name();
+				event.solutions = solutions;
+				event.nodes = nodes;
+				event.commit();
+			}
+		}
+	}
+}
@@ -0,0 +1,320 @@
+package uk.co.ndall.wordbrain;
+
+import java.time.Duration;
+
+/**
+ * Options controlling how WordBrainSolver searches for solutions. Options objects never change; each "with" method
+ * returns a modified copy. Start from {@link #DEFAULT}.
+ */
+public final class SolveOptions {
+
+	/**
+	 * The order in which the words of a solution may be found.
+	 */
+	public enum WordOrder {
+
+		/**
+		 * Words must be found in the order their lengths were given (the normal WordBrain rules).
+		 */
+		FIXED,
+
+		/**
+		 * Words may be found in any order. At each step, every remaining length is tried in the order the lengths were
+		 * given.
+		 */
+		UNORDERED,
+
+		/**
+		 * Words may be found in any order. At each step, the remaining lengths are tried in order of the number of
+		 * words of that length on the current board, fewest first, so the tightest slot is explored first.
+		 * <p>
+		 * This only changes the order solutions are found in, not how much is searched: a length with no words on the
+		 * current board may still have some once other words are removed, so every remaining length is tried at every
+		 * step, as with UNORDERED. It only helps when a time, node or solution limit stops the search early, since the
+		 * solutions through the tightest slots are found first.
+		 */
+		MOST_CONSTRAINED_FIRST
+	}
+
+	/**
+	 * The default options: the solver's default dictionary, and words found in the order given.
+	 */
+	public static final SolveOptions DEFAULT = new SolveOptions();
+
+	/**
+	 * The smallest budget for off-heap storage.
+	 */
+	public static final long MIN_OFF_HEAP_BYTES = 64 * 1024;
+
+	// Id of the registry dictionary to use, or null for the solver's default dictionary.
+	private String dictionaryId = null;
+
+	// The order in which words may be found.
+	private WordOrder wordOrder = WordOrder.FIXED;
+
+	// Words at least this long are searched for from both ends (Integer.MAX_VALUE to disable).
+	private int bidirectionalMinLength = Integer.MAX_VALUE;
+
+	// How long the search may run for, or null for no limit.
+	private Duration timeLimit = null;
+
+	// The number of words the search may try.
+	private long nodeLimit = Long.MAX_VALUE;
+
+	// The number of solutions the search may keep.
+	private long solutionLimit = Long.MAX_VALUE;
+
+	// Most bytes of direct memory the search may use for its memo and solutions, or 0 to keep them on the heap.
+	private long offHeapBytes = 0;
+
+	// Whether to keep only one solution for each sequence of words.
+	private boolean distinctWords = false;
+
+	/**
+	 * Constructor for the default options.
+	 */
+	private SolveOptions() {
+	}
+
+	/**
+	 * Make a copy of these options, to be modified by a "with" method.
+	 *
+	 * @return The copy.
+	 */
+	private SolveOptions copy() {
+		SolveOptions copy = new SolveOptions();
+		copy.dictionaryId = dictionaryId;
+		copy.wordOrder = wordOrder;
+		copy.bidirectionalMinLength = bidirectionalMinLength;
+		copy.timeLimit = timeLimit;
+		copy.nodeLimit = nodeLimit;
+		copy.solutionLimit = solutionLimit;
+		copy.offHeapBytes = offHeapBytes;
+		copy.distinctWords = distinctWords;
+		return copy;
+	}
+
+	/**
+	 * Get the id of the registry dictionary to use.
+	 *
+	 * @return The dictionary id, or null to use the solver's default dictionary.
+	 */
+	public String getDictionaryId() {
+		return dictionaryId;
+	}
+
+	/**
+	 * Choose a dictionary from the solver's registry.
+	 *
+	 * @param dictionaryId The dictionary id, or null to use the solver's default dictionary.
+	 * @return Copy of these options using the dictionary.
+	 */
+	public SolveOptions withDictionaryId(String dictionaryId) {
+		SolveOptions copy = copy();
+		copy.dictionaryId = dictionaryId;
+		return copy;
+	}
+
+	/**
+	 * Get the order in which words may be found.
+	 *
+	 * @return The word order.
+	 */
+	public WordOrder getWordOrder() {
+		return wordOrder;
+	}
+
+	/**
+	 * Choose the order in which words may be found. Whatever the order, the words in each solution are listed in the
+	 * order their lengths were given; use {@link FoundWord#getStep()} to find the order they were removed in.
+	 *
+	 * @param wordOrder The word order.
+	 * @return Copy of these options using the word order.
+	 */
+	public SolveOptions withWordOrder(WordOrder wordOrder) {
+		SolveOptions copy = copy();
+		copy.wordOrder = wordOrder;
+		return copy;
+	}
+
+	/**
+	 * Get the length from which words are searched for from both ends.
+	 *
+	 * @return The minimum length, or Integer.MAX_VALUE if words are only searched for from their first letter.
+	 */
+	public int getBidirectionalMinLength() {
+		return bidirectionalMinLength;
+	}
+
+	/**
+	 * Search for long words from both ends. Normally words are found by growing prefixes from every starting
+	 * position, which for long words means exploring many prefixes that can never be completed on the board. With this
+	 * option, the second half of each long word is first found by growing backwards from every position using a
+	 * reversed dictionary, and then the first half is grown forwards until it meets one of these suffixes. The result
+	 * is the same, but for long words on big boards far fewer dead ends are explored.
+	 *
+	 * @param minLength Words at least this long are searched for from both ends (Integer.MAX_VALUE to disable). Eight
+	 *                  is a reasonable choice.
+	 * @return Copy of these options using bidirectional search.
+	 * @throws IllegalArgumentException If minLength is less than 2.
+	 */
+	public SolveOptions withBidirectionalSearch(int minLength) throws IllegalArgumentException {
+		if (minLength < 2) {
+			throw new IllegalArgumentException("Only words of at least two letters can be searched for from both ends");
+		}
+		SolveOptions copy = copy();
+		copy.bidirectionalMinLength = minLength;
+		return copy;
+	}
+
+	/**
+	 * Get how long the search may run for.
+	 *
+	 * @return The time limit, or null for no limit.
+	 */
+	public Duration getTimeLimit() {
+		return timeLimit;
+	}
+
+	/**
+	 * Limit how long the search may run for, from when it starts. The limit is checked by every thread working on the
+	 * search every few hundred words tried, and also while finding the words on a board (before the first word is
+	 * tried, and after each word is removed), so it may be overrun slightly. When the limit passes,
+	 * the search stops and returns the solutions found so far; use {@link WordBrainSolver#solveWithLimits} to find out
+	 * whether it finished.
+	 *
+	 * @param timeLimit The time limit, or null for no limit.
+	 * @return Copy of these options using the time limit.
+	 * @throws IllegalArgumentException If the time limit is negative.
+	 */
+	public SolveOptions withTimeLimit(Duration timeLimit) throws IllegalArgumentException {
+		if (timeLimit != null && timeLimit.isNegative()) {
+			throw new IllegalArgumentException("Time limit must not be negative");
+		}
+		SolveOptions copy = copy();
+		copy.timeLimit = timeLimit;
+		return copy;
+	}
+
+	/**
+	 * Get the number of words the search may try.
+	 *
+	 * @return The node limit, or Long.MAX_VALUE for no limit.
+	 */
+	public long getNodeLimit() {
+		return nodeLimit;
+	}
+
+	/**
+	 * Limit the number of words the search may try (nodes in the search tree), as a measure of work which doesn't
+	 * depend on the machine. The search stops soon after the limit is reached, and returns the solutions found so far.
+	 *
+	 * @param nodeLimit The node limit, or Long.MAX_VALUE for no limit.
+	 * @return Copy of these options using the node limit.
+	 * @throws IllegalArgumentException If the limit is not positive.
+	 */
+	public SolveOptions withNodeLimit(long nodeLimit) throws IllegalArgumentException {
+		if (nodeLimit <= 0) {
+			throw new IllegalArgumentException("Node limit must be positive");
+		}
+		SolveOptions copy = copy();
+		copy.nodeLimit = nodeLimit;
+		return copy;
+	}
+
+	/**
+	 * Get the number of solutions the search may keep.
+	 *
+	 * @return The solution limit, or Long.MAX_VALUE for no limit.
+	 */
+	public long getSolutionLimit() {
+		return solutionLimit;
+	}
+
+	/**
+	 * Limit the number of solutions the search may keep, bounding the memory they use. Reaching the limit doesn't stop
+	 * the search: it carries on until it finds one more solution, which is dropped, and then stops and returns the
+	 * limit's number of solutions, reporting SOLUTION_LIMIT_EXCEEDED. A search which finds exactly the limit's number
+	 * of solutions finishes, and is complete. So to check that there are at most N solutions, use a limit of N.
+	 * <p>
+	 * There is no limit on the heap memory a search uses as a whole. Besides the solutions, it holds the paths of the
+	 * words on each board layout along the current branch of the search, and (when only distinct words are kept) a
+	 * fingerprint of each solution; these are not bounded by any option. The solution limit bounds the biggest part
+	 * for searches with many solutions, and {@link #withOffHeapStorage} keeps solutions out of the heap until its
+	 * budget of direct memory runs out.
+	 *
+	 * @param solutionLimit The solution limit, or Long.MAX_VALUE for no limit.
+	 * @return Copy of these options using the solution limit.
+	 * @throws IllegalArgumentException If the limit is not positive.
+	 */
+	public SolveOptions withSolutionLimit(long solutionLimit) throws IllegalArgumentException {
+		if (solutionLimit <= 0) {
+			throw new IllegalArgumentException("Solution limit must be positive");
+		}
+		SolveOptions copy = copy();
+		copy.solutionLimit = solutionLimit;
+		return copy;
+	}
+
+	/**
+	 * Get the most bytes of direct memory the search may use for its memo and solutions.
+	 *
+	 * @return The budget, or 0 if they are kept on the heap.
+	 */
+	public long getOffHeapBytes() {
+		return offHeapBytes;
+	}
+
+	/**
+	 * Keep the search's working storage in direct memory, outside the garbage collected heap, within a fixed budget.
+	 * This suits large searches on machines where the heap is capped, since the storage doesn't add to the work the
+	 * garbage collector does.
+	 * <p>
+	 * When counting solutions, the memo of counts for board layouts already seen becomes a table which starts small and
+	 * doubles as it fills, up to the budget (see OffHeapMemo). When it can't grow any more, new layouts replace those
+	 * with the smallest counts, so the count is the same but may take longer.
+	 * <p>
+	 * When solving, the solutions found by each search task are packed into buffers taken from the budget until it
+	 * runs out; after that, solutions are kept on the heap as usual. Packed solutions stay packed in a SolveResult, and
+	 * are unpacked each time they are read; when they are streamed, each task's buffers are reused by later tasks once
+	 * its solutions have been passed on. Direct memory is also limited by the JVM's -XX:MaxDirectMemorySize.
+	 *
+	 * @param maxBytes The budget in bytes, or 0 to keep the memo and solutions on the heap.
+	 * @return Copy of these options using the budget.
+	 * @throws IllegalArgumentException If the budget is not 0 and is less than MIN_OFF_HEAP_BYTES.
+	 */
+	public SolveOptions withOffHeapStorage(long maxBytes) throws IllegalArgumentException {
+		if (maxBytes != 0 && maxBytes < MIN_OFF_HEAP_BYTES) {
+			throw new IllegalArgumentException("Off-heap budget must be 0 or at least " + MIN_OFF_HEAP_BYTES + " bytes");
+		}
+		SolveOptions copy = copy();
+		copy.offHeapBytes = maxBytes;
+		return copy;
+	}
+
+	/**
+	 * Check whether the search keeps only one solution for each sequence of words.
+	 *
+	 * @return True if solutions making the same words as one already found are dropped.
+	 */
+	public boolean isDistinctWords() {
+		return distinctWords;
+	}
+
+	/**
+	 * Keep only one solution for each sequence of words, dropping solutions which make the same words in the same slots
+	 * as one already found, but from different tiles or in a different order. Which of them is kept depends on which
+	 * thread finds it first. Duplicates are dropped by the search threads as they are found (see FingerprintSet), and
+	 * don't count towards the solution limit. A fingerprint of each distinct solution is kept in memory until the
+	 * search finishes (8 to 16 bytes each), however many there are. Counting solutions counts every solution, whatever
+	 * this option.
+	 *
+	 * @param distinctWords True to drop solutions whose words have already been found.
+	 * @return Copy of these options with distinct words turned on or off.
+	 */
+	public SolveOptions withDistinctWords(boolean distinctWords) {
+		SolveOptions copy = copy();
+		copy.distinctWords = distinctWords;
+		return copy;
+	}
+}
@@ -0,0 +1,96 @@
+package uk.co.ndall.wordbrain;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The solutions found by a search with limits (see {@link SolveOptions#withTimeLimit}), and whether it finished.
+ */
+public final class SolveResult {
+
+	/**
+	 * Whether a search finished, or why it stopped early.
+	 */
+	public enum Status {
+
+		/**
+		 * The search finished: every solution was found.
+		 */
+		COMPLETE,
+
+		/**
+		 * The search stopped because its time limit passed.
+		 */
+		TIME_LIMIT_EXCEEDED,
+
+		/**
+		 * The search stopped because it tried as many words as it was allowed to.
+		 */
+		NODE_LIMIT_EXCEEDED,
+
+		/**
+		 * The search stopped because it found one more solution than it was allowed to keep.
+		 */
+		SOLUTION_LIMIT_EXCEEDED
+	}
+
+	// The solutions found.
+	private final List<List<FoundWord>> solutions;
+
+	// Whether the search finished.
+	private final Status status;
+
+	// The number of words tried.
+	private final long nodes;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param solutions The solutions found.
+	 * @param status    Whether the search finished, or why it stopped early.
+	 * @param nodes     The number of words tried.
+	 */
+	SolveResult(List<List<FoundWord>> solutions, Status status, long nodes) {
+		this.solutions = Collections.unmodifiableList(solutions);
+		this.status = status;
+		this.nodes = nodes;
+	}
+
+	/**
+	 * Get the solutions found. If the search stopped early, these are the solutions found before it stopped, in search
+	 * order within each part of the search but with parts of the search missing. Solutions kept in direct memory (see
+	 * {@link SolveOptions#withOffHeapStorage}) are unpacked each time they are read.
+	 *
+	 * @return Unmodifiable list of solutions, each represented by a list of words in the same order as the word lengths.
+	 */
+	public List<List<FoundWord>> getSolutions() {
+		return solutions;
+	}
+
+	/**
+	 * Get whether the search finished, or why it stopped early.
+	 *
+	 * @return The status.
+	 */
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Check whether the search finished, so every solution was found.
+	 *
+	 * @return True if the status is COMPLETE.
+	 */
+	public boolean isComplete() {
+		return status == Status.COMPLETE;
+	}
+
+	/**
+	 * Get the number of words tried during the search (nodes in the search tree).
+	 *
+	 * @return The number of words tried, approximately if the search stopped early.
+	 */
+	public long getNodesVisited() {
+		return nodes;
+	}
+}
@@ -0,0 +1,57 @@
+package uk.co.ndall.wordbrain;
+
+import java.time.Duration;
+
+/**
+ * Receives a measurement of each solve made by a WordBrainSolver (see {@link WordBrainSolver#setMetrics}), to be
+ * exported to a monitoring system. {@link SolverStatistics} keeps totals and a latency histogram which can be written
+ * to a file or standard out.
+ * <p>
+ * Measurements are passed on the thread which finished the search, and several may be passed at once, so
+ * implementations must be thread safe, and quick enough not to hold up the search threads.
+ */
+@FunctionalInterface
+public interface SolverMetrics {
+
+	/**
+	 * Metrics which ignore every measurement.
+	 */
+	SolverMetrics NONE = (operation, cached, status, solutions, nodes, elapsed) -> {
+	};
+
+	/**
+	 * The kind of request measured.
+	 */
+	enum Operation {
+
+		/**
+		 * Finding the solutions, with solve, solveWithLimits or solveBatch.
+		 */
+		SOLVE,
+
+		/**
+		 * Counting the solutions, with countSolutions.
+		 */
+		COUNT
+	}
+
+	/**
+	 * Record a finished solve. A solve made with {@link WordBrainSolver#solve} finishes when its search has found every
+	 * solution, which may be before they have all been read from the stream; if the stream is abandoned before then,
+	 * it isn't recorded.
+	 *
+	 * @param operation The kind of request.
+	 * @param cached    True if the result was taken from the solver's result cache, rather than searched for.
+	 * @param status    Whether the search finished, or which limit stopped it.
+	 * @param solutions The number of solutions found or counted.
+	 * @param nodes     The number of words tried (0 for a count, or a cached result).
+	 * @param elapsed   The time from the request to the end of the search.
+	 */
+	void solveFinished(
+			Operation operation,
+			boolean cached,
+			SolveResult.Status status,
+			long solutions,
+			long nodes,
+			Duration elapsed);
+}
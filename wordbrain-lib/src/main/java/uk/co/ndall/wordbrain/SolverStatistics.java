@@ -0,0 +1,184 @@
+package uk.co.ndall.wordbrain;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics keeping totals of the solves made by a solver, and a histogram of their latency, which can be exported in
+ * the Prometheus text format: to standard out, or to a file read by a monitoring agent (e.g. the node exporter's
+ * textfile collector). The exported metrics are:
+ * <ul>
+ * <li>wordbrain_solves_total: solves and counts, by operation, whether cached, and status.</li>
+ * <li>wordbrain_solutions_total and wordbrain_nodes_total: the solutions found and words tried by searches.</li>
+ * <li>wordbrain_search_seconds_total: the time spent searching.</li>
+ * <li>wordbrain_solutions_per_second: the solutions found per second of searching.</li>
+ * <li>wordbrain_solve_latency_seconds: a histogram of the time taken by every solve and count, cached or not.</li>
+ * </ul>
+ * The totals are kept from when this object is created, and are safe to update from many threads at once.
+ */
+public final class SolverStatistics implements SolverMetrics {
+
+	// Upper bounds of the latency histogram's buckets, in milliseconds. A final bucket holds slower solves.
+	private static final long[] LATENCY_BOUNDS_MILLIS =
+			{1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10_000, 30_000, 60_000};
+
+	// Number of solves and counts, by operation, then whether cached, then status.
+	private final Map<Operation, LongAdder[][]> solves = new EnumMap<>(Operation.class);
+
+	// Number of solutions found by searches.
+	private final LongAdder solutions = new LongAdder();
+
+	// Number of words tried by searches.
+	private final LongAdder nodes = new LongAdder();
+
+	// Time spent searching, in nanoseconds.
+	private final LongAdder searchNanos = new LongAdder();
+
+	// Number of solves in each latency bucket (not cumulative).
+	private final AtomicLongArray latencyBuckets = new AtomicLongArray(LATENCY_BOUNDS_MILLIS.length + 1);
+
+	// Total latency, in nanoseconds.
+	private final LongAdder latencyNanos = new LongAdder();
+
+	/**
+	 * Constructor.
+	 */
+	public SolverStatistics() {
+		for (Operation operation : Operation.values()) {
+			LongAdder[][] byCached = new LongAdder[2][SolveResult.Status.values().length];
+			for (LongAdder[] byStatus : byCached) {
+				for (int i = 0; i < byStatus.length; i++) {
+					byStatus[i] = new LongAdder();
+				}
+			}
+			solves.put(operation, byCached);
+		}
+	}
+
+	@Override
+	public void solveFinished(
+			Operation operation,
+			boolean cached,
+			SolveResult.Status status,
+			long solutions,
+			long nodes,
+			Duration elapsed) {
+
+		long nanos = elapsed.toNanos();
+		solves.get(operation)[cached ? 1 : 0][status.ordinal()].increment();
+		if (!cached) {
+			this.solutions.add(solutions);
+			this.nodes.add(nodes);
+			searchNanos.add(nanos);
+		}
+
+		int bucket = 0;
+		while (bucket < LATENCY_BOUNDS_MILLIS.length && nanos > LATENCY_BOUNDS_MILLIS[bucket] * 1_000_000) {
+			bucket++;
+		}
+		latencyBuckets.incrementAndGet(bucket);
+		latencyNanos.add(nanos);
+	}
+
+	/**
+	 * Write the metrics in the Prometheus text format.
+	 *
+	 * @param out The writer. Not flushed or closed.
+	 * @throws IOException If the metrics could not be written.
+	 */
+	public void writeTo(Appendable out) throws IOException {
+		out.append("# HELP wordbrain_solves_total Solves and counts finished.\n");
+		out.append("# TYPE wordbrain_solves_total counter\n");
+		for (Map.Entry<Operation, LongAdder[][]> entry : solves.entrySet()) {
+			for (int cached = 0; cached < 2; cached++) {
+				for (SolveResult.Status status : SolveResult.Status.values()) {
+					out.append(String.format(Locale.ROOT,
+							"wordbrain_solves_total{operation=\"%s\",cached=\"%b\",status=\"%s\"} %d\n",
+							entry.getKey().name().toLowerCase(Locale.ROOT),
+							cached == 1,
+							status.name().toLowerCase(Locale.ROOT),
+							entry.getValue()[cached][status.ordinal()].sum()));
+				}
+			}
+		}
+
+		double searchSeconds = searchNanos.sum() / 1e9;
+		writeMetric(out, "wordbrain_solutions_total", "counter", "Solutions found by searches.", solutions.sum());
+		writeMetric(out, "wordbrain_nodes_total", "counter", "Words tried by searches.", nodes.sum());
+		writeMetric(out, "wordbrain_search_seconds_total", "counter", "Time spent searching.", searchSeconds);
+		writeMetric(out, "wordbrain_solutions_per_second", "gauge", "Solutions found per second of searching.",
+				searchSeconds > 0 ? solutions.sum() / searchSeconds : 0);
+
+		out.append("# HELP wordbrain_solve_latency_seconds Time taken by each solve and count.\n");
+		out.append("# TYPE wordbrain_solve_latency_seconds histogram\n");
+		long cumulative = 0;
+		for (int bucket = 0; bucket <= LATENCY_BOUNDS_MILLIS.length; bucket++) {
+			cumulative += latencyBuckets.get(bucket);
+			String bound = bucket < LATENCY_BOUNDS_MILLIS.length
+					? String.valueOf(LATENCY_BOUNDS_MILLIS[bucket] / 1000.0)
+					: "+Inf";
+			out.append(String.format(Locale.ROOT,
+					"wordbrain_solve_latency_seconds_bucket{le=\"%s\"} %d\n", bound, cumulative));
+		}
+		out.append(String.format(Locale.ROOT, "wordbrain_solve_latency_seconds_sum %s\n", latencyNanos.sum() / 1e9));
+		out.append(String.format(Locale.ROOT, "wordbrain_solve_latency_seconds_count %d\n", cumulative));
+	}
+
+	/**
+	 * Write the metrics in the Prometheus text format to a file, replacing it in one step so that a reader never sees
+	 * it half written.
+	 *
+	 * @param path The file.
+	 * @throws IOException If the file could not be written.
+	 */
+	public void writeTo(Path path) throws IOException {
+		Path absolute = path.toAbsolutePath();
+		Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+		try {
+			try (Writer out = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+				writeTo(out);
+			}
+			Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
+
+	/**
+	 * Write a metric with a single value.
+	 *
+	 * @param out   The writer.
+	 * @param name  The name of the metric.
+	 * @param type  The Prometheus type of the metric.
+	 * @param help  Description of the metric.
+	 * @param value The value.
+	 * @throws IOException If the metric could not be written.
+	 */
+	private static void writeMetric(Appendable out, String name, String type, String help, Number value)
+			throws IOException {
+		out.append(String.format(Locale.ROOT, "# HELP %s %s\n# TYPE %s %s\n%s %s\n",
+				name, help, name, type, name, value));
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder text = new StringBuilder();
+		try {
+			writeTo(text);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return text.toString();
+	}
+}
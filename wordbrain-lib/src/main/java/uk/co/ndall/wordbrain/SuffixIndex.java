@@ -0,0 +1,242 @@
+package uk.co.ndall.wordbrain;
+
+import uk.co.ndall.wordgames.Alphabet;
+import uk.co.ndall.wordgames.PackedTrie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Index of the paths on a board which could form the second half of a word of a certain length, used to find long
+ * words by searching from both ends.
+ * <p>
+ * The second half of each word is found by growing paths backwards from every cell, through a reversed dictionary, so
+ * only paths which are the end of some word of the right length are kept. Words are then found by growing the first
+ * half forwards from a starting cell, and joining it to each indexed second half which starts next to where the first
+ * half ends. Both halves are only half the length of the word, so far fewer dead ends are explored than when growing
+ * the whole word from its first letter.
+ * <p>
+ * An index describes one board layout, and must be rebuilt whenever letters are removed. Once built it is never
+ * modified, so can be shared between threads searching copies of the same layout.
+ */
+final class SuffixIndex {
+
+	// The length of the words.
+	private final int length;
+
+	// The number of letters in the first half of each word.
+	private final int prefixLength;
+
+	// The number of letters in the second half of each word.
+	private final int suffixLength;
+
+	// For each cell, the cells of each second half starting there, in word order.
+	private final List<int[]>[] suffixes;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param board    The board layout.
+	 * @param reversed The dictionary, with every word reversed.
+	 * @param length   The length of the words (at least 2).
+	 * @param meter    Meter to step for each cell indexed, or null for no limits. If it stops the search, the index
+	 *                 only holds the second halves found so far.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	SuffixIndex(MutableBoard board, PackedTrie reversed, int length, Budget.Meter meter) {
+		this.length = length;
+		this.prefixLength = (length + 1) / 2;
+		this.suffixLength = length - prefixLength;
+		this.suffixes = new List[board.getSize()];
+
+		int[] path = new int[suffixLength];
+		boolean[] used = new boolean[board.getSize()];
+		for (int cell = 0; cell < board.getSize(); cell++) {
+			if (meter != null && !meter.step()) {
+				break;
+			}
+			int node = child(board, reversed, PackedTrie.ROOT, cell);
+			if (node != PackedTrie.NO_NODE && reversed.hasItemAtDistance(node, length - 1)) {
+				// The second half is grown from its last letter, so fill the path from the end.
+				path[suffixLength - 1] = cell;
+				used[cell] = true;
+				indexSuffixes(board, reversed, path, used, 1, node);
+				used[cell] = false;
+			}
+		}
+	}
+
+	/**
+	 * Recursively find the second halves of words, growing backwards letter by letter, and index each one by its
+	 * first cell.
+	 *
+	 * @param board    The board layout.
+	 * @param reversed The dictionary, with every word reversed.
+	 * @param path     The cells of the second half, filled from the end.
+	 * @param used     Flags marking the cells already used.
+	 * @param depth    The number of letters found so far.
+	 * @param node     The node of the reversed dictionary representing the letters found so far.
+	 */
+	private void indexSuffixes(
+			MutableBoard board,
+			PackedTrie reversed,
+			int[] path,
+			boolean[] used,
+			int depth,
+			int node) {
+
+		// Base case: a complete second half.
+		if (depth == suffixLength) {
+			int first = path[0];
+			if (suffixes[first] == null) {
+				suffixes[first] = new ArrayList<>();
+			}
+			suffixes[first].add(path.clone());
+			return;
+		}
+
+		for (int neighbour : board.getNeighbours(path[suffixLength - depth])) {
+			if (used[neighbour]) {
+				continue;
+			}
+			int child = child(board, reversed, node, neighbour);
+			if (child == PackedTrie.NO_NODE || !reversed.hasItemAtDistance(child, length - depth - 1)) {
+				continue;
+			}
+
+			path[suffixLength - depth - 1] = neighbour;
+			used[neighbour] = true;
+			indexSuffixes(board, reversed, path, used, depth + 1, child);
+			used[neighbour] = false;
+		}
+	}
+
+	/**
+	 * Get the length of the words this index finds.
+	 *
+	 * @return The length.
+	 */
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * Find the paths of all the words starting at a certain position on the board.
+	 *
+	 * @param board The board layout this index was built for.
+	 * @param dict  The dictionary.
+	 * @param cell  The index of the starting cell for the words.
+	 * @return List of paths starting at this position, each holding the cells of a word in order.
+	 */
+	List<int[]> pathsAt(MutableBoard board, PackedTrie dict, int cell) {
+		List<int[]> finds = new ArrayList<>();
+		int node = child(board, dict, PackedTrie.ROOT, cell);
+		if (node == PackedTrie.NO_NODE || !dict.hasItemAtDistance(node, length - 1)) {
+			return finds;
+		}
+
+		int[] path = new int[length];
+		boolean[] used = new boolean[board.getSize()];
+		path[0] = cell;
+		used[cell] = true;
+		growPrefixes(board, dict, path, used, 1, node, finds);
+		return finds;
+	}
+
+	/**
+	 * Recursively grow the first halves of words forwards, letter by letter, and join each complete first half to the
+	 * indexed second halves.
+	 *
+	 * @param board The board layout.
+	 * @param dict  The dictionary.
+	 * @param path  The cells of the word so far, followed by space for the remaining letters.
+	 * @param used  Flags marking the cells already used.
+	 * @param depth The number of letters found so far.
+	 * @param node  The node of the dictionary representing the letters found so far.
+	 * @param finds List to add the paths of found words to.
+	 */
+	private void growPrefixes(
+			MutableBoard board,
+			PackedTrie dict,
+			int[] path,
+			boolean[] used,
+			int depth,
+			int node,
+			List<int[]> finds) {
+
+		// Base case: a complete first half.
+		if (depth == prefixLength) {
+			joinSuffixes(board, dict, path, used, node, finds);
+			return;
+		}
+
+		for (int neighbour : board.getNeighbours(path[depth - 1])) {
+			if (used[neighbour]) {
+				continue;
+			}
+			int child = child(board, dict, node, neighbour);
+			if (child == PackedTrie.NO_NODE || !dict.hasItemAtDistance(child, length - depth - 1)) {
+				continue;
+			}
+
+			path[depth] = neighbour;
+			used[neighbour] = true;
+			growPrefixes(board, dict, path, used, depth + 1, child, finds);
+			used[neighbour] = false;
+		}
+	}
+
+	/**
+	 * Join a complete first half to each indexed second half starting next to it, keeping the words that are in the
+	 * dictionary and don't use any cell twice.
+	 *
+	 * @param board The board layout.
+	 * @param dict  The dictionary.
+	 * @param path  The cells of the first half, followed by space for the second half.
+	 * @param used  Flags marking the cells used by the first half.
+	 * @param node  The node of the dictionary representing the first half.
+	 * @param finds List to add the paths of found words to.
+	 */
+	private void joinSuffixes(
+			MutableBoard board,
+			PackedTrie dict,
+			int[] path,
+			boolean[] used,
+			int node,
+			List<int[]> finds) {
+
+		for (int neighbour : board.getNeighbours(path[prefixLength - 1])) {
+			if (used[neighbour] || suffixes[neighbour] == null) {
+				continue;
+			}
+
+			for (int[] suffix : suffixes[neighbour]) {
+				int wordNode = node;
+				for (int i = 0; i < suffixLength && wordNode != PackedTrie.NO_NODE; i++) {
+					wordNode = used[suffix[i]] ? PackedTrie.NO_NODE : child(board, dict, wordNode, suffix[i]);
+				}
+				if (wordNode == PackedTrie.NO_NODE || !dict.isItem(wordNode)) {
+					continue;
+				}
+
+				System.arraycopy(suffix, 0, path, prefixLength, suffixLength);
+				finds.add(path.clone());
+			}
+		}
+	}
+
+	/**
+	 * Follow the branch of a dictionary for the letter in a cell.
+	 *
+	 * @param board The board layout.
+	 * @param dict  The dictionary.
+	 * @param node  The dictionary node.
+	 * @param cell  The index of the cell.
+	 * @return The child node, or NO_NODE if the cell is empty or there is no such branch.
+	 */
+	private static int child(MutableBoard board, PackedTrie dict, int node, int cell) {
+		char letter = board.getLetter(cell);
+		int symbol = letter == BoardIndex.EMPTY ? Alphabet.NONE : dict.getAlphabet().getSymbol(letter);
+		return symbol == Alphabet.NONE ? PackedTrie.NO_NODE : dict.getChild(node, symbol);
+	}
+}
@@ -1,28 +1,73 @@
 package uk.co.ndall.wordbrain;
 
-import com.google.common.collect.Iterables;
-import uk.co.ndall.wordgames.Coords2D;
-import uk.co.ndall.wordgames.TrieNode;
+import uk.co.ndall.wordgames.DictionaryRegistry;
 import uk.co.ndall.wordgames.WordTrie;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
  * Class used to find solutions to WordBrain puzzles.
+ * <p>
+ * The dictionary can be replaced while the solver is in use, without blocking. Each solve uses the dictionary that was
+ * current when it started, so solves already in progress are unaffected. Dictionaries are never modified once in use;
+ * a replacement is always a newly built WordTrie.
+ * <p>
+ * Boards of any shape up to {@link WordbrainBoard#MAX_CELLS} squares can be solved. The number of solutions, and so
+ * the time and memory a full solve takes, grows very quickly with the size of the board and the number of words. For
+ * large boards, call {@link #estimate} first, then use {@link #countSolutions} or {@link #solveWithLimits} with
+ * limits in the options.
+ * <p>
+ * The complete results of recent calls to solveWithLimits, solveBatch and countSolutions are cached, keyed by the
+ * canonical form of the board (see {@link WordbrainBoard#getCanonicalForm}). A board which is the mirror image of one
+ * solved recently, or only differs from it by blank edges, is answered from the cache, with the solutions converted to
+ * its own coordinates. Solutions converted this way are in the search order of the canonical board.
+ * <p>
+ * Each solve and count can be reported to metrics (see {@link #setMetrics}). While a Java Flight Recorder recording
+ * is running, the solver also emits events for each solve, for the words tried and time spent at each depth of its
+ * search, and for searches cancelled by a limit, as does building a dictionary; they are listed in the README.
  */
 public class WordBrainSolver {
 
-	// WordTrie containing all possible valid words.
-	private final WordTrie wordTrie;
+	/**
+	 * The number of results cached by a new solver.
+	 */
+	public static final int DEFAULT_RESULT_CACHE_SIZE = 64;
+
+	// WordTrie containing all possible valid words (holds null if this solver uses a registry).
+	private final AtomicReference<WordTrie> wordTrie;
+
+	// Number of times the dictionary has been set or reloaded, used to discard reloads that have been superseded.
+	// Guarded by synchronizing on this solver.
+	private long dictionaryVersion = 0;
+
+	// Registry of dictionaries that can be chosen for each solve (null if this solver has a single dictionary).
+	private final DictionaryRegistry registry;
+
+	// Id of the registry dictionary to use when none is specified.
+	private final String defaultDictionaryId;
+
+	// The results of recent searches.
+	private volatile ResultCache resultCache = new ResultCache(DEFAULT_RESULT_CACHE_SIZE);
+
+	// The metrics each solve and count is reported to.
+	private volatile SolverMetrics metrics = SolverMetrics.NONE;
 
 	/**
 	 * Constructor.
@@ -30,7 +75,9 @@ public class WordBrainSolver {
 	 * @param dict The dictionary of words to search for.
 	 */
 	public WordBrainSolver(WordTrie dict) {
-		wordTrie = dict;
+		wordTrie = new AtomicReference<>(dict);
+		registry = null;
+		defaultDictionaryId = null;
 	}
 
 	/**
@@ -38,7 +85,20 @@ public class WordBrainSolver {
 	 * @param words The dictionary of words to search for.
 	 */
 	public WordBrainSolver(Stream<String> words) {
-		wordTrie = new WordTrie(words);
+		this(new WordTrie(words));
+	}
+
+	/**
+	 * Constructor for a solver that looks up its dictionaries in a registry. Dictionaries are loaded by the registry
+	 * when first used, and are shared with any other solvers using the same registry.
+	 *
+	 * @param registry            The registry containing the dictionaries.
+	 * @param defaultDictionaryId Id of the dictionary to use when none is specified.
+	 */
+	public WordBrainSolver(DictionaryRegistry registry, String defaultDictionaryId) {
+		this.wordTrie = new AtomicReference<>();
+		this.registry = registry;
+		this.defaultDictionaryId = defaultDictionaryId;
 	}
 
 	/**
@@ -49,129 +109,398 @@ public class WordBrainSolver {
 	 * @return Ordered Stream of solutions, each represented by an ordered list of words.
 	 */
 	public Stream<List<FoundWord>> solve(WordbrainBoard board, int... wordLengths) {
-		List<String[]> solutions = new ArrayList<>();
+		return solve(board, SolveOptions.DEFAULT, wordLengths);
+	}
 
-		// Take Stream of List<FoundWord> and convert to Stream of List<String>
-		return solveWords(board, wordLengths)
-				.map(lfw -> lfw.stream()
-						.collect(Collectors.toList())
-				);
+	/**
+	 * Find all valid solutions for a WordBrain puzzle, using a dictionary from this solver's registry.
+	 *
+	 * @param dictionaryId The id of the dictionary to use.
+	 * @param board        The board layout
+	 * @param wordLengths  The lengths of words to find (ordered).
+	 * @return Ordered Stream of solutions, each represented by an ordered list of words.
+	 * @throws IllegalStateException    If this solver was not created with a registry.
+	 * @throws IllegalArgumentException If the registry has no dictionary with this id.
+	 */
+	public Stream<List<FoundWord>> solve(String dictionaryId, WordbrainBoard board, int... wordLengths)
+			throws IllegalStateException, IllegalArgumentException {
+		return solve(board, SolveOptions.DEFAULT.withDictionaryId(dictionaryId), wordLengths);
 	}
 
 	/**
-	 * Recursively find all valid solutions for a WordBrain board.
+	 * Find all valid solutions for a WordBrain puzzle, with options controlling the search. If the options set limits
+	 * (which start when this is called), the stream ends early when one is exceeded; use solveWithLimits to find out
+	 * whether the search finished. The solve is reported to the metrics when the search finishes, or when the stream
+	 * is closed if that is sooner, so close a stream which is abandoned part way (e.g. with try-with-resources); one
+	 * which is neither finished nor closed is not reported.
 	 *
 	 * @param board       The board layout
-	 * @param wordLengths The lengths of words (ordered).
-	 * @return Stream of solutions, each represented by an ordered list of FoundWord objects.
+	 * @param options     The options.
+	 * @param wordLengths The lengths of words to find (ordered).
+	 * @return Ordered Stream of solutions, each represented by an unmodifiable list of words in the same order as
+	 * wordLengths.
+	 * @throws IllegalStateException    If the options choose a dictionary, but this solver was not created with a
+	 *                                  registry.
+	 * @throws IllegalArgumentException If the registry has no dictionary with the chosen id.
 	 */
-	private Stream<List<FoundWord>> solveWords(WordbrainBoard board, int[] wordLengths) {
-		// base case: caller has found a complete solution.
-		if (wordLengths.length == 0) {
-			return Stream.of(new ArrayList<FoundWord>());
+	public Stream<List<FoundWord>> solve(WordbrainBoard board, SolveOptions options, int... wordLengths)
+			throws IllegalStateException, IllegalArgumentException {
+		return new Search(getDictionary(options), options, wordLengths, metrics).solve(board);
+	}
+
+	/**
+	 * Find the valid solutions for a WordBrain puzzle within the time, node and solution limits set in the options, and
+	 * report whether the search finished. The limits are checked by every thread working on the search, and when one is
+	 * exceeded they all stop, so the solutions found so far are returned rather than the search running unbounded.
+	 *
+	 * @param board       The board layout
+	 * @param options     The options, including the limits.
+	 * @param wordLengths The lengths of words to find (ordered).
+	 * @return The solutions found, and whether the search finished or which limit stopped it.
+	 * @throws IllegalStateException    If the options choose a dictionary, but this solver was not created with a
+	 *                                  registry.
+	 * @throws IllegalArgumentException If the registry has no dictionary with the chosen id.
+	 */
+	public SolveResult solveWithLimits(WordbrainBoard board, SolveOptions options, int... wordLengths)
+			throws IllegalStateException, IllegalArgumentException {
+		return solveWithCache(getDictionary(options), board, options, wordLengths);
+	}
+
+	/**
+	 * Find the valid solutions for a WordBrain puzzle within the limits set in the options, using the result cache.
+	 * A cached result is only used if a new search would also have finished within the limits.
+	 *
+	 * @param dict        The dictionary.
+	 * @param board       The board layout
+	 * @param options     The options, including the limits.
+	 * @param wordLengths The lengths of words to find (ordered).
+	 * @return The solutions found, and whether the search finished or which limit stopped it.
+	 */
+	private SolveResult solveWithCache(WordTrie dict, WordbrainBoard board, SolveOptions options, int[] wordLengths) {
+		CanonicalBoard canonical = board.getCanonicalForm();
+		ResultCache cache = resultCache;
+		SolveResult result = (SolveResult) cache.get(ResultCache.Kind.SOLVE, dict, canonical, options, wordLengths);
+		if (result == null
+				|| result.getSolutions().size() > options.getSolutionLimit()
+				|| result.getNodesVisited() > options.getNodeLimit()) {
+			result = new Search(dict, options, wordLengths, metrics).solveWithLimits(canonical.getBoard());
+			cache.put(ResultCache.Kind.SOLVE, dict, canonical, options, wordLengths.clone(), result);
+		} else {
+			BoardIndex index = canonical.getBoard().getIndex();
+			new SolveMonitor(metrics, SolverMetrics.Operation.SOLVE, index, options, wordLengths)
+					.finished(true, result.getStatus(), result.getSolutions().size(), 0);
+		}
+		if (canonical.isIdentity()) {
+			return result;
 		}
+		return new SolveResult(
+				canonical.allToOriginal(result.getSolutions()), result.getStatus(), result.getNodesVisited());
+	}
 
-		// Create a stream of possible first words. For each, call helper to update board
-		// and recursively call this function for the next word.
-		Stream<Coords2D> positions = board.getPositions().parallelStream();
-		return positions
-				.map(p -> wordsAt(board, p, wordLengths[0]))
-				.flatMap(foundwords -> foundwords.stream())
-				.flatMap(foundword -> solveWordsHelper(foundword, board, wordLengths));
-	}
-
-	/**
-	 * Helper to find all valid solutions starting with a particular FoundWord for a WordBrain board.
-	 *
-	 * @param word        The word already found.
-	 * @param board       The board layout (before the found word has been removed).
-	 * @param wordLengths The lengths of words on the board (in order in which they must be found) including the already
-	 *                    found word.
-	 * @return Stream of solutions starting with the specified FoundWord.
-	 */
-	private Stream<List<FoundWord>> solveWordsHelper(FoundWord word, WordbrainBoard board, int[] wordLengths) {
-		WordbrainBoard newBoard = board.withLettersRemoved(word.positions);
-		// Recursive call to solveWords, with modified board and remaining wordLengths.
-		return solveWords(newBoard, Arrays.copyOfRange(wordLengths, 1, wordLengths.length))
-				.map(fw -> {
-					ArrayList<FoundWord> solution = new ArrayList<>();
-					solution.add(word);
-					solution.addAll(fw);
-					return solution;
-				});
+	/**
+	 * Start solving a WordBrain puzzle in the background on the common fork-join pool, giving feedback before the
+	 * search finishes (see {@link #solveProgressively(WordbrainBoard, SolveOptions, Consumer, ForkJoinPool, int...)}).
+	 *
+	 * @param board       The board layout
+	 * @param options     The options, including any limits.
+	 * @param listener    Listener to pass each solution to as soon as it is found.
+	 * @param wordLengths The lengths of words to find (ordered).
+	 * @return The solve, with the candidate first words already found.
+	 * @throws IllegalStateException    If the options choose a dictionary, but this solver was not created with a
+	 *                                  registry.
+	 * @throws IllegalArgumentException If the registry has no dictionary with the chosen id, or no word lengths are
+	 *                                  given.
+	 */
+	public ProgressiveSolve solveProgressively(
+			WordbrainBoard board,
+			SolveOptions options,
+			Consumer<List<FoundWord>> listener,
+			int... wordLengths) throws IllegalStateException, IllegalArgumentException {
+
+		return solveProgressively(board, options, listener, ForkJoinPool.commonPool(), wordLengths);
 	}
 
 	/**
-	 * Find all the words of a certain length starting at a certain position on the board.
+	 * Start solving a WordBrain puzzle in the background, giving feedback before the search finishes. This is meant
+	 * for interactive use, where a hard board can take seconds to solve:
+	 * <ol>
+	 * <li>Before this returns, the dictionary is narrowed to the words which can be spelt from the board's letters, and
+	 * the candidate words for the first slot are found on the initial board, so they can be shown straight away. The
+	 * other slots' words are not found yet.</li>
+	 * <li>The other slots' words are then found and the search run on the pool, and each solution is passed to the
+	 * listener as soon as it is found, on the thread which found it (so the listener must be thread safe).</li>
+	 * <li>At any time, {@link ProgressiveSolve#getRanking} ranks the first words by the solutions found for each so
+	 * far.</li>
+	 * </ol>
+	 * The solutions are not cached, or taken from the cache, since the listener must see each one as it is found.
 	 *
-	 * @param board    The board layout.
-	 * @param position The starting position for the words.
-	 * @param length   The length of the words.
-	 * @return List of words starting at this position.
+	 * @param board       The board layout
+	 * @param options     The options, including any limits (which start when this is called).
+	 * @param listener    Listener to pass each solution to as soon as it is found.
+	 * @param pool        The pool to search on.
+	 * @param wordLengths The lengths of words to find (ordered).
+	 * @return The solve, with the candidate first words already found.
+	 * @throws IllegalStateException    If the options choose a dictionary, but this solver was not created with a
+	 *                                  registry.
+	 * @throws IllegalArgumentException If the registry has no dictionary with the chosen id, or no word lengths are
+	 *                                  given.
 	 */
-	private List<FoundWord> wordsAt(WordbrainBoard board, Coords2D position, int length) {
-		final List<Coords2D> firstPosition = new ArrayList<>();
-		firstPosition.add(position);
+	public ProgressiveSolve solveProgressively(
+			WordbrainBoard board,
+			SolveOptions options,
+			Consumer<List<FoundWord>> listener,
+			ForkJoinPool pool,
+			int... wordLengths) throws IllegalStateException, IllegalArgumentException {
 
-		final char letter = board.getSquare(position).get();
-		if (!wordTrie.hasChild(letter)) {
-			// No words in the dictionary starting with this letter!
-			return new ArrayList<>();
+		if (wordLengths.length == 0) {
+			throw new IllegalArgumentException("No word lengths to solve progressively");
 		}
-		final TrieNode<Character> node = wordTrie.getChild(letter);
-		final StringBuilder sb = new StringBuilder().append(letter);
+		return new Search(getDictionary(options), options, wordLengths, metrics)
+				.solveProgressively(board, listener, pool);
+	}
 
-		return findWords(board, firstPosition, sb, node, length - 1);
+	/**
+	 * Solve a batch of WordBrain puzzles (using this object's dictionary), on the common fork-join pool.
+	 *
+	 * @param puzzles The puzzles.
+	 * @param options The options, including any limits (which apply to each puzzle separately).
+	 * @return The result of each puzzle, with timings.
+	 * @throws IllegalStateException    If the options choose a dictionary, but this solver was not created with a
+	 *                                  registry.
+	 * @throws IllegalArgumentException If the registry has no dictionary with the chosen id.
+	 */
+	public BatchResult solveBatch(Collection<Puzzle> puzzles, SolveOptions options)
+			throws IllegalStateException, IllegalArgumentException {
+		return solveBatch(puzzles, options, ForkJoinPool.commonPool());
 	}
 
 	/**
-	 * Method to find words on the board, recursing letter by letter.
+	 * Solve a batch of WordBrain puzzles, all with the same dictionary and options, on a fork-join pool.
+	 * <p>
+	 * The dictionary is looked up once, and the structures the search builds from it are built before any puzzle
+	 * starts and then shared by every puzzle. The puzzles are solved in parallel, and each puzzle's search is itself
+	 * split into parallel tasks on the same pool, so threads which run out of puzzles steal work from the puzzles
+	 * still being solved. That keeps every thread busy whether the batch is many small puzzles or a few big ones. Each
+	 * thread also reuses its working arrays from one puzzle to the next.
+	 * <p>
+	 * Each puzzle is solved as by {@link #solveWithLimits}, so its limits start when it does.
 	 *
-	 * @param board            The board containing the letters.
-	 * @param usedPositions    The board positions already used by letters in the word so far. The the next position
-	 *                         must be a neighbour of the last position currently in the list, and not already appear in
-	 *                         the list.
-	 * @param wordNode         The TrieNode node representing progress towards finding a word
-	 * @param remainingLetters Remaining number of letters required to complete the word
-	 * @return List of found words.
+	 * @param puzzles The puzzles.
+	 * @param options The options, including any limits (which apply to each puzzle separately).
+	 * @param pool    The pool to solve the puzzles on.
+	 * @return The result of each puzzle, with timings.
+	 * @throws IllegalStateException    If the options choose a dictionary, but this solver was not created with a
+	 *                                  registry.
+	 * @throws IllegalArgumentException If the registry has no dictionary with the chosen id.
 	 */
-	private List<FoundWord> findWords(
-			WordbrainBoard board,
-			List<Coords2D> usedPositions,
-			StringBuilder letters,
-			TrieNode<Character> wordNode,
-			int remainingLetters) {
-
-		// Base case
-		if (remainingLetters == 0) {
-			if (wordNode.isItem()) {
-				return Arrays.asList(new FoundWord(usedPositions, letters.toString()));
-			} else {
-				return Collections.emptyList();
+	public BatchResult solveBatch(Collection<Puzzle> puzzles, SolveOptions options, ForkJoinPool pool)
+			throws IllegalStateException, IllegalArgumentException {
+		WordTrie dict = getDictionary(options);
+		dict.getPacked();
+		dict.getStatistics();
+		for (Puzzle puzzle : puzzles) {
+			for (int length : puzzle.getWordLengths()) {
+				if (length >= options.getBidirectionalMinLength()) {
+					dict.getReversed().getPacked();
+				}
 			}
 		}
 
-		List<FoundWord> finds = new ArrayList<>();
+		long start = System.nanoTime();
+		List<BatchResult.PuzzleResult> results = pool.submit(() -> puzzles.parallelStream()
+				.map(puzzle -> {
+					long puzzleStart = System.nanoTime();
+					SolveResult result = solveWithCache(dict, puzzle.getBoard(), options, puzzle.getWordLengths());
+					return new BatchResult.PuzzleResult(puzzle, result,
+							Duration.ofNanos(System.nanoTime() - puzzleStart));
+				})
+				.collect(Collectors.toList()))
+				.join();
+		return new BatchResult(results, Duration.ofNanos(System.nanoTime() - start));
+	}
 
-		for (Coords2D neighbour : board.getNeighbours(usedPositions.get(usedPositions.size() - 1))) {
-			// Can't re-use a letter we've already used.
-			if (usedPositions.contains(neighbour)) {
-				continue;
-			}
+	/**
+	 * Count the valid solutions for a WordBrain puzzle (using this object's dictionary), without building them.
+	 *
+	 * @param board       The board layout
+	 * @param wordLengths The lengths of words to find (ordered).
+	 * @return The number of solutions solve would find.
+	 */
+	public long countSolutions(WordbrainBoard board, int... wordLengths) {
+		return countSolutions(board, SolveOptions.DEFAULT, wordLengths);
+	}
 
-			// getNeighbours() only returns non-blank squares
-			char letter = board.getSquare(neighbour).get();
-			if (wordNode.hasChild(letter)) {
-				StringBuilder newLetters = new StringBuilder(letters);
-				newLetters.append(letter);
-				List<Coords2D> updatedPositions = new ArrayList<>(usedPositions);
-				updatedPositions.add(neighbour);
-				Iterables.addAll(
-						finds,
-						findWords(board, updatedPositions, newLetters, wordNode.getChild(letter), remainingLetters - 1));
-			}
+	/**
+	 * Count the valid solutions for a WordBrain puzzle, with options controlling the search, without building them.
+	 * This is much cheaper than counting the solutions returned by solve: no FoundWord objects are made, the last word
+	 * of each solution is counted rather than removed, and the counts for board layouts reached in more than one way
+	 * are remembered. The time, node and solution limits in the options are not applied.
+	 *
+	 * @param board       The board layout
+	 * @param options     The options.
+	 * @param wordLengths The lengths of words to find (ordered).
+	 * @return The number of solutions solve would find with the same options, except that every solution is counted
+	 * even if the options keep only distinct words (see {@link SolveOptions#withDistinctWords}).
+	 * @throws IllegalStateException    If the options choose a dictionary, but this solver was not created with a
+	 *                                  registry.
+	 * @throws IllegalArgumentException If the registry has no dictionary with the chosen id.
+	 */
+	public long countSolutions(WordbrainBoard board, SolveOptions options, int... wordLengths)
+			throws IllegalStateException, IllegalArgumentException {
+		WordTrie dict = getDictionary(options);
+		CanonicalBoard canonical = board.getCanonicalForm();
+		ResultCache cache = resultCache;
+		Long count = (Long) cache.get(ResultCache.Kind.COUNT, dict, canonical, options, wordLengths);
+		if (count == null) {
+			count = new Search(dict, options, wordLengths, metrics).count(canonical.getBoard());
+			cache.put(ResultCache.Kind.COUNT, dict, canonical, options, wordLengths.clone(), count);
+		} else {
+			BoardIndex index = canonical.getBoard().getIndex();
+			new SolveMonitor(metrics, SolverMetrics.Operation.COUNT, index, options, wordLengths)
+					.finished(true, SolveResult.Status.COMPLETE, count, 0);
 		}
-		return finds;
+		return count;
+	}
+
+	/**
+	 * Set the number of results this solver caches, dropping any results already cached.
+	 *
+	 * @param maxEntries The most results to keep, or 0 to keep none.
+	 * @throws IllegalArgumentException If maxEntries is negative.
+	 */
+	public void setResultCacheSize(int maxEntries) throws IllegalArgumentException {
+		resultCache = new ResultCache(maxEntries);
+	}
+
+	/**
+	 * Set the metrics each solve and count is reported to, e.g. a {@link SolverStatistics} to export. Solves already
+	 * in progress report to the metrics that were set when they started.
+	 *
+	 * @param metrics The metrics, or {@link SolverMetrics#NONE} to report to none.
+	 */
+	public void setMetrics(SolverMetrics metrics) {
+		this.metrics = Objects.requireNonNull(metrics);
 	}
 
+	/**
+	 * Estimate the cost of solving a WordBrain puzzle (using this object's dictionary), without solving it.
+	 *
+	 * @param board       The board layout
+	 * @param wordLengths The lengths of words to find (ordered).
+	 * @return The estimate.
+	 */
+	public SearchEstimate estimate(WordbrainBoard board, int... wordLengths) {
+		return estimate(board, SolveOptions.DEFAULT, wordLengths);
+	}
+
+	/**
+	 * Estimate the cost of solving a WordBrain puzzle with options controlling the search, without solving it. Only
+	 * the candidate words for each slot on the initial board are found, which typically takes a tiny fraction of the
+	 * time of the full search.
+	 *
+	 * @param board       The board layout
+	 * @param options     The options.
+	 * @param wordLengths The lengths of words to find (ordered).
+	 * @return The estimate.
+	 * @throws IllegalStateException    If the options choose a dictionary, but this solver was not created with a
+	 *                                  registry.
+	 * @throws IllegalArgumentException If the registry has no dictionary with the chosen id.
+	 */
+	public SearchEstimate estimate(WordbrainBoard board, SolveOptions options, int... wordLengths)
+			throws IllegalStateException, IllegalArgumentException {
+		return new Search(getDictionary(options), options, wordLengths, metrics).estimate(board);
+	}
+
+	/**
+	 * Get the dictionary chosen by a set of options.
+	 *
+	 * @param options The options.
+	 * @return The chosen dictionary, or the default dictionary if none is chosen.
+	 * @throws IllegalStateException    If the options choose a dictionary, but this solver has no registry.
+	 * @throws IllegalArgumentException If the registry has no dictionary with the chosen id.
+	 */
+	private WordTrie getDictionary(SolveOptions options) throws IllegalStateException, IllegalArgumentException {
+		if (options.getDictionaryId() == null) {
+			return registry == null ? wordTrie.get() : registry.get(defaultDictionaryId);
+		}
+		if (registry == null) {
+			throw new IllegalStateException("Solver has no dictionary registry");
+		}
+		return registry.get(options.getDictionaryId());
+	}
+
+	/**
+	 * Replace this solver's dictionary. Solves already in progress carry on with the old dictionary. The new
+	 * dictionary should not be modified after this call.
+	 *
+	 * @param dict The new dictionary.
+	 * @throws IllegalStateException If this solver uses a registry (use {@link DictionaryRegistry#reload} instead).
+	 */
+	public void setDictionary(WordTrie dict) throws IllegalStateException {
+		checkOwnDictionary();
+		synchronized (this) {
+			dictionaryVersion++;
+			wordTrie.set(dict);
+		}
+		resultCache.clear();
+	}
+
+	/**
+	 * Rebuild this solver's dictionary from a word list file in the background, and swap it in once it is ready. If
+	 * the dictionary is set or reloaded again before this reload finishes, the result of this reload is discarded.
+	 *
+	 * @param path File containing the words, one per line.
+	 * @return Future completed with the new dictionary.
+	 * @throws IllegalStateException If this solver uses a registry (use {@link DictionaryRegistry#reload} instead).
+	 */
+	public CompletableFuture<WordTrie> reloadDictionary(Path path) throws IllegalStateException {
+		return reloadDictionary(() -> Files.lines(path, StandardCharsets.UTF_8), ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Rebuild this solver's dictionary in the background, and swap it in once it is ready. If the dictionary is set
+	 * or reloaded again before this reload finishes, the result of this reload is discarded.
+	 *
+	 * @param source   Source of the new words.
+	 * @param executor Executor used to build the new dictionary.
+	 * @return Future completed with the new dictionary.
+	 * @throws IllegalStateException If this solver uses a registry (use {@link DictionaryRegistry#reload} instead).
+	 */
+	public CompletableFuture<WordTrie> reloadDictionary(DictionaryRegistry.WordSource source, Executor executor)
+			throws IllegalStateException {
+		checkOwnDictionary();
+		final long version;
+		synchronized (this) {
+			version = ++dictionaryVersion;
+		}
+
+		return CompletableFuture
+				.supplyAsync(() -> {
+					try (Stream<String> words = source.open()) {
+						return new WordTrie(words);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}, executor)
+				.thenApply(dict -> {
+					synchronized (this) {
+						if (dictionaryVersion == version) {
+							wordTrie.set(dict);
+							resultCache.clear();
+						}
+					}
+					return dict;
+				});
+	}
+
+	/**
+	 * Check that this solver has its own dictionary, rather than using a registry.
+	 *
+	 * @throws IllegalStateException If this solver uses a registry.
+	 */
+	private void checkOwnDictionary() throws IllegalStateException {
+		if (registry != null) {
+			throw new IllegalStateException("Solver dictionaries are managed by its registry");
+		}
+	}
 }
@@ -0,0 +1,456 @@
+package uk.co.ndall.wordbrain;
+
+import uk.co.ndall.wordgames.Alphabet;
+import uk.co.ndall.wordgames.PackedTrie;
+
+import java.util.Arrays;
+
+/**
+ * The paths of every dictionary word of a certain length on one board layout, grouped by starting cell.
+ * <p>
+ * The paths are found once for the initial board. After a word is removed, only the cells in the columns it touched
+ * can change, so {@link #update} keeps the paths which avoid every changed cell, and searches again only for paths
+ * which use at least one changed cell. Searches which wander too far from the changed cells to reach one are cut
+ * short. Once built a WordPaths is never modified, so can be shared between threads searching copies of the same
+ * layout.
+ * <p>
+ * The paths are held in flat arrays sorted by starting cell, with the cells of each path also held as a bitset (see
+ * CellBits), so checking whether a path survives a removal is a few word-wide ANDs however big the board is. Paths
+ * which survive are shared with the updated WordPaths rather than copied, so an update allocates two references per
+ * path plus the new paths it finds.
+ */
+final class WordPaths {
+
+	// The length of the words.
+	private final int length;
+
+	// The cells of each path, in word order. Sorted by starting cell.
+	private final int[][] paths;
+
+	// The cells of each path, as a bitset.
+	private final long[][] masks;
+
+	// For each cell, the index of the first path starting there; the last element holds the number of paths.
+	private final int[] firstPaths;
+
+	// The builder used by each thread, kept so that its arrays are reused.
+	private static final ThreadLocal<Builder> BUILDERS = ThreadLocal.withInitial(Builder::new);
+
+	// The finder used by each thread, kept so that its arrays are reused.
+	private static final ThreadLocal<Finder> FINDERS = ThreadLocal.withInitial(Finder::new);
+
+	/**
+	 * Constructor.
+	 *
+	 * @param length     The length of the words.
+	 * @param paths      The cells of each path, sorted by starting cell.
+	 * @param masks      The cells of each path, as a bitset.
+	 * @param firstPaths For each cell, the index of the first path starting there, followed by the number of paths.
+	 */
+	private WordPaths(int length, int[][] paths, long[][] masks, int[] firstPaths) {
+		this.length = length;
+		this.paths = paths;
+		this.masks = masks;
+		this.firstPaths = firstPaths;
+	}
+
+	/**
+	 * Find the paths of all the words of a certain length on a board.
+	 *
+	 * @param board    The board layout.
+	 * @param dict     The dictionary.
+	 * @param suffixes Suffix index for words of this length on this board, or null to search from the first letter only.
+	 * @param length   The length of the words.
+	 * @param meter    Meter to step as the board is searched, or null for no limits.
+	 * @return The paths. If the meter stopped the search, only those found before it stopped.
+	 */
+	static WordPaths find(MutableBoard board, PackedTrie dict, SuffixIndex suffixes, int length, Budget.Meter meter) {
+		Builder builder = BUILDERS.get().start(board.getSize());
+		Finder finder = FINDERS.get().start(board, dict, length, null, meter);
+		for (int cell = 0; cell < board.getSize(); cell++) {
+			builder.startCell(cell);
+			if (meter != null && !meter.step()) {
+				continue;
+			}
+			if (suffixes != null) {
+				for (int[] path : suffixes.pathsAt(board, dict, cell)) {
+					long[] mask = CellBits.create(board.getSize());
+					for (int pathCell : path) {
+						CellBits.add(mask, pathCell);
+					}
+					builder.add(path, mask);
+				}
+			} else {
+				finder.findPaths(cell, builder);
+			}
+		}
+		finder.finish();
+		return builder.build(length);
+	}
+
+	/**
+	 * Get the paths of all the words of the same length on a board which has just had a word removed.
+	 *
+	 * @param board   The board layout, with the word removed.
+	 * @param dict    The dictionary.
+	 * @param changed The cells changed by the removal as a bitset (see MutableBoard.markChangedCells).
+	 * @param meter   Meter to step as the board is searched, or null for no limits.
+	 * @return The paths on the changed board. If the meter stopped the search, only those found before it stopped.
+	 */
+	WordPaths update(MutableBoard board, PackedTrie dict, long[] changed, Budget.Meter meter) {
+		Builder builder = BUILDERS.get().start(board.getSize());
+		Finder finder = FINDERS.get().start(board, dict, length, changed, meter);
+		for (int cell = 0; cell < board.getSize(); cell++) {
+			builder.startCell(cell);
+			if (meter != null && !meter.step()) {
+				continue;
+			}
+			if (finder.canReachChange(cell, length)) {
+				finder.findPaths(cell, builder);
+			}
+			if (!CellBits.contains(changed, cell)) {
+				for (int i = firstPaths[cell]; i < firstPaths[cell + 1]; i++) {
+					if (!CellBits.intersects(masks[i], changed)) {
+						builder.add(paths[i], masks[i]);
+					}
+				}
+			}
+		}
+		finder.finish();
+		return builder.build(length);
+	}
+
+	/**
+	 * Get the length of the words.
+	 *
+	 * @return The length.
+	 */
+	int getLength() {
+		return length;
+	}
+
+	/**
+	 * Count the paths.
+	 *
+	 * @return The total number of paths, from every starting cell.
+	 */
+	int count() {
+		return paths.length;
+	}
+
+	/**
+	 * Get the index of the first path starting at a cell. The paths starting at cell c are those from firstPath(c) up
+	 * to (but not including) firstPath(c + 1).
+	 *
+	 * @param cell The index of the cell, or the number of cells to get the number of paths.
+	 * @return The index of the path.
+	 */
+	int firstPath(int cell) {
+		return firstPaths[cell];
+	}
+
+	/**
+	 * Get the cells of a path.
+	 *
+	 * @param path The index of the path.
+	 * @return The cells of the word, in order. The array must not be modified.
+	 */
+	int[] getPath(int path) {
+		return paths[path];
+	}
+
+	/**
+	 * Collects paths cell by cell, growing its arrays as needed. Each thread keeps one builder and reuses its arrays for
+	 * every WordPaths it builds, so only the final arrays are allocated.
+	 */
+	private static final class Builder {
+
+		// The paths collected so far.
+		private int[][] paths = new int[16][];
+
+		// The bitset of each path collected so far.
+		private long[][] masks = new long[16][];
+
+		// The number of paths collected so far.
+		private int count;
+
+		// For each cell, the index of its first path.
+		private int[] firstPaths;
+
+		/**
+		 * Start building a WordPaths.
+		 *
+		 * @param size The number of cells on the board.
+		 * @return This builder.
+		 */
+		Builder start(int size) {
+			count = 0;
+			firstPaths = new int[size + 1];
+			return this;
+		}
+
+		/**
+		 * Start collecting the paths for a cell. Cells must be started in order.
+		 *
+		 * @param cell The cell.
+		 */
+		void startCell(int cell) {
+			firstPaths[cell] = count;
+		}
+
+		/**
+		 * Add a path starting at the current cell.
+		 *
+		 * @param path The cells of the path. Not copied, so must not be modified afterwards.
+		 * @param mask The cells of the path, as a bitset. Not copied, so must not be modified afterwards.
+		 */
+		void add(int[] path, long[] mask) {
+			if (count == paths.length) {
+				paths = Arrays.copyOf(paths, count * 2);
+				masks = Arrays.copyOf(masks, count * 2);
+			}
+			paths[count] = path;
+			masks[count] = mask;
+			count++;
+		}
+
+		/**
+		 * Finish collecting paths.
+		 *
+		 * @param length The length of the words.
+		 * @return The paths collected.
+		 */
+		WordPaths build(int length) {
+			firstPaths[firstPaths.length - 1] = count;
+			WordPaths built = new WordPaths(length, Arrays.copyOf(paths, count), Arrays.copyOf(masks, count), firstPaths);
+
+			// Don't keep the paths alive after they are no longer needed.
+			Arrays.fill(paths, 0, count, null);
+			Arrays.fill(masks, 0, count, null);
+			firstPaths = null;
+			return built;
+		}
+	}
+
+	/**
+	 * Searches a board for the paths of words of a certain length, optionally only those using a changed cell. The
+	 * search is iterative, with its own stack, and uses a bitset to track the cells used. Each thread keeps one finder
+	 * and reuses its arrays for every board it searches, growing them when a bigger board or longer word comes along.
+	 */
+	private static final class Finder {
+
+		// The board layout.
+		private MutableBoard board;
+
+		// The dictionary.
+		private PackedTrie dict;
+
+		// The symbol id of the letter in each cell, or Alphabet.NONE if the cell is empty or the letter isn't in the
+		// dictionary.
+		private int[] symbols = new int[0];
+
+		// The length of the words.
+		private int length;
+
+		// The changed cells which each path must use as a bitset, or null to find every path.
+		private long[] changed;
+
+		// Number of steps from each cell to the nearest changed cell (only used when changed is not null).
+		private int[] distances = new int[0];
+
+		// Queue of cells used when working out the distances.
+		private int[] queue = new int[0];
+
+		// The cells of the path so far, followed by space for the remaining letters.
+		private int[] path = new int[0];
+
+		// The cells used by the path so far, as a bitset (which may be longer than the current board needs).
+		private long[] used = new long[0];
+
+		// The number of longs in a bitset for the current board.
+		private int bitsLength;
+
+		// The dictionary node reached by each prefix of the path.
+		private int[] nodes = new int[0];
+
+		// Whether each prefix of the path uses a changed cell.
+		private boolean[] usesChanged = new boolean[0];
+
+		// The index of the next neighbour to try at each position of the path.
+		private int[] nextNeighbours = new int[0];
+
+		// Meter stepped for each neighbour tried, or null for no limits.
+		private Budget.Meter meter;
+
+		/**
+		 * Start searching a board.
+		 *
+		 * @param board   The board layout.
+		 * @param dict    The dictionary.
+		 * @param length  The length of the words.
+		 * @param changed The changed cells which each path must use as a bitset, or null to find every path.
+		 * @param meter   Meter to step for each neighbour tried, or null for no limits.
+		 * @return This finder.
+		 */
+		Finder start(MutableBoard board, PackedTrie dict, int length, long[] changed, Budget.Meter meter) {
+			int size = board.getSize();
+			if (symbols.length < size) {
+				symbols = new int[size];
+				distances = new int[size];
+				queue = new int[size];
+				used = CellBits.create(size);
+			}
+			if (path.length < length) {
+				path = new int[length];
+				nodes = new int[length];
+				usesChanged = new boolean[length];
+				nextNeighbours = new int[length + 1];
+			}
+
+			this.board = board;
+			this.dict = dict;
+			this.length = length;
+			this.changed = changed;
+			this.meter = meter;
+			this.bitsLength = CellBits.length(size);
+			Alphabet alphabet = dict.getAlphabet();
+			for (int cell = 0; cell < size; cell++) {
+				char letter = board.getLetter(cell);
+				symbols[cell] = letter == BoardIndex.EMPTY ? Alphabet.NONE : alphabet.getSymbol(letter);
+			}
+			if (changed != null) {
+				findDistances();
+			}
+			return this;
+		}
+
+		/**
+		 * Finish searching a board, so that the finder doesn't keep it alive.
+		 */
+		void finish() {
+			board = null;
+			dict = null;
+			changed = null;
+			meter = null;
+		}
+
+		/**
+		 * Work out the number of steps from each cell to the nearest changed cell, moving between neighbouring cells
+		 * whether or not they hold letters. Cells with no changed cell within reach are left at Integer.MAX_VALUE.
+		 */
+		private void findDistances() {
+			Arrays.fill(distances, 0, board.getSize(), Integer.MAX_VALUE);
+			int tail = 0;
+			for (int cell = 0; cell < board.getSize(); cell++) {
+				if (CellBits.contains(changed, cell)) {
+					distances[cell] = 0;
+					queue[tail++] = cell;
+				}
+			}
+			for (int head = 0; head < tail; head++) {
+				int cell = queue[head];
+				for (int neighbour : board.getNeighbours(cell)) {
+					if (distances[neighbour] == Integer.MAX_VALUE) {
+						distances[neighbour] = distances[cell] + 1;
+						queue[tail++] = neighbour;
+					}
+				}
+			}
+		}
+
+		/**
+		 * Check whether a path could reach a changed cell from a cell, within a number of letters.
+		 *
+		 * @param cell    The cell.
+		 * @param letters The number of letters, including the one in the cell.
+		 * @return True if a changed cell is close enough (always true when finding every path).
+		 */
+		boolean canReachChange(int cell, int letters) {
+			return changed == null || distances[cell] < letters;
+		}
+
+		/**
+		 * Follow the branch of the dictionary for the letter in a cell.
+		 *
+		 * @param node The dictionary node.
+		 * @param cell The index of the cell.
+		 * @return The child node, or NO_NODE if the cell is empty or there is no such branch.
+		 */
+		private int child(int node, int cell) {
+			int symbol = symbols[cell];
+			return symbol == Alphabet.NONE ? PackedTrie.NO_NODE : dict.getChild(node, symbol);
+		}
+
+		/**
+		 * Find the paths of the words starting at a cell. If the meter stops the search, the paths found so far are
+		 * kept.
+		 *
+		 * @param start   The index of the starting cell.
+		 * @param builder Builder to add the paths to.
+		 */
+		void findPaths(int start, Builder builder) {
+			int node = child(PackedTrie.ROOT, start);
+			if (node == PackedTrie.NO_NODE || !dict.hasItemAtDistance(node, length - 1)) {
+				// No words of this length in the dictionary starting with this letter!
+				return;
+			}
+
+			path[0] = start;
+			nodes[0] = node;
+			usesChanged[0] = changed == null || CellBits.contains(changed, start);
+			CellBits.add(used, start);
+			nextNeighbours[1] = 0;
+
+			// The number of cells in the path so far.
+			int depth = 1;
+			while (depth > 0) {
+				if (depth == length) {
+					// A complete path: keep it if it's a word, then go back a letter.
+					if (dict.isItem(nodes[depth - 1]) && usesChanged[depth - 1]) {
+						builder.add(Arrays.copyOf(path, length), Arrays.copyOf(used, bitsLength));
+					}
+					CellBits.remove(used, path[--depth]);
+					continue;
+				}
+
+				int[] neighbours = board.getNeighbours(path[depth - 1]);
+				if (nextNeighbours[depth] == neighbours.length) {
+					// Every neighbour has been tried: go back a letter.
+					CellBits.remove(used, path[--depth]);
+					continue;
+				}
+
+				if (meter != null && !meter.step()) {
+					// A limit has been exceeded: clear the cells used, ready for the next search.
+					while (depth > 0) {
+						CellBits.remove(used, path[--depth]);
+					}
+					return;
+				}
+
+				// Can't re-use a letter we've already used, or use an empty square.
+				int neighbour = neighbours[nextNeighbours[depth]++];
+				if (CellBits.contains(used, neighbour)) {
+					continue;
+				}
+				int child = child(nodes[depth - 1], neighbour);
+				if (child == PackedTrie.NO_NODE) {
+					continue;
+				}
+
+				// Skip prefixes which don't begin any word of the right length, or can no longer use a changed cell.
+				if (!dict.hasItemAtDistance(child, length - depth - 1)
+						|| !(usesChanged[depth - 1] || canReachChange(neighbour, length - depth))) {
+					continue;
+				}
+
+				path[depth] = neighbour;
+				nodes[depth] = child;
+				usesChanged[depth] = usesChanged[depth - 1] || CellBits.contains(changed, neighbour);
+				CellBits.add(used, neighbour);
+				depth++;
+				nextNeighbours[depth] = 0;
+			}
+		}
+	}
+}
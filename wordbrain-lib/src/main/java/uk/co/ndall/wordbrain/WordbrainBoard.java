@@ -1,6 +1,5 @@
 package uk.co.ndall.wordbrain;
 
-import com.google.common.collect.Lists;
 import uk.co.ndall.wordgames.Coords2D;
 
 import java.text.MessageFormat;
@@ -8,11 +7,34 @@ import java.util.*;
 
 /**
  * Class representing the positions of letters in a game of WordBrain.
+ * <p>
+ * The board is stored as an array of columns, since letters only ever move within their column. Boards are never
+ * modified, so when letters are removed the new board shares the columns which were not affected with the old one.
  */
 public class WordbrainBoard {
 
-	// 2D array representing the board.
-	private char[][] board;
+	/**
+	 * Value used to pad rows that are shorter than the longest row. Such boards are not valid, but are kept so that they
+	 * can be reported as invalid.
+	 */
+	static final char NO_SQUARE = '\0';
+
+	/**
+	 * The largest number of squares (width times height) the solver supports.
+	 */
+	public static final int MAX_CELLS = 1 << 16;
+
+	// 2D array representing the board, indexed by column and then by row (from the top).
+	private final char[][] columns;
+
+	// Number of rows.
+	private final int height;
+
+	// Flattened view of the board used by the solver (built when first needed).
+	private volatile BoardIndex index;
+
+	// The canonical form of the board (built when first needed).
+	private volatile CanonicalBoard canonicalForm;
 
 	/**
 	 * Constructor
@@ -21,30 +43,190 @@ public class WordbrainBoard {
 	 *               letters. Eg. "abcd,efgh,ijkl,mnop". Spaces will be interpreted as no letter at that position.
 	 */
 	public WordbrainBoard(String layout) {
-		board = Arrays.stream(layout.split("[;,:\n\r]"))
-				.map(String::toLowerCase)
+		this(toColumns(Arrays.stream(layout.split("[;,:\n\r]"))
+				.map(row -> row.toLowerCase(Locale.ROOT))
 				.map(String::toCharArray)
-				.toArray(size -> new char[size][]);
+				.toArray(size -> new char[size][])));
 	}
 
 	/**
 	 * Constructor
 	 *
-	 * @param board A 2 dimensional array representing the position of letters on the board. Spaces should occupy
-	 *              positions where there is no letter present.
+	 * @param columns A 2 dimensional array representing the position of letters on the board, indexed by column and
+	 *                then by row. Spaces should occupy positions where there is no letter present. All columns must
+	 *                be the same length.
 	 */
-	private WordbrainBoard(char[][] board) {
-		this.board = board;
+	private WordbrainBoard(char[][] columns) {
+		this.columns = columns;
+		this.height = columns.length == 0 ? 0 : columns[0].length;
+	}
+
+	/**
+	 * Convert an array of rows into an array of columns, padding short rows with NO_SQUARE.
+	 *
+	 * @param rows The rows.
+	 * @return The columns.
+	 */
+	private static char[][] toColumns(char[][] rows) {
+		int width = Arrays.stream(rows).mapToInt(row -> row.length).max().orElse(0);
+		char[][] columns = new char[width][rows.length];
+		for (int x = 0; x < width; x++) {
+			for (int y = 0; y < rows.length; y++) {
+				columns[x][y] = x < rows[y].length ? rows[y][x] : NO_SQUARE;
+			}
+		}
+		return columns;
 	}
 
 	@Override
 	public String toString() {
 		StringJoiner sj = new StringJoiner("\n");
-		Arrays.stream(board)
-				.forEach(row -> sj.add(new String(row)));
+		for (int y = 0; y < height; y++) {
+			StringBuilder row = new StringBuilder();
+			for (char[] column : columns) {
+				if (column[y] != NO_SQUARE) {
+					row.append(column[y]);
+				}
+			}
+			sj.add(row);
+		}
 		return sj.toString();
 	}
 
+	/**
+	 * Get the precomputed view of this board used by the solver, building it the first time it is needed. Boards
+	 * never change, so the same index is returned every time.
+	 *
+	 * @return The board index.
+	 * @throws IllegalArgumentException If the rows of the board are not all the same length, or the board has more than
+	 *                                  MAX_CELLS squares.
+	 */
+	BoardIndex getIndex() throws IllegalArgumentException {
+		BoardIndex result = index;
+		if (result == null) {
+			// Two threads may both build an index, but they will be identical so it doesn't matter which is kept.
+			result = new BoardIndex(columns);
+			index = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Get the canonical form of this board, building it the first time it is needed. Boards which only differ by blank
+	 * rows at the top, blank columns at either side, or by being flipped left to right, have the same canonical form
+	 * and the same solutions once converted to each board's coordinates (see {@link CanonicalBoard}). The canonical
+	 * form of an invalid board, or of a board with no letters, is the board itself.
+	 *
+	 * @return The canonical form.
+	 */
+	public CanonicalBoard getCanonicalForm() {
+		CanonicalBoard result = canonicalForm;
+		if (result == null) {
+			// Two threads may both build the canonical form, but they will be equal so it doesn't matter which is kept.
+			result = buildCanonicalForm();
+			canonicalForm = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Build the canonical form of this board.
+	 *
+	 * @return The canonical form.
+	 */
+	private CanonicalBoard buildCanonicalForm() {
+		int left = 0;
+		int right = columns.length - 1;
+		int top = 0;
+		boolean valid = isValid();
+		if (valid) {
+			while (left <= right && isBlank(columns[left])) {
+				left++;
+			}
+			while (right >= left && isBlank(columns[right])) {
+				right--;
+			}
+			while (top < height && isBlankRow(top, left, right)) {
+				top++;
+			}
+		}
+		if (left > right) {
+			// No letters at all, so nothing to trim down to.
+			left = 0;
+			right = columns.length - 1;
+			top = 0;
+		}
+
+		String layout = layout(left, right, top, false);
+		String mirroredLayout = layout(left, right, top, true);
+		boolean mirrored = valid && mirroredLayout.compareTo(layout) < 0;
+		if (!mirrored && left == 0 && right == columns.length - 1 && top == 0) {
+			return new CanonicalBoard(this, layout, false, left, right, top);
+		}
+
+		char[][] canonicalColumns = new char[right - left + 1][];
+		for (int x = 0; x < canonicalColumns.length; x++) {
+			char[] column = columns[mirrored ? right - x : left + x];
+			canonicalColumns[x] = Arrays.copyOfRange(column, top, height);
+		}
+		return new CanonicalBoard(new WordbrainBoard(canonicalColumns), mirrored ? mirroredLayout : layout, mirrored,
+				left, right, top);
+	}
+
+	/**
+	 * Check whether a column has no letters.
+	 *
+	 * @param column The column.
+	 * @return True if every square is a space.
+	 */
+	private static boolean isBlank(char[] column) {
+		for (char letter : column) {
+			if (letter != ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Check whether part of a row has no letters.
+	 *
+	 * @param y     The row.
+	 * @param left  The first column to check.
+	 * @param right The last column to check.
+	 * @return True if every square checked is a space.
+	 */
+	private boolean isBlankRow(int y, int left, int right) {
+		for (int x = left; x <= right; x++) {
+			if (columns[x][y] != ' ') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Write out part of the board, as rows separated by commas.
+	 *
+	 * @param left     The first column.
+	 * @param right    The last column.
+	 * @param top      The first row.
+	 * @param mirrored Whether to write each row from right to left.
+	 * @return The layout.
+	 */
+	private String layout(int left, int right, int top, boolean mirrored) {
+		StringBuilder layout = new StringBuilder((right - left + 2) * (height - top));
+		for (int y = top; y < height; y++) {
+			if (y > top) {
+				layout.append(',');
+			}
+			for (int x = left; x <= right; x++) {
+				layout.append(columns[mirrored ? right + left - x : x][y]);
+			}
+		}
+		return layout.toString();
+	}
+
 	/**
 	 * Get the character at a given position.
 	 *
@@ -57,7 +239,7 @@ public class WordbrainBoard {
 		final int y = pos.getY();
 
 		validateCoords(x, y);
-		return board[y][x] == ' ' ? Optional.empty() : Optional.of(board[y][x]);
+		return columns[x][y] == ' ' ? Optional.empty() : Optional.of(columns[x][y]);
 	}
 
 	/**
@@ -68,14 +250,25 @@ public class WordbrainBoard {
 	 * @throws IndexOutOfBoundsException
 	 */
 	private void validateCoords(int x, int y) throws IndexOutOfBoundsException {
-		if (y < 0 || y >= board.length) {
+		if (y < 0 || y >= height) {
 			throw new IndexOutOfBoundsException(MessageFormat.format("x of {0} out of range", x));
 		}
-		if (x < 0 || x >= board[y].length) {
+		if (!hasSquare(x, y)) {
 			throw new IndexOutOfBoundsException(MessageFormat.format("y of {0} out of range", y));
 		}
 	}
 
+	/**
+	 * Check whether there is a square (empty or not) at a pair of coordinates.
+	 *
+	 * @param x The x coordinate.
+	 * @param y The y coordinate (must be in range).
+	 * @return True if x is within the row.
+	 */
+	private boolean hasSquare(int x, int y) {
+		return x >= 0 && x < columns.length && columns[x][y] != NO_SQUARE;
+	}
+
 	/**
 	 * Gets the positions of any neighbouring letters for a given square. Neighbouring positions that do not contain
 	 * letters are omitted.
@@ -90,11 +283,11 @@ public class WordbrainBoard {
 		ArrayList<Coords2D> neighbours = new ArrayList<Coords2D>();
 
 		for (int y1 = y - 1; y1 <= y + 1; y1++) {
-			if (y1 < 0 || y1 >= board.length) {
+			if (y1 < 0 || y1 >= height) {
 				continue;
 			}
 			for (int x1 = x - 1; x1 <= x + 1; x1++) {
-				if (x1 < 0 || x1 >= board[y1].length) {
+				if (!hasSquare(x1, y1)) {
 					continue;
 				}
 				Coords2D pos1 = new Coords2D(x1, y1);
@@ -117,11 +310,10 @@ public class WordbrainBoard {
 	 */
 	public List<Coords2D> getPositions() {
 		List<Coords2D> positions = new ArrayList<>();
-		for (int y = 0; y < board.length; y++) {
-			for (int x = 0; x < board[y].length; x++) {
-				Coords2D pos = new Coords2D(x, y);
-				if (getSquare(pos).isPresent()) {
-					positions.add(pos);
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < columns.length; x++) {
+				if (hasSquare(x, y) && columns[x][y] != ' ') {
+					positions.add(new Coords2D(x, y));
 				}
 			}
 		}
@@ -135,9 +327,9 @@ public class WordbrainBoard {
 	 */
 	public int countLetters() {
 		int count = 0;
-		for (char[] row : board) {
-			for (char letter : row) {
-				if (letter != ' ') {
+		for (char[] column : columns) {
+			for (char letter : column) {
+				if (letter != ' ' && letter != NO_SQUARE) {
 					count++;
 				}
 			}
@@ -150,55 +342,74 @@ public class WordbrainBoard {
 	 * Build a new board, based on the current board, but with certain tiles removed. When tiles are removed from a
 	 * WordBrain board, the letters above them fall down to ensure the columns are filled up from the bottom, with any
 	 * spaces towards the top of the board.
+	 * <p>
+	 * Only the columns containing removed tiles are rebuilt. The new board shares the other columns with this one.
 	 *
 	 * @param squaresToRemove The coordinates of tiles to remove from the board.
 	 * @return The new board with the tiles removed.
 	 */
 	public WordbrainBoard withLettersRemoved(Coords2D[] squaresToRemove) {
-		List<Coords2D> removeList = Arrays.asList(squaresToRemove);
-		//Create blank board of correct size;
-		int yLen = board.length;
-		int xLen = board[0].length;
-		char[][] newBoard = new char[yLen][xLen];
-		for (int y = 0; y < yLen; y++) {
-			for (int x = 0; x < xLen; x++) {
-				newBoard[y][x] = ' ';
+		// Mark the squares to remove, column by column.
+		boolean[][] removed = new boolean[columns.length][];
+		for (Coords2D pos : squaresToRemove) {
+			validateCoords(pos.getX(), pos.getY());
+			if (removed[pos.getX()] == null) {
+				removed[pos.getX()] = new boolean[height];
 			}
+			removed[pos.getX()][pos.getY()] = true;
 		}
 
-		// Fill letters up from bottom, if not removed
-		for (Coords2D pos : Lists.reverse(getPositions())) {
-			if (removeList.contains(pos)) {
-				continue;
-			}
-			for (int y = yLen - 1; y >= 0; y--) {
-				if (newBoard[y][pos.getX()] == ' ') {
-					newBoard[y][pos.getX()] = getSquare(pos).get();
-					break;
-				}
+		char[][] newColumns = columns.clone();
+		for (int x = 0; x < columns.length; x++) {
+			if (removed[x] != null) {
+				newColumns[x] = fall(columns[x], removed[x]);
 			}
 		}
 
-		return new WordbrainBoard(newBoard);
+		return new WordbrainBoard(newColumns);
 	}
 
 	/**
-	 * Check whether this is a valid WordBrain board. Returns false if the rows are not of equal length, or if any
-	 * characters are not alphabetic.
+	 * Remove letters from a column, letting the letters above fall down to fill the gaps.
+	 *
+	 * @param column  The column.
+	 * @param removed Flags marking the squares to remove.
+	 * @return The new column.
+	 */
+	private static char[] fall(char[] column, boolean[] removed) {
+		char[] newColumn = new char[column.length];
+		int to = column.length - 1;
+		for (int from = column.length - 1; from >= 0; from--) {
+			if (!removed[from] && column[from] != ' ') {
+				newColumn[to--] = column[from];
+			}
+		}
+		Arrays.fill(newColumn, 0, to + 1, ' ');
+		return newColumn;
+	}
+
+	/**
+	 * Check whether this is a valid WordBrain board. Returns false if the rows are not of equal length, if any
+	 * characters are not alphabetic, or if the board has more than MAX_CELLS squares.
 	 *
 	 * @return Whether the board is valid.
 	 */
 	public boolean isValid() {
 		// Check rows equal length
-		if (board.length == 0) {
+		if (height == 0) {
 			return false;
 		}
-		if (board[0].length == 0) {
+		if (columns.length == 0) {
 			return false;
 		}
-		for (char[] row : board) {
-			if (row.length != board[0].length) {
-				return false;
+		if ((long) columns.length * height > MAX_CELLS) {
+			return false;
+		}
+		for (char[] column : columns) {
+			for (char letter : column) {
+				if (letter == NO_SQUARE) {
+					return false;
+				}
 			}
 		}
 
@@ -0,0 +1,169 @@
+package uk.co.ndall.wordgames;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * The letters used by a dictionary, each given a compact symbol id so that tries can index their branches with small
+ * ints rather than boxed Characters.
+ * <p>
+ * Letters are Unicode code points, so accented letters and letters outside the Basic Multilingual Plane (which take
+ * two chars in a Java String) are single letters like any other. Symbol ids are numbered from 0 in code point order,
+ * so two alphabets made from the same letters are identical. Letters below U+10000 are looked up in an array; others
+ * in a map.
+ */
+public final class Alphabet {
+
+	/**
+	 * Symbol id returned for a letter which isn't in the alphabet.
+	 */
+	public static final int NONE = -1;
+
+	// The code point of each symbol, in ascending order.
+	private final int[] codePoints;
+
+	// The symbol for each code point up to the largest one below U+10000 in the alphabet, or NONE.
+	private final int[] bmpSymbols;
+
+	// The symbol for each code point of U+10000 or above.
+	private final Map<Integer, Integer> supplementarySymbols = new HashMap<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param words The words whose letters make up the alphabet.
+	 */
+	public Alphabet(Iterable<String> words) {
+		this(collectLetters(words));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param codePoints The code point of each symbol, in ascending order. Not copied.
+	 */
+	private Alphabet(int[] codePoints) {
+		this.codePoints = codePoints;
+
+		int bmpLimit = 0;
+		for (int codePoint : codePoints) {
+			if (codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT) {
+				bmpLimit = codePoint + 1;
+			}
+		}
+		bmpSymbols = new int[bmpLimit];
+		Arrays.fill(bmpSymbols, NONE);
+		for (int symbol = 0; symbol < codePoints.length; symbol++) {
+			if (codePoints[symbol] < bmpLimit) {
+				bmpSymbols[codePoints[symbol]] = symbol;
+			} else {
+				supplementarySymbols.put(codePoints[symbol], symbol);
+			}
+		}
+	}
+
+	/**
+	 * Find the distinct letters used by some words.
+	 *
+	 * @param words The words.
+	 * @return The code points of the letters, in ascending order.
+	 */
+	private static int[] collectLetters(Iterable<String> words) {
+		TreeSet<Integer> letters = new TreeSet<>();
+		for (String word : words) {
+			word.codePoints().forEach(letters::add);
+		}
+		return letters.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Write this alphabet to a stream, to be read back by {@link #read}.
+	 *
+	 * @param out The stream.
+	 * @throws IOException If the stream could not be written.
+	 */
+	void write(DataOutputStream out) throws IOException {
+		DictionarySnapshot.writeInts(out, codePoints);
+	}
+
+	/**
+	 * Read an alphabet written by {@link #write}.
+	 *
+	 * @param in The stream.
+	 * @return The alphabet.
+	 * @throws IOException If the stream could not be read.
+	 */
+	static Alphabet read(DataInputStream in) throws IOException {
+		return new Alphabet(DictionarySnapshot.readInts(in));
+	}
+
+	/**
+	 * Get the number of letters in the alphabet.
+	 *
+	 * @return The number of letters. Symbol ids run from 0 to one less than this.
+	 */
+	public int size() {
+		return codePoints.length;
+	}
+
+	/**
+	 * Get the symbol id of a letter.
+	 *
+	 * @param codePoint The letter, as a code point (a char may be passed directly).
+	 * @return The symbol id, or NONE if the letter isn't in the alphabet.
+	 */
+	public int getSymbol(int codePoint) {
+		if (codePoint >= 0 && codePoint < bmpSymbols.length) {
+			return bmpSymbols[codePoint];
+		}
+		Integer symbol = supplementarySymbols.get(codePoint);
+		return symbol == null ? NONE : symbol;
+	}
+
+	/**
+	 * Get the letter with a symbol id.
+	 *
+	 * @param symbol The symbol id.
+	 * @return The letter, as a code point.
+	 * @throws IndexOutOfBoundsException If there is no such symbol.
+	 */
+	public int getCodePoint(int symbol) throws IndexOutOfBoundsException {
+		return codePoints[symbol];
+	}
+
+	/**
+	 * Convert a word into symbol ids, one per code point.
+	 *
+	 * @param word The word.
+	 * @return The symbol ids, or null if any letter of the word isn't in the alphabet.
+	 */
+	public int[] toSymbols(String word) {
+		int[] symbols = word.codePoints().map(this::getSymbol).toArray();
+		for (int symbol : symbols) {
+			if (symbol == NONE) {
+				return null;
+			}
+		}
+		return symbols;
+	}
+
+	/**
+	 * Convert symbol ids back into a word.
+	 *
+	 * @param symbols The symbol ids.
+	 * @return The word.
+	 * @throws IndexOutOfBoundsException If any symbol isn't in the alphabet.
+	 */
+	public String toWord(int[] symbols) throws IndexOutOfBoundsException {
+		StringBuilder word = new StringBuilder();
+		for (int symbol : symbols) {
+			word.appendCodePoint(codePoints[symbol]);
+		}
+		return word.toString();
+	}
+}
@@ -0,0 +1,73 @@
+package uk.co.ndall.wordgames;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Flight recorder event for building a dictionary: reading a word list into a WordTrie, reading a snapshot, or
+ * building a trie's packed or reversed form. Only create one if {@link FlightRecorderSupport#isAvailable} is true.
+ */
+@Name("uk.co.ndall.wordgames.DictionaryLoad")
+@Label("Dictionary Load")
+@Category({"WordBrain", "Dictionary"})
+@Description("A dictionary being read or built")
+@StackTrace(false)
+final class DictionaryLoadEvent extends Event {
+
+	/**
+	 * Source read from a list of words.
+	 */
+	static final String WORD_LIST = "word list";
+
+	/**
+	 * Source read from a snapshot.
+	 */
+	static final String SNAPSHOT = "snapshot";
+
+	/**
+	 * Source built from a WordTrie's nodes into a packed trie.
+	 */
+	static final String PACKED = "packed";
+
+	/**
+	 * Source built from a WordTrie's nodes into a trie of the words spelt backwards.
+	 */
+	static final String REVERSED = "reversed";
+
+	@Label("Source")
+	@Description("What the dictionary was built from, or built into")
+	String source;
+
+	@Label("Words")
+	int words;
+
+	/**
+	 * Create an event, and start timing it.
+	 *
+	 * @return The event.
+	 */
+	static DictionaryLoadEvent start() {
+		DictionaryLoadEvent event = new DictionaryLoadEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Stop timing the event, and record it if it is enabled.
+	 *
+	 * @param source What the dictionary was built from or into.
+	 * @param words  The number of words in the dictionary.
+	 */
+	void finish(String source, int words) {
+		end();
+		if (shouldCommit()) {
+			this.source = source;
+			this.words = words;
+			commit();
+		}
+	}
+}
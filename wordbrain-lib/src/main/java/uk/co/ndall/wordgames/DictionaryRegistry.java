@@ -0,0 +1,325 @@
+package uk.co.ndall.wordgames;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * A collection of named word lists, each of which is loaded into a WordTrie the first time it is asked for. Loaded
+ * tries are shared by everything that asks for the same id, so several solvers can use one registry without building
+ * the same trie twice.
+ * <p>
+ * Loaded tries are held in a cache. By default they are softly referenced, so the garbage collector can drop rarely
+ * used dictionaries when memory runs low. Alternatively a maximum total weight (measured in trie nodes) can be given, in
+ * which case the least recently used dictionaries are evicted to stay within it. Either way, an evicted dictionary is
+ * simply reloaded from its source the next time it is needed.
+ * <p>
+ * A dictionary can be reloaded while it is in use. The new trie is built in the background and then swapped in, so
+ * lookups never wait for it, and anything already holding the old trie carries on using it.
+ */
+public class DictionaryRegistry {
+
+	/**
+	 * A source of words for a dictionary.
+	 */
+	@FunctionalInterface
+	public interface WordSource {
+
+		/**
+		 * Open the source and read its words. The caller closes the returned stream.
+		 *
+		 * @return Stream of words.
+		 * @throws IOException There was a problem reading the words.
+		 */
+		Stream<String> open() throws IOException;
+	}
+
+	/**
+	 * Something which loads a dictionary's trie.
+	 */
+	@FunctionalInterface
+	private interface TrieSource {
+
+		/**
+		 * Load the trie.
+		 *
+		 * @return The trie.
+		 * @throws IOException There was a problem reading the dictionary.
+		 */
+		WordTrie load() throws IOException;
+	}
+
+	// Where to load each registered dictionary id from.
+	private final Map<String, TrieSource> sources = new ConcurrentHashMap<>();
+
+	// Dictionaries which have been loaded, keyed by id.
+	private final LoadingCache<String, WordTrie> loaded;
+
+	// Number of times each id has been registered or reloaded, used to discard reloads that have been superseded.
+	// Guarded by synchronizing on this registry.
+	private final Map<String, Long> versions = new HashMap<>();
+
+	/**
+	 * Constructor for a registry whose loaded dictionaries may be garbage collected under memory pressure.
+	 */
+	public DictionaryRegistry() {
+		loaded = CacheBuilder.newBuilder()
+				.softValues()
+				.build(new Loader());
+	}
+
+	/**
+	 * Constructor for a registry that keeps the total size of its loaded dictionaries within a budget.
+	 *
+	 * @param maximumNodes Maximum number of trie nodes to keep loaded across all dictionaries.
+	 */
+	public DictionaryRegistry(long maximumNodes) {
+		// A single segment, since the cache splits its budget between segments and a registry only holds a few large
+		// dictionaries.
+		loaded = CacheBuilder.newBuilder()
+				.concurrencyLevel(1)
+				.maximumWeight(maximumNodes)
+				.weigher((String id, WordTrie trie) -> trie.countNodes())
+				.build(new Loader());
+	}
+
+	/**
+	 * Register a dictionary. Nothing is read until the dictionary is first asked for. Registering an id again replaces
+	 * its source, and discards any dictionary already loaded from the old one.
+	 *
+	 * @param id     The id used to ask for the dictionary.
+	 * @param source Where to read the dictionary's words from.
+	 */
+	public void register(String id, WordSource source) {
+		registerSource(id, () -> read(source));
+	}
+
+	/**
+	 * Register a dictionary. Registering an id again replaces its source, and discards any dictionary already loaded
+	 * from the old one.
+	 *
+	 * @param id     The id used to ask for the dictionary.
+	 * @param source Where to load the dictionary's trie from.
+	 */
+	private void registerSource(String id, TrieSource source) {
+		synchronized (this) {
+			sources.put(id, source);
+			nextVersion(id);
+			loaded.invalidate(id);
+		}
+	}
+
+	/**
+	 * Register a dictionary stored in a file, with one word per line.
+	 *
+	 * @param id   The id used to ask for the dictionary.
+	 * @param path The file containing the words.
+	 */
+	public void registerFile(String id, Path path) {
+		register(id, () -> Files.lines(path, StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Register a dictionary stored as a classpath resource, with one word per line.
+	 *
+	 * @param id           The id used to ask for the dictionary.
+	 * @param owner        Class used to find the resource.
+	 * @param resourceName Name of the resource (see {@link Class#getResourceAsStream(String)}).
+	 */
+	public void registerResource(String id, Class<?> owner, String resourceName) {
+		register(id, () -> {
+			InputStream in = owner.getResourceAsStream(resourceName);
+			if (in == null) {
+				throw new IOException(MessageFormat.format("Resource {0} not found", resourceName));
+			}
+			BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+			return reader.lines().onClose(() -> {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		});
+	}
+
+	/**
+	 * Register a dictionary stored as a classpath resource holding a snapshot of its tries (see
+	 * {@link DictionarySnapshot}), which loads much faster than a word list.
+	 *
+	 * @param id           The id used to ask for the dictionary.
+	 * @param owner        Class used to find the resource.
+	 * @param resourceName Name of the resource (see {@link Class#getResourceAsStream(String)}).
+	 */
+	public void registerSnapshotResource(String id, Class<?> owner, String resourceName) {
+		registerSource(id, () -> {
+			try (InputStream in = owner.getResourceAsStream(resourceName)) {
+				if (in == null) {
+					throw new IOException(MessageFormat.format("Resource {0} not found", resourceName));
+				}
+				return DictionarySnapshot.read(in);
+			}
+		});
+	}
+
+	/**
+	 * Get a dictionary, loading it if this is the first time it has been asked for (or if it has been evicted).
+	 *
+	 * @param id The dictionary id.
+	 * @return The dictionary.
+	 * @throws IllegalArgumentException If no dictionary is registered with this id.
+	 * @throws UncheckedIOException     If the dictionary could not be read.
+	 */
+	public WordTrie get(String id) throws IllegalArgumentException, UncheckedIOException {
+		if (!sources.containsKey(id)) {
+			throw new IllegalArgumentException(MessageFormat.format("No dictionary registered as \"{0}\"", id));
+		}
+		try {
+			return loaded.getUnchecked(id);
+		} catch (UncheckedExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw new UncheckedIOException((IOException) e.getCause());
+			}
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Check whether a dictionary is currently loaded.
+	 *
+	 * @param id The dictionary id.
+	 * @return True if the dictionary is loaded, false if it has not been loaded yet or has been evicted.
+	 */
+	public boolean isLoaded(String id) {
+		return loaded.getIfPresent(id) != null;
+	}
+
+	/**
+	 * Unload a dictionary. It stays registered, and will be reloaded next time it is asked for.
+	 *
+	 * @param id The dictionary id.
+	 */
+	public void evict(String id) {
+		loaded.invalidate(id);
+	}
+
+	/**
+	 * Re-read a dictionary from its source in the background, and swap it in once it is ready. Until then, the
+	 * current version carries on being used. If the dictionary is registered or reloaded again before this reload
+	 * finishes, the result of this reload is discarded.
+	 *
+	 * @param id The dictionary id.
+	 * @return Future completed with the newly read dictionary.
+	 * @throws IllegalArgumentException If no dictionary is registered with this id.
+	 */
+	public CompletableFuture<WordTrie> reload(String id) throws IllegalArgumentException {
+		return reload(id, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Re-read a dictionary from its source in the background, and swap it in once it is ready. Until then, the
+	 * current version carries on being used. If the dictionary is registered or reloaded again before this reload
+	 * finishes, the result of this reload is discarded.
+	 *
+	 * @param id       The dictionary id.
+	 * @param executor Executor used to read the dictionary.
+	 * @return Future completed with the newly read dictionary.
+	 * @throws IllegalArgumentException If no dictionary is registered with this id.
+	 */
+	public CompletableFuture<WordTrie> reload(String id, Executor executor) throws IllegalArgumentException {
+		final TrieSource source;
+		final long version;
+		synchronized (this) {
+			source = sources.get(id);
+			if (source == null) {
+				throw new IllegalArgumentException(MessageFormat.format("No dictionary registered as \"{0}\"", id));
+			}
+			version = nextVersion(id);
+		}
+
+		return CompletableFuture
+				.supplyAsync(() -> {
+					try {
+						return source.load();
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				}, executor)
+				.thenApply(trie -> {
+					synchronized (this) {
+						if (versions.get(id) == version) {
+							loaded.put(id, trie);
+						}
+					}
+					return trie;
+				});
+	}
+
+	/**
+	 * Increment the version of a dictionary. Must be called while synchronized on this registry.
+	 *
+	 * @param id The dictionary id.
+	 * @return The new version.
+	 */
+	private long nextVersion(String id) {
+		long version = versions.getOrDefault(id, 0L) + 1;
+		versions.put(id, version);
+		return version;
+	}
+
+	/**
+	 * Read the words from a source into a new WordTrie.
+	 *
+	 * @param source The source.
+	 * @return The new trie.
+	 * @throws IOException There was a problem reading the words.
+	 */
+	static WordTrie read(WordSource source) throws IOException {
+		try (Stream<String> words = source.open()) {
+			return new WordTrie(words);
+		}
+	}
+
+	/**
+	 * Get the ids of all registered dictionaries.
+	 *
+	 * @return Unmodifiable view of the registered ids.
+	 */
+	public Set<String> getIds() {
+		return Collections.unmodifiableSet(sources.keySet());
+	}
+
+	/**
+	 * Reads a registered dictionary into a new WordTrie.
+	 */
+	private class Loader extends CacheLoader<String, WordTrie> {
+
+		@Override
+		public WordTrie load(String id) throws IOException {
+			return sources.get(id).load();
+		}
+	}
+}
@@ -0,0 +1,158 @@
+package uk.co.ndall.wordgames;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads and writes snapshots of a WordTrie: its packed trie, statistics and reversed packed trie, ready to be used by
+ * the solver. Reading a snapshot is a few bulk array copies, so is much quicker than reading a word list and building
+ * the tries from it. A trie read from a snapshot only builds its nodes if something other than the solver needs them.
+ * <p>
+ * A snapshot is tied to the layout of these classes, so should be rebuilt from the word list as part of the build,
+ * rather than kept.
+ */
+public final class DictionarySnapshot {
+
+	// Identifies a snapshot, and the version of its layout.
+	private static final int MAGIC = 0x57425301;
+
+	// Size of the buffer used to read and write snapshots.
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Constructor. Not used: this class only has static methods.
+	 */
+	private DictionarySnapshot() {
+	}
+
+	/**
+	 * Write a snapshot of a trie, building its packed tries and statistics if they haven't been built yet.
+	 *
+	 * @param trie The trie.
+	 * @param out  The stream to write to. Flushed, but not closed.
+	 * @throws IOException If the stream could not be written.
+	 */
+	public static void write(WordTrie trie, OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+		data.writeInt(MAGIC);
+		trie.getPacked().write(data);
+		trie.getStatistics().write(data);
+		trie.getReversed().getPacked().write(data);
+		data.flush();
+	}
+
+	/**
+	 * Read a snapshot written by {@link #write}.
+	 *
+	 * @param in The stream to read from. Not closed.
+	 * @return The trie, with its packed tries and statistics already built.
+	 * @throws IOException If the stream could not be read, or doesn't hold a snapshot.
+	 */
+	public static WordTrie read(InputStream in) throws IOException {
+		DictionaryLoadEvent event = FlightRecorderSupport.isAvailable() ? DictionaryLoadEvent.start() : null;
+		DataInputStream data = new DataInputStream(new BufferedInputStream(in, BUFFER_SIZE));
+		if (data.readInt() != MAGIC) {
+			throw new IOException("Not a dictionary snapshot, or written by a different version");
+		}
+		PackedTrie packed = PackedTrie.read(data);
+		WordStatistics statistics = WordStatistics.read(data);
+		WordTrie reversed = new WordTrie(PackedTrie.read(data), null, null);
+		if (event != null) {
+			int words = 0;
+			for (int length = 0; length <= statistics.getMaxLength(); length++) {
+				words += statistics.countWords(length);
+			}
+			event.finish(DictionaryLoadEvent.SNAPSHOT, words);
+		}
+		return new WordTrie(packed, statistics, reversed);
+	}
+
+	/**
+	 * Write an array of ints, preceded by its length.
+	 *
+	 * @param out    The stream.
+	 * @param values The array.
+	 * @throws IOException If the stream could not be written.
+	 */
+	static void writeInts(DataOutputStream out, int[] values) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(values.length * Integer.BYTES);
+		bytes.asIntBuffer().put(values);
+		out.writeInt(values.length);
+		out.write(bytes.array());
+	}
+
+	/**
+	 * Read an array of ints written by {@link #writeInts}.
+	 *
+	 * @param in The stream.
+	 * @return The array.
+	 * @throws IOException If the stream could not be read.
+	 */
+	static int[] readInts(DataInputStream in) throws IOException {
+		int[] values = new int[readLength(in)];
+		ByteBuffer.wrap(readBytes(in, values.length * Integer.BYTES)).asIntBuffer().get(values);
+		return values;
+	}
+
+	/**
+	 * Write an array of longs, preceded by its length.
+	 *
+	 * @param out    The stream.
+	 * @param values The array.
+	 * @throws IOException If the stream could not be written.
+	 */
+	static void writeLongs(DataOutputStream out, long[] values) throws IOException {
+		ByteBuffer bytes = ByteBuffer.allocate(values.length * Long.BYTES);
+		bytes.asLongBuffer().put(values);
+		out.writeInt(values.length);
+		out.write(bytes.array());
+	}
+
+	/**
+	 * Read an array of longs written by {@link #writeLongs}.
+	 *
+	 * @param in The stream.
+	 * @return The array.
+	 * @throws IOException If the stream could not be read.
+	 */
+	static long[] readLongs(DataInputStream in) throws IOException {
+		long[] values = new long[readLength(in)];
+		ByteBuffer.wrap(readBytes(in, values.length * Long.BYTES)).asLongBuffer().get(values);
+		return values;
+	}
+
+	/**
+	 * Read the length of an array.
+	 *
+	 * @param in The stream.
+	 * @return The length.
+	 * @throws IOException If the stream could not be read, or the length is too large.
+	 */
+	private static int readLength(DataInputStream in) throws IOException {
+		int length = in.readInt();
+		if (length < 0 || length > Integer.MAX_VALUE / Long.BYTES) {
+			throw new IOException("Invalid array length in dictionary snapshot: " + length);
+		}
+		return length;
+	}
+
+	/**
+	 * Read a number of bytes.
+	 *
+	 * @param in    The stream.
+	 * @param count The number of bytes.
+	 * @return The bytes.
+	 * @throws IOException If the stream could not be read, or ended first.
+	 */
+	private static byte[] readBytes(DataInputStream in, int count) throws IOException {
+		byte[] bytes = new byte[count];
+		in.readFully(bytes);
+		return bytes;
+	}
+}
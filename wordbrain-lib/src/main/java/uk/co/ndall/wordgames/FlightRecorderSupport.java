@@ -0,0 +1,42 @@
+package uk.co.ndall.wordgames;
+
+/**
+ * Checks whether Java Flight Recorder events can be emitted. The event classes extend jdk.jfr.Event, which is only
+ * available on Java 8u262 or later, and can be left out of a custom runtime. They are only loaded after this check
+ * passes, so the library still runs without it.
+ */
+public final class FlightRecorderSupport {
+
+	// Whether the jdk.jfr API is available.
+	private static final boolean AVAILABLE = checkAvailable();
+
+	/**
+	 * Constructor. Not used: this class only has static methods.
+	 */
+	private FlightRecorderSupport() {
+	}
+
+	/**
+	 * Check whether Java Flight Recorder events can be emitted. Events are only recorded while a recording is running,
+	 * e.g. one started with -XX:StartFlightRecording.
+	 *
+	 * @return True if the jdk.jfr API is available.
+	 */
+	public static boolean isAvailable() {
+		return AVAILABLE;
+	}
+
+	/**
+	 * Check whether the jdk.jfr API is available.
+	 *
+	 * @return True if it is.
+	 */
+	private static boolean checkAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, FlightRecorderSupport.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,414 @@
+package uk.co.ndall.wordgames;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * A read-only trie of words held in a few flat arrays, for fast searching without boxing or hashing.
+ * <p>
+ * Each letter is a symbol id from the trie's {@link Alphabet}, and each node is an int. Nodes are numbered breadth
+ * first from the root (node 0), so the children of a node are numbered consecutively and only the first needs
+ * storing, along with the symbol on the branch to each child (sorted, so a child can be found by a short scan or a
+ * binary search). Each node also has a bit mask of the distances to the items below it, as in
+ * {@link TrieNode#hasItemAtDistance}. That is 16 bytes per node, compared with a HashMap and its entries per node for
+ * a WordTrie.
+ * <p>
+ * Letters are code points, so a letter outside the Basic Multilingual Plane is one branch, not two.
+ */
+public final class PackedTrie {
+
+	/**
+	 * The root node.
+	 */
+	public static final int ROOT = 0;
+
+	/**
+	 * Character in a pattern (see {@link #matching}) which matches any letter.
+	 */
+	public static final char WILDCARD = '?';
+
+	/**
+	 * Node returned when there is no child on a branch.
+	 */
+	public static final int NO_NODE = -1;
+
+	// The letters of the words.
+	private final Alphabet alphabet;
+
+	// For each node, the index in symbols of its first child's branch, followed by the total number of branches. The
+	// child on branch i is node i + 1.
+	private final int[] firstChildren;
+
+	// The symbol on the branch to each node except the root, sorted within each node's children.
+	private final int[] symbols;
+
+	// For each node, a bit mask of the distances to the items below it (see TrieNode).
+	private final long[] itemDistances;
+
+	/**
+	 * Constructor, using an alphabet made from the words.
+	 *
+	 * @param words The words to put into the trie.
+	 */
+	public PackedTrie(Iterable<String> words) {
+		this(words, new Alphabet(words));
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param words    The words to put into the trie.
+	 * @param alphabet The letters the words may use.
+	 * @throws IllegalArgumentException If any word has a letter which isn't in the alphabet.
+	 */
+	public PackedTrie(Iterable<String> words, Alphabet alphabet) throws IllegalArgumentException {
+		this.alphabet = alphabet;
+
+		// Sort the words by symbol, so that the words below each node are consecutive.
+		List<int[]> list = new ArrayList<>();
+		int letters = 0;
+		for (String word : words) {
+			int[] wordSymbols = alphabet.toSymbols(word);
+			if (wordSymbols == null) {
+				throw new IllegalArgumentException("Word has letters which are not in the alphabet: " + word);
+			}
+			list.add(wordSymbols);
+			letters += wordSymbols.length;
+		}
+		int[][] sorted = list.toArray(new int[list.size()][]);
+		Arrays.sort(sorted, PackedTrie::compare);
+
+		// Build the nodes breadth first. Each node covers the range of sorted words starting with its prefix; there can
+		// be no more nodes than letters, plus the root.
+		int[] firsts = new int[letters + 2];
+		int[] branches = new int[letters];
+		int[] starts = new int[letters + 1];
+		int[] ends = new int[letters + 1];
+		int[] depths = new int[letters + 1];
+		long[] distances = new long[letters + 1];
+		ends[ROOT] = sorted.length;
+		int count = 1;
+		for (int node = 0; node < count; node++) {
+			firsts[node] = count - 1;
+			int start = starts[node];
+			int depth = depths[node];
+			while (start < ends[node] && sorted[start].length == depth) {
+				// Shorter words sort first, so any words ending at this node come before the longer ones.
+				distances[node] = 1L;
+				start++;
+			}
+			while (start < ends[node]) {
+				int symbol = sorted[start][depth];
+				int end = start;
+				while (end < ends[node] && sorted[end][depth] == symbol) {
+					end++;
+				}
+				branches[count - 1] = symbol;
+				starts[count] = start;
+				ends[count] = end;
+				depths[count] = depth + 1;
+				count++;
+				start = end;
+			}
+		}
+		firsts[count] = count - 1;
+
+		// Children are numbered after their parents, so work backwards to fill in the distances to items below.
+		for (int node = count - 1; node >= 0; node--) {
+			for (int branch = firsts[node]; branch < firsts[node + 1]; branch++) {
+				long child = distances[branch + 1];
+				distances[node] |= (child << 1) | (child & Long.MIN_VALUE);
+			}
+		}
+
+		this.firstChildren = Arrays.copyOf(firsts, count + 1);
+		this.symbols = Arrays.copyOf(branches, count - 1);
+		this.itemDistances = Arrays.copyOf(distances, count);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param alphabet      The letters the words use.
+	 * @param firstChildren For each node, the index of its first child's branch, then the number of branches.
+	 * @param symbols       The symbol on the branch to each node except the root.
+	 * @param itemDistances For each node, a bit mask of the distances to the items below it.
+	 */
+	private PackedTrie(Alphabet alphabet, int[] firstChildren, int[] symbols, long[] itemDistances) {
+		this.alphabet = alphabet;
+		this.firstChildren = firstChildren;
+		this.symbols = symbols;
+		this.itemDistances = itemDistances;
+	}
+
+	/**
+	 * Write this trie to a stream, to be read back by {@link #read}.
+	 *
+	 * @param out The stream.
+	 * @throws IOException If the stream could not be written.
+	 */
+	void write(DataOutputStream out) throws IOException {
+		alphabet.write(out);
+		DictionarySnapshot.writeInts(out, firstChildren);
+		DictionarySnapshot.writeInts(out, symbols);
+		DictionarySnapshot.writeLongs(out, itemDistances);
+	}
+
+	/**
+	 * Read a trie written by {@link #write}.
+	 *
+	 * @param in The stream.
+	 * @return The trie.
+	 * @throws IOException If the stream could not be read, or doesn't hold a valid trie.
+	 */
+	static PackedTrie read(DataInputStream in) throws IOException {
+		Alphabet alphabet = Alphabet.read(in);
+		int[] firstChildren = DictionarySnapshot.readInts(in);
+		int[] symbols = DictionarySnapshot.readInts(in);
+		long[] itemDistances = DictionarySnapshot.readLongs(in);
+		if (firstChildren.length != itemDistances.length + 1 || symbols.length != itemDistances.length - 1) {
+			throw new IOException("Packed trie arrays have inconsistent lengths");
+		}
+		return new PackedTrie(alphabet, firstChildren, symbols, itemDistances);
+	}
+
+	/**
+	 * Compare two words by symbol, with a word sorting before any longer word it is a prefix of.
+	 *
+	 * @param a The first word.
+	 * @param b The second word.
+	 * @return Negative, zero or positive as a is before, equal to or after b.
+	 */
+	private static int compare(int[] a, int[] b) {
+		for (int i = 0; i < a.length && i < b.length; i++) {
+			if (a[i] != b[i]) {
+				return Integer.compare(a[i], b[i]);
+			}
+		}
+		return Integer.compare(a.length, b.length);
+	}
+
+	/**
+	 * Get the letters of the words in this trie.
+	 *
+	 * @return The alphabet.
+	 */
+	public Alphabet getAlphabet() {
+		return alphabet;
+	}
+
+	/**
+	 * Get the child of a node on a particular branch.
+	 *
+	 * @param node   The node.
+	 * @param symbol The symbol id of the letter on the branch (see getAlphabet).
+	 * @return The child node, or NO_NODE if there is no such branch.
+	 */
+	public int getChild(int node, int symbol) {
+		int low = firstChildren[node];
+		int high = firstChildren[node + 1] - 1;
+		if (high - low < 8) {
+			// Most nodes have only a few children, which are quicker to scan in order.
+			for (int branch = low; branch <= high && symbols[branch] <= symbol; branch++) {
+				if (symbols[branch] == symbol) {
+					return branch + 1;
+				}
+			}
+			return NO_NODE;
+		}
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			if (symbols[middle] < symbol) {
+				low = middle + 1;
+			} else if (symbols[middle] > symbol) {
+				high = middle - 1;
+			} else {
+				return middle + 1;
+			}
+		}
+		return NO_NODE;
+	}
+
+	/**
+	 * Get the first branch from a node. The node's branches are numbered from this up to getBranchEnd, and the child
+	 * on branch i is node i + 1.
+	 *
+	 * @param node The node.
+	 * @return The first branch.
+	 */
+	int getFirstBranch(int node) {
+		return firstChildren[node];
+	}
+
+	/**
+	 * Get the branch after the last branch from a node.
+	 *
+	 * @param node The node.
+	 * @return The end of the node's branches.
+	 */
+	int getBranchEnd(int node) {
+		return firstChildren[node + 1];
+	}
+
+	/**
+	 * Get the symbol on a branch.
+	 *
+	 * @param branch The branch.
+	 * @return The symbol id of the letter on the branch.
+	 */
+	int getBranchSymbol(int branch) {
+		return symbols[branch];
+	}
+
+	/**
+	 * Check whether a node represents an item.
+	 *
+	 * @param node The node.
+	 * @return True if the letters on the path to the node are a word.
+	 */
+	public boolean isItem(int node) {
+		return (itemDistances[node] & 1L) != 0;
+	}
+
+	/**
+	 * Check whether there are any items a certain number of branches below a node. Used to rule out prefixes which
+	 * are not the start of any item of the required length.
+	 *
+	 * @param node     The node.
+	 * @param distance The number of branches (0 to check whether the node is an item). Distances of 63 or more are
+	 *                 treated as equivalent.
+	 * @return True if there is at least one item at that distance.
+	 */
+	public boolean hasItemAtDistance(int node, int distance) {
+		return (itemDistances[node] & (1L << Math.min(distance, 63))) != 0;
+	}
+
+	/**
+	 * Check whether a word is in this trie.
+	 *
+	 * @param word The word.
+	 * @return True if the word is present.
+	 */
+	public boolean has(String word) {
+		int node = ROOT;
+		for (int i = 0; i < word.length() && node != NO_NODE; ) {
+			int codePoint = word.codePointAt(i);
+			int symbol = alphabet.getSymbol(codePoint);
+			node = symbol == Alphabet.NONE ? NO_NODE : getChild(node, symbol);
+			i += Character.charCount(codePoint);
+		}
+		return node != NO_NODE && isItem(node);
+	}
+
+	/**
+	 * Find the words made from exactly the given letters, using each as many times as it appears.
+	 *
+	 * @param letters The letters.
+	 * @return Lazy stream of the words, in symbol order.
+	 */
+	public Stream<String> anagrams(String letters) {
+		return anagrams(letters, letters.codePointCount(0, letters.length()));
+	}
+
+	/**
+	 * Find the words of a certain length made from some of the given letters, using each no more times than it
+	 * appears.
+	 *
+	 * @param letters The letters.
+	 * @param length  The length of the words.
+	 * @return Lazy stream of the words, in symbol order.
+	 */
+	public Stream<String> anagrams(String letters, int length) {
+		StringBuilder pattern = new StringBuilder();
+		for (int i = 0; i < length; i++) {
+			pattern.append(WILDCARD);
+		}
+		return matching(pattern.toString(), letters);
+	}
+
+	/**
+	 * Find the words matching a pattern.
+	 *
+	 * @param pattern The pattern: a letter for each letter of the word, or WILDCARD to match any letter.
+	 * @return Lazy stream of the words, in symbol order.
+	 */
+	public Stream<String> matching(String pattern) {
+		return matching(pattern, null);
+	}
+
+	/**
+	 * Find the words matching a pattern, made from some of the given letters. Letters given in the pattern count
+	 * towards the letters used.
+	 *
+	 * @param pattern The pattern: a letter for each letter of the word, or WILDCARD to match any letter.
+	 * @param letters The letters the words may use, each no more times than it appears, or null for any letters.
+	 * @return Lazy stream of the words, in symbol order.
+	 */
+	public Stream<String> matching(String pattern, String letters) {
+		int[] symbols = pattern.codePoints()
+				.map(codePoint -> codePoint == WILDCARD ? TrieQuery.ANY : alphabet.getSymbol(codePoint))
+				.toArray();
+		for (int symbol : symbols) {
+			if (symbol == Alphabet.NONE) {
+				return Stream.empty();
+			}
+		}
+
+		int[] available = null;
+		if (letters != null) {
+			// Letters which aren't in the alphabet can't be in any word, so are left out.
+			available = new int[alphabet.size()];
+			for (int codePoint : letters.codePoints().toArray()) {
+				int symbol = alphabet.getSymbol(codePoint);
+				if (symbol != Alphabet.NONE) {
+					available[symbol]++;
+				}
+			}
+		}
+		return StreamSupport.stream(new TrieQuery(this, symbols, available), false);
+	}
+
+	/**
+	 * Pass each word in this trie to a consumer, in symbol order.
+	 *
+	 * @param consumer The consumer.
+	 */
+	public void forEachWord(Consumer<String> consumer) {
+		forEachWord(ROOT, new StringBuilder(), consumer);
+	}
+
+	/**
+	 * Pass each word below a node to a consumer.
+	 *
+	 * @param node     The node.
+	 * @param prefix   The letters on the path to the node. Restored to its original contents before returning.
+	 * @param consumer The consumer.
+	 */
+	private void forEachWord(int node, StringBuilder prefix, Consumer<String> consumer) {
+		if (isItem(node)) {
+			consumer.accept(prefix.toString());
+		}
+		int length = prefix.length();
+		for (int branch = firstChildren[node]; branch < firstChildren[node + 1]; branch++) {
+			prefix.appendCodePoint(alphabet.getCodePoint(symbols[branch]));
+			forEachWord(branch + 1, prefix, consumer);
+			prefix.setLength(length);
+		}
+	}
+
+	/**
+	 * Count the nodes in this trie. Useful as a rough measure of the memory used.
+	 *
+	 * @return The number of nodes, including the root.
+	 */
+	public int countNodes() {
+		return itemDistances.length;
+	}
+}
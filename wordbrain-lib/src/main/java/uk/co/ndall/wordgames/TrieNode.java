@@ -1,9 +1,11 @@
 package uk.co.ndall.wordgames;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * Class representing a node in a Trie, or "Prefix Tree".
@@ -18,7 +20,13 @@ public class TrieNode<T> {
 	/**
 	 * This node's children.
 	 */
-	private Map<T, TrieNode> children = new HashMap<>();
+	private Map<T, TrieNode<T>> children = new HashMap<>();
+
+	/**
+	 * Bit mask of the distances (numbers of branches) from this node to items below it. Bit 0 is set if this node is an
+	 * item, and bit 63 covers every distance of 63 or more.
+	 */
+	private long itemDistances = 0;
 
 	/**
 	 * Create an the item represented by a particular sequence of branches as a descendant of this node.
@@ -26,13 +34,15 @@ public class TrieNode<T> {
 	 * @param sequence Sequence of values representing the branch path to the item to create.
 	 */
 	public void createItem(List<T> sequence) {
+		itemDistances |= distanceBit(sequence.size());
+
 		// Add the child represented by the next element, if not already present.
 		if (!children.containsKey(sequence.get(0))) {
-			children.put(sequence.get(0), new TrieNode());
+			children.put(sequence.get(0), new TrieNode<>());
 		}
 
 		// Now that the child exists, get it.
-		TrieNode child = children.get(sequence.remove(0));
+		TrieNode<T> child = children.get(sequence.remove(0));
 		if (sequence.isEmpty()) {
 			// Base case: the child represents the added item.
 			child.setItem(true);
@@ -59,13 +69,58 @@ public class TrieNode<T> {
 	 * @return The child node.
 	 * @throws NoSuchElementException if there is no child at the specified branch.
 	 */
-	public TrieNode getChild(T branch) throws NoSuchElementException {
+	public TrieNode<T> getChild(T branch) throws NoSuchElementException {
 		if (!hasChild(branch)) {
 			throw new NoSuchElementException("No such child: " + branch);
 		}
 		return children.get(branch);
 	}
 
+	/**
+	 * Check whether there are any items a certain number of branches below this node. Used to rule out prefixes which
+	 * are not the start of any item of the required length.
+	 *
+	 * @param distance The number of branches (0 to check whether this node is an item). Distances of 63 or more are
+	 *                 treated as equivalent.
+	 * @return True if there is at least one item at that distance.
+	 */
+	public boolean hasItemAtDistance(int distance) {
+		return (itemDistances & distanceBit(distance)) != 0;
+	}
+
+	/**
+	 * Get the bit representing a distance in the itemDistances mask.
+	 *
+	 * @param distance The distance.
+	 * @return The bit.
+	 */
+	private static long distanceBit(int distance) {
+		return 1L << Math.min(distance, 63);
+	}
+
+	/**
+	 * Get the branches of this node which lead to children.
+	 *
+	 * @return Unmodifiable view of the branches.
+	 */
+	public Set<T> getBranches() {
+		return Collections.unmodifiableSet(children.keySet());
+	}
+
+	/**
+	 * Count the nodes in the subtree rooted at this node (including this node). Useful as a rough measure of the memory
+	 * used by a trie.
+	 *
+	 * @return The number of nodes.
+	 */
+	public int countNodes() {
+		int count = 1;
+		for (TrieNode<T> child : children.values()) {
+			count += child.countNodes();
+		}
+		return count;
+	}
+
 	/**
 	 * Check whether an item represented by a particular sequence of branches is a descendent of this node.
 	 *
@@ -93,6 +148,9 @@ public class TrieNode<T> {
 	 */
 	private void setItem(boolean value) {
 		this.isItem = value;
+		if (value) {
+			itemDistances |= distanceBit(0);
+		}
 	}
 
 	/**
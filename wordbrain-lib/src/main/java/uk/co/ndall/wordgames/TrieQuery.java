@@ -0,0 +1,116 @@
+package uk.co.ndall.wordgames;
+
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * A search of a PackedTrie for the words of one length which fit a pattern and/or a multiset of letters, producing
+ * them one at a time so that the results can be streamed lazily.
+ * <p>
+ * The trie is walked depth first without recursion, keeping the node and next branch to try at each depth. Branches
+ * are pruned as soon as they can't lead to a result: a branch whose letter doesn't match the pattern at that
+ * position, whose letter has none left in the multiset, or whose node has no words at the right distance below it
+ * (see {@link PackedTrie#hasItemAtDistance}). So only prefixes of results are visited, however big the dictionary.
+ */
+final class TrieQuery extends Spliterators.AbstractSpliterator<String> {
+
+	/**
+	 * Pattern symbol matching any letter.
+	 */
+	static final int ANY = -2;
+
+	// The trie to search.
+	private final PackedTrie trie;
+
+	// The length of the words to find.
+	private final int length;
+
+	// The symbol required at each position, or ANY.
+	private final int[] pattern;
+
+	// The number of each symbol left to use, or null if letters may be used any number of times.
+	private final int[] available;
+
+	// The node reached at each depth (nodes[0] is the root).
+	private final int[] nodes;
+
+	// The next branch to try at each depth.
+	private final int[] branches;
+
+	// The symbol on the branch taken at each depth.
+	private final int[] symbols;
+
+	// The current depth, or -1 once the search has finished.
+	private int depth;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param trie      The trie to search.
+	 * @param pattern   The symbol required at each position, or ANY; its length is the length of the words to find.
+	 *                  Not copied.
+	 * @param available The number of each symbol which may be used, or null if letters may be used any number of
+	 *                  times. Not copied, and modified during the search.
+	 */
+	TrieQuery(PackedTrie trie, int[] pattern, int[] available) {
+		super(Long.MAX_VALUE, Spliterator.DISTINCT | Spliterator.NONNULL | Spliterator.ORDERED);
+		this.trie = trie;
+		this.length = pattern.length;
+		this.pattern = pattern;
+		this.available = available;
+		this.nodes = new int[length + 1];
+		this.branches = new int[length + 1];
+		this.symbols = new int[length];
+		this.depth = trie.hasItemAtDistance(PackedTrie.ROOT, length) ? 0 : -1;
+		this.branches[0] = trie.getFirstBranch(PackedTrie.ROOT);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super String> action) {
+		while (depth >= 0) {
+			if (depth == length) {
+				// Only nodes with words at the right distance are entered, so this node is a word.
+				String word = trie.getAlphabet().toWord(symbols);
+				up();
+				action.accept(word);
+				return true;
+			}
+
+			int node = nodes[depth];
+			int branch = branches[depth];
+			if (branch >= trie.getBranchEnd(node)) {
+				up();
+				continue;
+			}
+			branches[depth]++;
+
+			int symbol = trie.getBranchSymbol(branch);
+			int child = branch + 1;
+			if ((pattern[depth] != ANY && pattern[depth] != symbol)
+					|| (available != null && available[symbol] == 0)
+					|| !trie.hasItemAtDistance(child, length - depth - 1)) {
+				continue;
+			}
+
+			if (available != null) {
+				available[symbol]--;
+			}
+			symbols[depth] = symbol;
+			depth++;
+			nodes[depth] = child;
+			branches[depth] = trie.getFirstBranch(child);
+		}
+		return false;
+	}
+
+	/**
+	 * Go back up a level, returning the letter on the branch to the current node to the multiset.
+	 */
+	private void up() {
+		depth--;
+		if (depth >= 0 && available != null) {
+			available[symbols[depth]]++;
+		}
+	}
+}
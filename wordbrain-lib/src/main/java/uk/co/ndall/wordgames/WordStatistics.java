@@ -0,0 +1,195 @@
+package uk.co.ndall.wordgames;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Counts of the words in a WordTrie, broken down by length and by their first one or two letters. Used to rule out
+ * places on a board where no word of a given length can start, without searching there.
+ */
+public class WordStatistics {
+
+	// Number of words of each length.
+	private final int[] lengthCounts;
+
+	// Number of words of each length starting with each letter.
+	private final Map<Character, int[]> firstLetterCounts = new HashMap<>();
+
+	// Number of words of each length starting with each pair of letters (first letter in the high 16 bits).
+	private final Map<Integer, int[]> bigramCounts = new HashMap<>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param trie The words to count.
+	 */
+	WordStatistics(TrieNode<Character> trie) {
+		int[] total = new int[0];
+		for (Character first : trie.getBranches()) {
+			TrieNode<Character> firstNode = trie.getChild(first);
+			int[] firstCounts = new int[firstNode.isItem() ? 2 : 0];
+			if (firstNode.isItem()) {
+				firstCounts[1] = 1;
+			}
+
+			for (Character second : firstNode.getBranches()) {
+				int[] counts = countByLength(firstNode.getChild(second), 2);
+				bigramCounts.put(bigram(first, second), counts);
+				firstCounts = add(firstCounts, counts);
+			}
+			firstLetterCounts.put(first, firstCounts);
+			total = add(total, firstCounts);
+		}
+		lengthCounts = total;
+	}
+
+	/**
+	 * Constructor, for statistics read by {@link #read}. The maps are filled in afterwards.
+	 *
+	 * @param lengthCounts Number of words of each length.
+	 */
+	private WordStatistics(int[] lengthCounts) {
+		this.lengthCounts = lengthCounts;
+	}
+
+	/**
+	 * Write these statistics to a stream, to be read back by {@link #read}.
+	 *
+	 * @param out The stream.
+	 * @throws IOException If the stream could not be written.
+	 */
+	void write(DataOutputStream out) throws IOException {
+		DictionarySnapshot.writeInts(out, lengthCounts);
+		out.writeInt(firstLetterCounts.size());
+		for (Map.Entry<Character, int[]> entry : firstLetterCounts.entrySet()) {
+			out.writeChar(entry.getKey());
+			DictionarySnapshot.writeInts(out, entry.getValue());
+		}
+		out.writeInt(bigramCounts.size());
+		for (Map.Entry<Integer, int[]> entry : bigramCounts.entrySet()) {
+			out.writeInt(entry.getKey());
+			DictionarySnapshot.writeInts(out, entry.getValue());
+		}
+	}
+
+	/**
+	 * Read statistics written by {@link #write}.
+	 *
+	 * @param in The stream.
+	 * @return The statistics.
+	 * @throws IOException If the stream could not be read.
+	 */
+	static WordStatistics read(DataInputStream in) throws IOException {
+		WordStatistics statistics = new WordStatistics(DictionarySnapshot.readInts(in));
+		for (int i = in.readInt(); i > 0; i--) {
+			statistics.firstLetterCounts.put(in.readChar(), DictionarySnapshot.readInts(in));
+		}
+		for (int i = in.readInt(); i > 0; i--) {
+			statistics.bigramCounts.put(in.readInt(), DictionarySnapshot.readInts(in));
+		}
+		return statistics;
+	}
+
+	/**
+	 * Count the items below a node, by length.
+	 *
+	 * @param node  The node.
+	 * @param depth The length of the item represented by the node.
+	 * @return Array containing the number of items of each length.
+	 */
+	private static int[] countByLength(TrieNode<Character> node, int depth) {
+		int[] counts = new int[node.isItem() ? depth + 1 : 0];
+		if (node.isItem()) {
+			counts[depth] = 1;
+		}
+		for (Character branch : node.getBranches()) {
+			counts = add(counts, countByLength(node.getChild(branch), depth + 1));
+		}
+		return counts;
+	}
+
+	/**
+	 * Add two arrays of counts, element by element.
+	 *
+	 * @param a The first array. May be modified and returned.
+	 * @param b The second array.
+	 * @return Array containing the sums.
+	 */
+	private static int[] add(int[] a, int[] b) {
+		if (a.length < b.length) {
+			a = Arrays.copyOf(a, b.length);
+		}
+		for (int i = 0; i < b.length; i++) {
+			a[i] += b[i];
+		}
+		return a;
+	}
+
+	/**
+	 * Pack a pair of letters into a map key.
+	 *
+	 * @param first  The first letter.
+	 * @param second The second letter.
+	 * @return The key.
+	 */
+	private static int bigram(char first, char second) {
+		return (first << 16) | second;
+	}
+
+	/**
+	 * Look up a count by length.
+	 *
+	 * @param counts Array of counts by length (may be null).
+	 * @param length The length.
+	 * @return The count, or zero if there is none.
+	 */
+	private static int get(int[] counts, int length) {
+		return counts != null && length >= 0 && length < counts.length ? counts[length] : 0;
+	}
+
+	/**
+	 * Count the words of a certain length.
+	 *
+	 * @param length The length.
+	 * @return The number of words.
+	 */
+	public int countWords(int length) {
+		return get(lengthCounts, length);
+	}
+
+	/**
+	 * Count the words of a certain length starting with a certain letter.
+	 *
+	 * @param first  The first letter.
+	 * @param length The length.
+	 * @return The number of words.
+	 */
+	public int countWords(char first, int length) {
+		return get(firstLetterCounts.get(first), length);
+	}
+
+	/**
+	 * Count the words of a certain length starting with a certain pair of letters.
+	 *
+	 * @param first  The first letter.
+	 * @param second The second letter.
+	 * @param length The length.
+	 * @return The number of words.
+	 */
+	public int countWords(char first, char second, int length) {
+		return get(bigramCounts.get(bigram(first, second)), length);
+	}
+
+	/**
+	 * Get the length of the longest word.
+	 *
+	 * @return The length, or zero if there are no words.
+	 */
+	public int getMaxLength() {
+		return Math.max(0, lengthCounts.length - 1);
+	}
+}
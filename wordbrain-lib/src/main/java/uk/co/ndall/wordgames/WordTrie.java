@@ -2,6 +2,10 @@ package uk.co.ndall.wordgames;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 /**
@@ -20,40 +24,270 @@ import java.util.stream.Stream;
  */
 public class WordTrie extends TrieNode<Character> implements Dictionary {
 
+	// Statistics about the words in this trie (built when first needed, and discarded when a word is added).
+	private volatile WordStatistics statistics;
+
+	// Trie containing the words in this trie spelt backwards (built when first needed, and discarded when a word is
+	// added).
+	private volatile WordTrie reversed;
+
+	// The words in this trie packed into arrays (built when first needed, and discarded when a word is added).
+	private volatile PackedTrie packed;
+
+	// The number of times a word has been added, so that results cached for this trie can tell it has changed.
+	private volatile long version;
+
+	// For a trie read from a snapshot, the words which haven't been put into its nodes yet (null once they have). The
+	// nodes are only built if something needs them, since the solver only uses the packed trie and statistics.
+	private volatile PackedTrie unbuiltNodes;
+
 	/**
 	 * Constructor to create an empty WordTrie.
 	 */
 	public WordTrie() {
 	}
 
+	/**
+	 * Constructor for a trie read from a snapshot (see {@link DictionarySnapshot}), whose nodes are built from the
+	 * packed trie when first needed.
+	 *
+	 * @param packed     The words, packed into arrays.
+	 * @param statistics Statistics about the words, or null to build them when first needed.
+	 * @param reversed   Trie containing the words spelt backwards, or null to build it when first needed.
+	 */
+	WordTrie(PackedTrie packed, WordStatistics statistics, WordTrie reversed) {
+		this.packed = packed;
+		this.statistics = statistics;
+		this.reversed = reversed;
+		this.unbuiltNodes = packed;
+	}
+
 	/**
 	 * Constructor to create a WordTrie and populate it with a bunch of words.
 	 *
-	 * @param words The valid words to put into the trie.
+	 * @param words The valid words to put into the trie. They are converted to lower case using the root locale, so the
+	 *              result doesn't depend on the default locale.
 	 */
 	public WordTrie(Iterable<String> words) {
 		this();
-		words.forEach(s -> this.put(s.toLowerCase()));
+		DictionaryLoadEvent event = FlightRecorderSupport.isAvailable() ? DictionaryLoadEvent.start() : null;
+		int count = 0;
+		for (String word : words) {
+			put(word.toLowerCase(Locale.ROOT));
+			count++;
+		}
+		if (event != null) {
+			event.finish(DictionaryLoadEvent.WORD_LIST, count);
+		}
 	}
 
 	/**
 	 * Constructor to create a WordTrie and populate it with a bunch of words.
 	 *
-	 * @param words The valid words to put into the trie.
+	 * @param words The valid words to put into the trie. They are converted to lower case using the root locale, so the
+	 *              result doesn't depend on the default locale.
 	 */
 	public WordTrie(Stream<String> words) {
-		this();
-		words.forEach(s -> this.put(s.toLowerCase()));
+		this(words::iterator);
 	}
 
 	@Override
 	public boolean has(String word) {
+		PackedTrie words = unbuiltNodes;
+		if (words != null) {
+			return words.has(word);
+		}
 		return hasItem(getCharList(word));
 	}
 
 	@Override
 	public void put(String word) {
+		buildNodes();
 		createItem(getCharList(word));
+		statistics = null;
+		reversed = null;
+		packed = null;
+		version++;
+	}
+
+	/**
+	 * Get the version of the words in this trie, which changes each time a word is added. Anything worked out from
+	 * the words and kept (such as a cached search result) is only valid while the version is unchanged.
+	 *
+	 * @return The version.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Get statistics about the words in this trie, building them the first time they are needed.
+	 *
+	 * @return The statistics.
+	 */
+	public WordStatistics getStatistics() {
+		WordStatistics result = statistics;
+		if (result == null) {
+			// Two threads may both build the statistics, but they will be identical so it doesn't matter which is kept.
+			result = new WordStatistics(this);
+			statistics = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Get a trie containing the words in this trie spelt backwards, building it the first time it is needed. This
+	 * indexes the words by suffix: a path from its root spells the end of a word, from the last letter backwards.
+	 *
+	 * @return The reversed trie.
+	 */
+	public WordTrie getReversed() {
+		WordTrie result = reversed;
+		if (result == null) {
+			// Two threads may both build the trie, but they will be identical so it doesn't matter which is kept.
+			DictionaryLoadEvent event = FlightRecorderSupport.isAvailable() ? DictionaryLoadEvent.start() : null;
+			WordTrie newReversed = new WordTrie();
+			int[] count = new int[1];
+			forEachWord(this, new StringBuilder(), word -> {
+				newReversed.put(new StringBuilder(word).reverse().toString());
+				count[0]++;
+			});
+			result = newReversed;
+			reversed = result;
+			if (event != null) {
+				event.finish(DictionaryLoadEvent.REVERSED, count[0]);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Get the words in this trie packed into arrays, building them the first time they are needed. The packed trie's
+	 * alphabet is made from the letters of the words, so it works for any language.
+	 *
+	 * @return The packed trie.
+	 */
+	public PackedTrie getPacked() {
+		PackedTrie result = packed;
+		if (result == null) {
+			// Two threads may both build the trie, but they will be identical so it doesn't matter which is kept.
+			DictionaryLoadEvent event = FlightRecorderSupport.isAvailable() ? DictionaryLoadEvent.start() : null;
+			List<String> words = new ArrayList<>();
+			forEachWord(this, new StringBuilder(), words::add);
+			result = new PackedTrie(words);
+			packed = result;
+			if (event != null) {
+				event.finish(DictionaryLoadEvent.PACKED, words.size());
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Find the words of a certain length made from some of the given letters, using each no more times than it
+	 * appears (see PackedTrie.anagrams).
+	 *
+	 * @param letters The letters, in any case.
+	 * @param length  The length of the words.
+	 * @return Lazy stream of the words, in the packed trie's symbol order.
+	 */
+	public Stream<String> anagrams(String letters, int length) {
+		return getPacked().anagrams(letters.toLowerCase(Locale.ROOT), length);
+	}
+
+	/**
+	 * Find the words matching a pattern, made from some of the given letters (see PackedTrie.matching).
+	 *
+	 * @param pattern The pattern, in any case: a letter for each letter of the word, or PackedTrie.WILDCARD to match
+	 *                any letter.
+	 * @param letters The letters the words may use, in any case, or null for any letters.
+	 * @return Lazy stream of the words, in the packed trie's symbol order.
+	 */
+	public Stream<String> matching(String pattern, String letters) {
+		return getPacked().matching(pattern.toLowerCase(Locale.ROOT),
+				letters == null ? null : letters.toLowerCase(Locale.ROOT));
+	}
+
+	/**
+	 * Put the words of a trie read from a snapshot into its nodes, if that hasn't been done yet.
+	 */
+	private void buildNodes() {
+		if (unbuiltNodes != null) {
+			synchronized (this) {
+				PackedTrie words = unbuiltNodes;
+				if (words != null) {
+					words.forEachWord(word -> super.createItem(getCharList(word)));
+					unbuiltNodes = null;
+				}
+			}
+		}
+	}
+
+	@Override
+	public void createItem(List<Character> sequence) {
+		buildNodes();
+		super.createItem(sequence);
+	}
+
+	@Override
+	public boolean hasChild(Character branch) {
+		buildNodes();
+		return super.hasChild(branch);
+	}
+
+	@Override
+	public TrieNode<Character> getChild(Character branch) throws NoSuchElementException {
+		buildNodes();
+		return super.getChild(branch);
+	}
+
+	@Override
+	public boolean hasItemAtDistance(int distance) {
+		PackedTrie words = unbuiltNodes;
+		if (words != null) {
+			return words.hasItemAtDistance(PackedTrie.ROOT, distance);
+		}
+		return super.hasItemAtDistance(distance);
+	}
+
+	@Override
+	public Set<Character> getBranches() {
+		buildNodes();
+		return super.getBranches();
+	}
+
+	@Override
+	public int countNodes() {
+		// A packed trie has a node for each node of a WordTrie holding the same words.
+		PackedTrie words = unbuiltNodes;
+		return words != null ? words.countNodes() : super.countNodes();
+	}
+
+	@Override
+	public boolean isItem() {
+		PackedTrie words = unbuiltNodes;
+		if (words != null) {
+			return words.isItem(PackedTrie.ROOT);
+		}
+		return super.isItem();
+	}
+
+	/**
+	 * Pass each word below a node to a consumer.
+	 *
+	 * @param node     The node.
+	 * @param prefix   The letters on the path to the node. Restored to its original contents before returning.
+	 * @param consumer The consumer.
+	 */
+	private static void forEachWord(TrieNode<Character> node, StringBuilder prefix, Consumer<String> consumer) {
+		if (node.isItem()) {
+			consumer.accept(prefix.toString());
+		}
+		for (Character letter : node.getBranches()) {
+			prefix.append(letter);
+			forEachWord(node.getChild(letter), prefix, consumer);
+			prefix.setLength(prefix.length() - 1);
+		}
 	}
 
 	/**
@@ -0,0 +1,262 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import uk.co.ndall.wordgames.WordTrie;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Performance regression suite: solves each puzzle in corpus.txt, measures the words tried, the bytes allocated and the
+ * wall time, and compares them with the stored baseline. Run with "gradle perfTest"; add -PrecordBaseline to store the
+ * measurements as the new baseline instead.
+ * <p>
+ * Each puzzle is solved on a pool of one thread, so the measurements don't depend on the number of cores, and with the
+ * solver's result cache turned off. The words tried are exact, so any increase is a change in the search; allocations
+ * and times vary from run to run, so have larger tolerances. Times also depend on the machine, so the baseline should
+ * be recorded on the machine which runs the suite.
+ * <p>
+ * Puzzles too big to solve in full are given a node limit, so they measure the same amount of search every run. They
+ * also have a time limit, as a safety net; a puzzle which reaches its time limit fails the suite, since the words it
+ * tried then depend on the machine.
+ */
+public class SolverPerformanceTest {
+
+	// System property holding the path of the word list.
+	private static final String DICTIONARY_PROPERTY = "wordbrain.perf.dictionary";
+
+	// System property holding the path of the baseline file.
+	private static final String BASELINE_PROPERTY = "wordbrain.perf.baseline";
+
+	// System property set to "true" to record the baseline rather than check it.
+	private static final String RECORD_PROPERTY = "wordbrain.perf.record";
+
+	// Prefix of the system properties overriding the tolerances.
+	private static final String TOLERANCE_PROPERTY_PREFIX = "wordbrain.perf.tolerance.";
+
+	// Number of times each puzzle is solved before it is measured.
+	private static final int WARMUP_RUNS = 3;
+
+	// Number of times each puzzle is measured. The median time is used.
+	private static final int MEASURED_RUNS = 5;
+
+	// How much each measurement may grow beyond the baseline before the suite fails, as a fraction. Each can be
+	// overridden with the system property wordbrain.perf.tolerance.<measurement>, e.g.
+	// -Dwordbrain.perf.tolerance.millis=1.0.
+	private static final Map<String, Double> TOLERANCES = new LinkedHashMap<>();
+
+	static {
+		TOLERANCES.put("nodes", 0.0);
+		TOLERANCES.put("allocatedBytes", 0.25);
+		TOLERANCES.put("millis", 0.5);
+	}
+
+	// Measurements below this many milliseconds are too short to compare.
+	private static final long MIN_COMPARABLE_MILLIS = 20;
+
+	// Time limit for each solve of a puzzle with a node limit, so a change which slows the search down a long way
+	// fails the suite rather than hanging it.
+	private static final Duration LIMITED_TIME = Duration.ofSeconds(60);
+
+	private static WordTrie dict;
+
+	@BeforeClass
+	public static void loadDictionary() throws IOException {
+		try (Stream<String> words = Files.lines(Paths.get(requiredProperty(DICTIONARY_PROPERTY)))) {
+			dict = new WordTrie(words);
+		}
+	}
+
+	/**
+	 * Solves every puzzle in the corpus, and checks the measurements against the baseline, or records them.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void solverDoesNotRegress() throws Exception {
+		Map<String, Long> measured = new TreeMap<>();
+		for (String[] puzzle : readCorpus()) {
+			measure(puzzle, measured);
+		}
+
+		Path baselineFile = Paths.get(requiredProperty(BASELINE_PROPERTY));
+		if (Boolean.getBoolean(RECORD_PROPERTY)) {
+			writeBaseline(baselineFile, measured);
+			return;
+		}
+
+		Map<String, Long> baseline = readBaseline(baselineFile);
+		List<String> regressions = new ArrayList<>();
+		for (Map.Entry<String, Long> entry : measured.entrySet()) {
+			String key = entry.getKey();
+			Long expected = baseline.get(key);
+			if (expected == null) {
+				regressions.add(key + " has no baseline (record one with -PrecordBaseline)");
+				continue;
+			}
+			String measurement = key.substring(key.lastIndexOf('.') + 1);
+			double tolerance = Double.parseDouble(System.getProperty(TOLERANCE_PROPERTY_PREFIX + measurement,
+					String.valueOf(TOLERANCES.get(measurement))));
+			if (key.endsWith(".millis") && expected < MIN_COMPARABLE_MILLIS) {
+				expected = MIN_COMPARABLE_MILLIS;
+			}
+			if (entry.getValue() > expected * (1 + tolerance)) {
+				regressions.add(String.format("%s is %d, baseline %d (+%.0f%% allowed)",
+						key, entry.getValue(), expected, tolerance * 100));
+			}
+		}
+		assertTrue("Performance regressions:\n" + String.join("\n", regressions), regressions.isEmpty());
+	}
+
+	/**
+	 * Solve a puzzle, and record its measurements.
+	 *
+	 * @param puzzle   The name, board, word lengths, word order and node limit (if any) of the puzzle.
+	 * @param measured Map to put the measurements in, by name.
+	 */
+	private static void measure(String[] puzzle, Map<String, Long> measured) {
+		String name = puzzle[0];
+		WordbrainBoard board = new WordbrainBoard(puzzle[1]);
+		int[] wordLengths = Arrays.stream(puzzle[2].split(",")).mapToInt(Integer::parseInt).toArray();
+		SolveOptions ordered = SolveOptions.DEFAULT.withWordOrder(SolveOptions.WordOrder.valueOf(puzzle[3]));
+		SolveOptions options = puzzle.length > 4
+				? ordered.withNodeLimit(Long.parseLong(puzzle[4])).withTimeLimit(LIMITED_TIME)
+				: ordered;
+		WordBrainSolver solver = new WordBrainSolver(dict);
+		solver.setResultCacheSize(0);
+
+		ForkJoinPool pool = new ForkJoinPool(1);
+		try {
+			for (int i = 0; i < WARMUP_RUNS; i++) {
+				pool.submit(() -> solver.solveWithLimits(board, options, wordLengths)).join();
+			}
+
+			long[] millis = new long[MEASURED_RUNS];
+			long allocated = Long.MAX_VALUE;
+			SolveResult result = null;
+			for (int i = 0; i < MEASURED_RUNS; i++) {
+				long allocatedBefore = allocatedBytes();
+				long start = System.nanoTime();
+				result = pool.submit(() -> solver.solveWithLimits(board, options, wordLengths)).join();
+				millis[i] = (System.nanoTime() - start) / 1_000_000;
+				allocated = Math.min(allocated, allocatedBytes() - allocatedBefore);
+			}
+			Arrays.sort(millis);
+			assertNotEquals(name + " reached its time limit, so the words it tried can't be compared",
+					SolveResult.Status.TIME_LIMIT_EXCEEDED, result.getStatus());
+
+			measured.put(name + ".nodes", result.getNodesVisited());
+			measured.put(name + ".millis", millis[MEASURED_RUNS / 2]);
+			if (allocated >= 0) {
+				measured.put(name + ".allocatedBytes", allocated);
+			}
+			System.out.printf("%-24s %8d solutions %12d nodes %14d bytes %8d ms%n",
+					name, result.getSolutions().size(), result.getNodesVisited(), allocated, millis[MEASURED_RUNS / 2]);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Get the total number of bytes allocated by every live thread, if the JVM can measure it.
+	 *
+	 * @return The number of bytes, or Long.MIN_VALUE if allocations can't be measured.
+	 */
+	private static long allocatedBytes() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		if (!(threads instanceof com.sun.management.ThreadMXBean)) {
+			return Long.MIN_VALUE;
+		}
+		long[] perThread = ((com.sun.management.ThreadMXBean) threads)
+				.getThreadAllocatedBytes(threads.getAllThreadIds());
+		return Arrays.stream(perThread).filter(bytes -> bytes > 0).sum();
+	}
+
+	/**
+	 * Read the puzzles in the corpus.
+	 *
+	 * @return The name, board, word lengths, word order and node limit (if any) of each puzzle.
+	 * @throws IOException If the corpus could not be read.
+	 */
+	private static List<String[]> readCorpus() throws IOException {
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+				SolverPerformanceTest.class.getResourceAsStream("/corpus.txt"), StandardCharsets.UTF_8))) {
+			return reader.lines()
+					.map(String::trim)
+					.filter(line -> !line.isEmpty() && !line.startsWith("#"))
+					.map(line -> line.split("\\s+"))
+					.collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * Read the baseline measurements.
+	 *
+	 * @param file The baseline file: lines of "name=value", and comments starting with #.
+	 * @return The measurements, by name.
+	 * @throws IOException If the file could not be read.
+	 */
+	private static Map<String, Long> readBaseline(Path file) throws IOException {
+		Map<String, Long> baseline = new TreeMap<>();
+		for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+			line = line.trim();
+			if (!line.isEmpty() && !line.startsWith("#")) {
+				int equals = line.indexOf('=');
+				baseline.put(line.substring(0, equals).trim(), Long.parseLong(line.substring(equals + 1).trim()));
+			}
+		}
+		return baseline;
+	}
+
+	/**
+	 * Write the measurements as the new baseline.
+	 *
+	 * @param file     The baseline file.
+	 * @param measured The measurements, by name.
+	 * @throws IOException If the file could not be written.
+	 */
+	private static void writeBaseline(Path file, Map<String, Long> measured) throws IOException {
+		List<String> lines = new ArrayList<>();
+		lines.add("# Baseline for SolverPerformanceTest. Recorded with: gradle perfTest -PrecordBaseline");
+		lines.add("# Java " + System.getProperty("java.version") + ", " + Runtime.getRuntime().availableProcessors()
+				+ " processors.");
+		measured.forEach((key, value) -> lines.add(key + "=" + value));
+		Files.write(file, lines, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Get a system property which must be set.
+	 *
+	 * @param name The name of the property.
+	 * @return The value.
+	 * @throws IllegalStateException If the property is not set.
+	 */
+	private static String requiredProperty(String name) throws IllegalStateException {
+		String value = System.getProperty(name);
+		if (value == null) {
+			throw new IllegalStateException("System property " + name + " must be set (run with gradle perfTest)");
+		}
+		return value;
+	}
+}
@@ -0,0 +1,71 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.ndall.wordgames.Coords2D;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the BoardIndex.
+ */
+public class BoardIndexTest {
+
+	/**
+	 * Board with gaps:  a.c
+	 *                   .ef
+	 *                   ga.
+	 */
+	private BoardIndex index;
+
+	@Before
+	public void CreateIndex() {
+		index = new WordbrainBoard("a c, ef\nga ").getIndex();
+	}
+
+	@Test
+	public void cellsNumberedByRow() throws Exception {
+		assertEquals(5, index.getCell(new Coords2D(2, 1)));
+		assertEquals(new Coords2D(2, 1), index.getCoords(5));
+		assertEquals('f', index.getLetter(5));
+		assertEquals(BoardIndex.EMPTY, index.getLetter(1));
+	}
+
+	@Test
+	public void occupiedCellsInOrder() throws Exception {
+		assertArrayEquals(new int[]{0, 2, 4, 5, 6, 7}, index.getOccupiedCells());
+	}
+
+	@Test
+	public void neighboursIncludeEmptyCells() throws Exception {
+		assertArrayEquals(new int[]{1, 3, 4}, index.getNeighbours(0));
+		assertArrayEquals(new int[]{0, 1, 2, 3, 5, 6, 7, 8}, index.getNeighbours(4));
+	}
+
+	@Test
+	public void neighbourTablesSharedBetweenBoardsOfSameSize() throws Exception {
+		BoardIndex other = new WordbrainBoard("xyz,xyz,xyz").getIndex();
+		assertSame(index.getNeighbours(4), other.getNeighbours(4));
+	}
+
+	@Test
+	public void cellsFoundByLetter() throws Exception {
+		assertArrayEquals(new int[]{0, 7}, index.getCellsWithLetter('a'));
+		assertArrayEquals(new int[]{6}, index.getCellsWithLetter('g'));
+		assertArrayEquals(new int[0], index.getCellsWithLetter('z'));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void jaggedBoardRejected() throws Exception {
+		new WordbrainBoard("abcd,efgh,ijklm,nop").getIndex();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void oversizedBoardRejected() throws Exception {
+		char[] row = new char[WordbrainBoard.MAX_CELLS + 1];
+		Arrays.fill(row, 'a');
+		new WordbrainBoard(new String(row)).getIndex();
+	}
+}
@@ -0,0 +1,66 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.ndall.wordgames.Coords2D;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the CompactSolution class.
+ */
+public class CompactSolutionTest {
+
+	/**
+	 * Full 3x3 board:  abc
+	 *                  def
+	 *                  ghi
+	 */
+	private BoardIndex index;
+
+	@Before
+	public void CreateBoard() {
+		index = new WordbrainBoard("abc,def,ghi").getIndex();
+	}
+
+	/**
+	 * Tests that the words are made by replaying the removals, so each word's letters and positions are those on the
+	 * board at the time it was removed, and the words are listed in slot order.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void wordsMadeFromSteps() throws Exception {
+		// Remove "eh" (filling slot 1), then "bi" from the board left behind (filling slot 0).
+		CompactSolution.Step first = new CompactSolution.Step(null, 1, new int[]{4, 7});
+		CompactSolution.Step second = new CompactSolution.Step(first, 0, new int[]{7, 8});
+		CompactSolution solution = new CompactSolution(index, second);
+
+		assertEquals(2, solution.size());
+		assertEquals("bi", solution.get(0).getWord());
+		assertEquals(1, solution.get(0).getStep());
+		assertArrayEquals(new Coords2D[]{new Coords2D(1, 2), new Coords2D(2, 2)}, solution.get(0).getPositions());
+		assertEquals("eh", solution.get(1).getWord());
+		assertEquals(0, solution.get(1).getStep());
+		assertSame(solution.get(1), solution.get(1));
+	}
+
+	/**
+	 * Tests that solutions sharing their first words share the same steps.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void solutionsShareSteps() throws Exception {
+		CompactSolution.Step first = new CompactSolution.Step(null, 0, new int[]{0, 1});
+		CompactSolution one = new CompactSolution(index, new CompactSolution.Step(first, 1, new int[]{4, 5}));
+		CompactSolution other = new CompactSolution(index, new CompactSolution.Step(first, 1, new int[]{7, 8}));
+
+		assertEquals("ab", one.get(0).getWord());
+		assertEquals("ab", other.get(0).getWord());
+		assertEquals("ef", one.get(1).getWord());
+		assertEquals("hi", other.get(1).getWord());
+	}
+}
@@ -0,0 +1,53 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the FingerprintSet class.
+ */
+public class FingerprintSetTest {
+
+	/**
+	 * Tests that each fingerprint is only added once, including zero and fingerprints in the same shard.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void fingerprintsAddedOnce() throws Exception {
+		FingerprintSet set = new FingerprintSet(1);
+		assertTrue(set.add(0));
+		assertFalse(set.add(0));
+		assertTrue(set.add(-1));
+		assertTrue(set.add(1));
+		assertTrue(set.add(1L << 63));
+		assertFalse(set.add(1));
+		assertFalse(set.add(-1));
+		assertEquals(4, set.size());
+	}
+
+	/**
+	 * Tests that threads adding the same fingerprints at once add each exactly once, as the shards grow.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void concurrentAddsAddEachOnce() throws Exception {
+		FingerprintSet set = new FingerprintSet(4);
+		AtomicInteger added = new AtomicInteger();
+		IntStream.range(0, 4 * 20_000).parallel().forEach(i -> {
+			long fingerprint = (i % 20_000) * 0x9e3779b97f4a7c15L;
+			if (set.add(fingerprint)) {
+				added.incrementAndGet();
+			}
+		});
+		assertEquals(20_000, added.get());
+		assertEquals(20_000, set.size());
+	}
+}
@@ -0,0 +1,49 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the JoinedSolutions class.
+ */
+public class JoinedSolutionsTest {
+
+	/**
+	 * Tests that the parts' solutions are read in order, skipping parts with no solutions.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void partsJoinedInOrder() throws Exception {
+		List<List<List<FoundWord>>> parts = new ArrayList<>();
+		List<List<FoundWord>> expected = new ArrayList<>();
+		for (int part = 0; part < 6; part++) {
+			List<List<FoundWord>> solutions = new ArrayList<>();
+			for (int i = 0; i < part % 3; i++) {
+				List<FoundWord> solution = Collections.singletonList(null);
+				solutions.add(solution);
+				expected.add(solution);
+			}
+			parts.add(solutions);
+		}
+
+		JoinedSolutions joined = new JoinedSolutions(parts);
+		assertEquals(6, joined.size());
+		for (int i = 0; i < joined.size(); i++) {
+			assertSame(expected.get(i), joined.get(i));
+		}
+		assertEquals(0, new JoinedSolutions(Arrays.asList(new ArrayList<>(), new ArrayList<>())).size());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void noSolutionPastTheEnd() throws Exception {
+		new JoinedSolutions(Collections.singletonList(new ArrayList<>())).get(0);
+	}
+}
@@ -0,0 +1,30 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests the LongHash class.
+ */
+public class LongHashTest {
+
+	/**
+	 * Tests that values are added as in FNV-1a, and that bytes and chars with the same values hash the same.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void hashMatchesFnv1a() throws Exception {
+		// FNV-1a test vector for "a".
+		assertEquals(0xaf63dc4c8601ec8cL, LongHash.add(LongHash.SEED, 'a'));
+		assertEquals(LongHash.finish(0xaf63dc4c8601ec8cL), LongHash.of("a"));
+
+		assertEquals(LongHash.of("wordbrain"), LongHash.of("wordbrain".getBytes(StandardCharsets.US_ASCII)));
+		assertEquals(LongHash.of(new byte[]{(byte) 0xff}), LongHash.finish(LongHash.add(LongHash.SEED, 0xff)));
+		assertNotEquals(LongHash.of("ab"), LongHash.of("ba"));
+	}
+}
@@ -0,0 +1,44 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the LongSet class.
+ */
+public class LongSetTest {
+
+	/**
+	 * Tests that values are added once, including zero and values in the same slot, as the set grows and is cleared.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void valuesAddedOnce() throws Exception {
+		LongSet set = new LongSet(2);
+		assertTrue(set.add(0));
+		assertFalse(set.add(0));
+		for (long value = 1; value <= 1000; value++) {
+			assertTrue(set.add(value << 32));
+		}
+		assertFalse(set.add(500L << 32));
+		assertTrue(set.contains(0));
+		assertTrue(set.contains(1000L << 32));
+		assertFalse(set.contains(1001L << 32));
+		assertEquals(1001, set.size());
+
+		set.clear();
+		assertEquals(0, set.size());
+		assertFalse(set.contains(0));
+		assertFalse(set.contains(1L << 32));
+		assertTrue(set.add(1L << 32));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void slotsMustBePowerOfTwo() throws Exception {
+		new LongSet(3);
+	}
+}
@@ -0,0 +1,89 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.ndall.wordgames.Coords2D;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the MutableBoard.
+ */
+public class MutableBoardTest {
+
+	/**
+	 * Full 3x3 board:  abc
+	 *                  def
+	 *                  ghi
+	 */
+	private WordbrainBoard original;
+
+	private MutableBoard board;
+
+	@Before
+	public void CreateBoard() {
+		original = new WordbrainBoard("abc,def\nghi");
+		board = new MutableBoard(original.getIndex());
+	}
+
+	/**
+	 * Tests that removing letters has the same effect as WordbrainBoard.withLettersRemoved.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void removeLettersMatchesWordbrainBoard() throws Exception {
+		Coords2D[] remove = new Coords2D[]{
+				new Coords2D(0, 2),
+				new Coords2D(1, 1),
+				new Coords2D(2, 2),
+				new Coords2D(2, 1)
+		};
+		board.removeLetters(new FoundWord(remove, "gefi", 0));
+
+		assertEquals(original.withLettersRemoved(remove).toString(), board.toString());
+		assertEquals(5, board.countLetters());
+	}
+
+	/**
+	 * Tests that removals are undone in reverse order, restoring the board each time.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void undoRestoresBoard() throws Exception {
+		board.removeLetters(new int[]{4, 5}, 2);
+		String afterFirst = board.toString();
+		board.removeLetters(new int[]{8, 7, 6}, 3);
+		assertEquals("   \na  \ndbc", board.toString());
+		assertEquals(4, board.countLetters());
+
+		board.undo();
+		assertEquals(afterFirst, board.toString());
+		assertEquals(7, board.countLetters());
+
+		board.undo();
+		assertEquals(original.toString(), board.toString());
+		assertEquals(9, board.countLetters());
+	}
+
+	/**
+	 * Tests that only the cells whose letters changed are flagged: the removed cell, and those above it in the column.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void changedCellsFlagged() throws Exception {
+		board.removeLetters(new int[]{4}, 1);
+		long[] changed = CellBits.create(board.getSize());
+		board.markChangedCells(changed);
+
+		assertArrayEquals(new long[]{(1 << 1) | (1 << 4)}, changed);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void undoWithoutRemovalThrows() throws Exception {
+		board.undo();
+	}
+}
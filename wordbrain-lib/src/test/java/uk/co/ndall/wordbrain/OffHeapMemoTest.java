@@ -0,0 +1,128 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the OffHeapMemo class.
+ */
+public class OffHeapMemoTest {
+
+	/**
+	 * Full 3x3 board:  abc
+	 *                  def
+	 *                  ghi
+	 */
+	private MutableBoard board;
+
+	@Before
+	public void CreateBoard() {
+		board = new MutableBoard(new WordbrainBoard("abc,def,ghi").getIndex());
+	}
+
+	/**
+	 * Tests that counts are found for the same layout and filled slots, and not for others.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void countsFoundByLayout() throws Exception {
+		OffHeapMemo memo = new OffHeapMemo(SolveOptions.MIN_OFF_HEAP_BYTES, board.getSize(), 2);
+		boolean[] filled = new boolean[]{true, false};
+
+		assertEquals(Memo.UNKNOWN, memo.get(board, filled));
+		memo.put(board, filled, 0);
+		memo.put(board, new boolean[]{false, true}, 7);
+		assertEquals(0, memo.get(board, filled));
+		assertEquals(7, memo.get(board, new boolean[]{false, true}));
+
+		board.removeLetters(new int[]{4, 7}, 2);
+		assertEquals(Memo.UNKNOWN, memo.get(board, filled));
+		memo.put(board, filled, 3);
+		assertEquals(3, memo.get(board, filled));
+		memo.put(board, filled, 4);
+		assertEquals(4, memo.get(board, filled));
+
+		board.undo();
+		assertEquals(0, memo.get(board, filled));
+	}
+
+	/**
+	 * Tests that the table starts small and doubles as it fills, up to the budget, keeping the counts already stored.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void tableGrowsWithinBudget() throws Exception {
+		long budget = 64L * 1024 * 1024;
+		int slots = 20;
+		OffHeapMemo memo = new OffHeapMemo(budget, board.getSize(), slots);
+		assertTrue(memo.getAllocatedBytes() <= 64 * 1024);
+
+		int layouts = 50_000;
+		for (int i = 0; i < layouts; i++) {
+			memo.put(board, filled(i, slots), i);
+		}
+		assertTrue(memo.getAllocatedBytes() > 64 * 1024);
+		assertTrue(memo.getAllocatedBytes() <= budget);
+
+		int kept = 0;
+		for (int i = 0; i < layouts; i++) {
+			long count = memo.get(board, filled(i, slots));
+			if (count != Memo.UNKNOWN) {
+				assertEquals(i, count);
+				kept++;
+			}
+		}
+		assertTrue(kept > layouts * 9 / 10);
+	}
+
+	/**
+	 * Tests that when the table is full, the smallest counts are replaced and the others kept.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void smallestCountsEvictedWhenFull() throws Exception {
+		// A budget too small for more than one bucket, so every layout shares it.
+		OffHeapMemo memo = new OffHeapMemo(1, board.getSize(), 8);
+		boolean[][] layouts = new boolean[8][8];
+		for (int i = 0; i < layouts.length; i++) {
+			layouts[i][i] = true;
+			memo.put(board, layouts[i], 100 - i);
+		}
+
+		int kept = 0;
+		for (int i = 0; i < layouts.length; i++) {
+			long count = memo.get(board, layouts[i]);
+			if (count != Memo.UNKNOWN) {
+				assertEquals(100 - i, count);
+				kept++;
+			}
+		}
+		assertEquals(4, kept);
+		// The first three had the largest counts, so were never replaced; the last was put last, so is still there.
+		assertEquals(100, memo.get(board, layouts[0]));
+		assertEquals(99, memo.get(board, layouts[1]));
+		assertEquals(98, memo.get(board, layouts[2]));
+		assertEquals(93, memo.get(board, layouts[7]));
+	}
+
+	/**
+	 * Test helper that makes a different set of filled slots for each number.
+	 *
+	 * @param number The number, whose bits give the filled slots.
+	 * @param slots  The number of slots.
+	 * @return Flags marking the slots filled.
+	 */
+	private static boolean[] filled(int number, int slots) {
+		boolean[] filled = new boolean[slots];
+		for (int slot = 0; slot < slots; slot++) {
+			filled[slot] = (number >>> slot & 1) != 0;
+		}
+		return filled;
+	}
+}
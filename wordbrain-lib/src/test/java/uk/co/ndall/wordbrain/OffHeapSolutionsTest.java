@@ -0,0 +1,80 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+/**
+ * Tests the OffHeapSolutions class.
+ */
+public class OffHeapSolutionsTest {
+
+	/**
+	 * Full 3x3 board:  abc
+	 *                  def
+	 *                  ghi
+	 */
+	private final BoardIndex index = new WordbrainBoard("abc,def,ghi").getIndex();
+
+	/**
+	 * Tests that solutions are unpacked with the same words, in the order they were added, including those kept on the
+	 * heap after the budget runs out.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void solutionsKeptInOrderBeyondBudget() throws Exception {
+		Budget budget = new Budget(SolveOptions.DEFAULT.withOffHeapStorage(SolveOptions.MIN_OFF_HEAP_BYTES));
+		OffHeapSolutions solutions = new OffHeapSolutions(index, budget);
+
+		// Each solution packs into 2 + 2 * (4 + 2 * 2) = 18 bytes, so the budget holds fewer than 4000 of them.
+		CompactSolution.Step eh = new CompactSolution.Step(null, 1, new int[]{4, 7});
+		CompactSolution.Step bi = new CompactSolution.Step(eh, 0, new int[]{7, 8});
+		CompactSolution.Step ad = new CompactSolution.Step(null, 0, new int[]{0, 3});
+		CompactSolution.Step gh = new CompactSolution.Step(ad, 1, new int[]{6, 7});
+		for (int i = 0; i < 5000; i++) {
+			solutions.add(new CompactSolution(index, i % 2 == 0 ? bi : gh));
+		}
+		assertFalse(budget.reserveOffHeap(SolveOptions.MIN_OFF_HEAP_BYTES));
+
+		assertEquals(5000, solutions.size());
+		for (int i = 0; i < solutions.size(); i++) {
+			List<FoundWord> solution = solutions.get(i);
+			assertEquals(i % 2 == 0 ? "bi" : "ad", solution.get(0).getWord());
+			assertEquals(i % 2 == 0 ? "eh" : "gh", solution.get(1).getWord());
+			assertEquals(i % 2 == 0 ? 1 : 0, solution.get(0).getStep());
+		}
+	}
+
+	/**
+	 * Tests that once a task's solutions are released, its buffers are reused rather than taking more of the budget.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void releasedBuffersReused() throws Exception {
+		Budget budget = new Budget(SolveOptions.DEFAULT.withOffHeapStorage(SolveOptions.MIN_OFF_HEAP_BYTES));
+		CompactSolution.Step ad = new CompactSolution.Step(null, 0, new int[]{0, 3});
+		CompactSolution.Step gh = new CompactSolution.Step(ad, 1, new int[]{6, 7});
+		for (int task = 0; task < 3; task++) {
+			OffHeapSolutions solutions = new OffHeapSolutions(index, budget);
+			for (int i = 0; i < 1000; i++) {
+				solutions.add(new CompactSolution(index, gh));
+			}
+			assertEquals("gh", solutions.get(999).get(1).getWord());
+			assertFalse(budget.reserveOffHeap(1));
+			solutions.release();
+			assertEquals(0, solutions.size());
+
+			// The whole budget is in the released buffer, so it can only be taken again by reusing it.
+			ByteBuffer reused = budget.allocateOffHeap((int) SolveOptions.MIN_OFF_HEAP_BYTES);
+			assertNotNull(reused);
+			budget.releaseOffHeap(reused);
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.ndall.wordgames.WordTrie;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the PuzzleGenerator class.
+ */
+public class PuzzleGeneratorTest {
+
+	private WordTrie dict;
+
+	private PuzzleGenerator generator;
+
+	@Before
+	public void Setup() {
+		dict = new WordTrie(Arrays.asList(
+				"bell", "crab", "meal", "cube", "tide", "smell", "biscuit", "toast", "lemon", "can't"));
+		generator = new PuzzleGenerator(dict);
+	}
+
+	/**
+	 * Tests that a generated board is full, and is solved by its planted words within the solutions allowed.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void plantedWordsSolveTheBoard() throws Exception {
+		Optional<GeneratedPuzzle> generated = generator.generate(3, 3, new int[]{4, 5}, 1, new Random(1));
+		assertTrue(generated.isPresent());
+
+		Puzzle puzzle = generated.get().getPuzzle();
+		assertTrue(puzzle.getBoard().isValid());
+		assertEquals(9, puzzle.getBoard().countLetters());
+		assertEquals(1, generated.get().getSolutions().size());
+
+		List<List<String>> solutions = new WordBrainSolver(dict)
+				.solve(puzzle.getBoard(), puzzle.getWordLengths())
+				.map(solution -> solution.stream().map(FoundWord::getWord).collect(Collectors.toList()))
+				.distinct()
+				.collect(Collectors.toList());
+		assertEquals(Arrays.asList(generated.get().getPlantedWords()), solutions);
+	}
+
+	/**
+	 * Tests that a batch is the same for the same seed, and that words which can't be put on a board aren't used.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void batchesRepeatForTheSameSeed() throws Exception {
+		int[] lengths = new int[]{5, 7, 4};
+		List<GeneratedPuzzle> batch = generator.generateMany(10, 4, 4, lengths, 2, 42);
+		assertEquals(10, batch.size());
+		assertEquals(
+				batch.stream().map(GeneratedPuzzle::toString).collect(Collectors.toList()),
+				generator.generateMany(10, 4, 4, lengths, 2, 42).stream()
+						.map(GeneratedPuzzle::toString)
+						.collect(Collectors.toList()));
+		for (GeneratedPuzzle puzzle : batch) {
+			assertEquals("biscuit", puzzle.getPlantedWords().get(1));
+			assertTrue(puzzle.getSolutions().size() <= 2);
+		}
+
+		assertFalse(generator.generate(5, 1, new int[]{5}, 1, new Random(1)).get().getPlantedWords().contains("can't"));
+		assertFalse(generator.generate(3, 1, new int[]{3}, 1, new Random(1)).isPresent());
+	}
+
+	/**
+	 * Tests that boards with more distinct solutions than allowed are rejected, using a dictionary of anagrams so that
+	 * many boards can be solved more than one way.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void ambiguousBoardsRejected() throws Exception {
+		WordTrie anagrams = new WordTrie(Arrays.asList(
+				"stop", "pots", "tops", "spot", "post", "opts", "pest", "pets", "step", "sept",
+				"stops", "posts", "spots", "steps", "pests", "tests", "totes", "setts"));
+		PuzzleGenerator ambiguous = new PuzzleGenerator(anagrams);
+		for (int maxSolutions = 1; maxSolutions <= 2; maxSolutions++) {
+			List<GeneratedPuzzle> batch = ambiguous.generateMany(50, 3, 3, new int[]{4, 5}, maxSolutions, 42);
+			assertFalse(batch.isEmpty());
+			for (GeneratedPuzzle puzzle : batch) {
+				assertTrue(puzzle.getSolutions().size() <= maxSolutions);
+				assertEquals(puzzle.getSolutions().size(), new WordBrainSolver(anagrams)
+						.solve(puzzle.getPuzzle().getBoard(), SolveOptions.DEFAULT.withDistinctWords(true), 4, 5)
+						.count());
+			}
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wordLengthsMustFillTheBoard() throws Exception {
+		generator.generate(3, 3, new int[]{4, 4}, 1, new Random(1));
+	}
+}
@@ -0,0 +1,74 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the SearchEstimate class.
+ */
+public class SearchEstimateTest {
+
+	private static final double DELTA = 1e-9;
+
+	/**
+	 * Tests that in fixed order, each level multiplies the branches by the next slot's candidates.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void fixedOrderMultipliesCandidates() throws Exception {
+		SearchEstimate estimate = new SearchEstimate(
+				new int[]{5, 4, 3}, new int[]{2, 3, 4}, SolveOptions.WordOrder.FIXED);
+
+		assertArrayEquals(new int[]{2, 3, 4}, estimate.getCandidateCounts());
+		assertEquals(2 + 6 + 24, estimate.getEstimatedNodes(), DELTA);
+		assertEquals(Math.cbrt(24), estimate.getBranchFactor(), DELTA);
+	}
+
+	/**
+	 * Tests that in any order, every order of distinct lengths is counted, but slots of the same length are not
+	 * counted twice.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void unorderedCountsEachOrderOfLengths() throws Exception {
+		SearchEstimate distinct = new SearchEstimate(
+				new int[]{5, 4}, new int[]{2, 3}, SolveOptions.WordOrder.UNORDERED);
+		// Level 1: 2 + 3 branches. Level 2: 2 * 3 + 3 * 2.
+		assertEquals(5 + 12, distinct.getEstimatedNodes(), DELTA);
+
+		SearchEstimate same = new SearchEstimate(
+				new int[]{4, 4}, new int[]{3, 3}, SolveOptions.WordOrder.UNORDERED);
+		assertEquals(3 + 9, same.getEstimatedNodes(), DELTA);
+	}
+
+	/**
+	 * Tests that a slot with no candidates on the initial board is counted as having one.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void noCandidatesCountedAsOne() throws Exception {
+		SearchEstimate estimate = new SearchEstimate(
+				new int[]{5, 4, 3}, new int[]{2, 0, 3}, SolveOptions.WordOrder.FIXED);
+
+		assertArrayEquals(new int[]{2, 0, 3}, estimate.getCandidateCounts());
+		assertEquals(2 + 2 + 6, estimate.getEstimatedNodes(), DELTA);
+	}
+
+	/**
+	 * Tests that there is nothing to estimate when there are no words to find.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void noWordsHasNoBranches() throws Exception {
+		SearchEstimate estimate = new SearchEstimate(new int[0], new int[0], SolveOptions.WordOrder.UNORDERED);
+
+		assertEquals(0, estimate.getEstimatedNodes(), DELTA);
+		assertEquals(0, estimate.getBranchFactor(), DELTA);
+	}
+}
@@ -0,0 +1,62 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the SolverStatistics class.
+ */
+public class SolverStatisticsTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Tests that the totals and histogram are exported in the Prometheus text format, with cached results left out of
+	 * the search totals.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void totalsExported() throws Exception {
+		SolverStatistics statistics = new SolverStatistics();
+		statistics.solveFinished(SolverMetrics.Operation.SOLVE, false, SolveResult.Status.COMPLETE,
+				30, 1000, Duration.ofMillis(1500));
+		statistics.solveFinished(SolverMetrics.Operation.SOLVE, false, SolveResult.Status.TIME_LIMIT_EXCEEDED,
+				0, 500, Duration.ofMillis(500));
+		statistics.solveFinished(SolverMetrics.Operation.SOLVE, true, SolveResult.Status.COMPLETE,
+				30, 0, Duration.ofNanos(1000));
+
+		Path file = folder.getRoot().toPath().resolve("wordbrain.prom");
+		statistics.writeTo(file);
+		List<String> lines = Files.readAllLines(file, StandardCharsets.UTF_8);
+
+		assertEquals(statistics.toString(), String.join("\n", lines) + "\n");
+		assertTrue(lines.contains("wordbrain_solves_total{operation=\"solve\",cached=\"false\",status=\"complete\"} 1"));
+		assertTrue(lines.contains(
+				"wordbrain_solves_total{operation=\"solve\",cached=\"false\",status=\"time_limit_exceeded\"} 1"));
+		assertTrue(lines.contains("wordbrain_solves_total{operation=\"solve\",cached=\"true\",status=\"complete\"} 1"));
+		assertTrue(lines.contains("wordbrain_solves_total{operation=\"count\",cached=\"false\",status=\"complete\"} 0"));
+		assertTrue(lines.contains("wordbrain_solutions_total 30"));
+		assertTrue(lines.contains("wordbrain_nodes_total 1500"));
+		assertTrue(lines.contains("wordbrain_search_seconds_total 2.0"));
+		assertTrue(lines.contains("wordbrain_solutions_per_second 15.0"));
+		assertTrue(lines.contains("wordbrain_solve_latency_seconds_bucket{le=\"0.001\"} 1"));
+		assertTrue(lines.contains("wordbrain_solve_latency_seconds_bucket{le=\"0.5\"} 2"));
+		assertTrue(lines.contains("wordbrain_solve_latency_seconds_bucket{le=\"1.0\"} 2"));
+		assertTrue(lines.contains("wordbrain_solve_latency_seconds_bucket{le=\"2.0\"} 3"));
+		assertTrue(lines.contains("wordbrain_solve_latency_seconds_bucket{le=\"+Inf\"} 3"));
+		assertTrue(lines.contains("wordbrain_solve_latency_seconds_count 3"));
+		assertEquals(1, Files.list(folder.getRoot().toPath()).count());
+	}
+}
@@ -0,0 +1,181 @@
+package uk.co.ndall.wordbrain;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.ndall.wordgames.PackedTrie;
+import uk.co.ndall.wordgames.WordTrie;
+
+import java.util.Arrays;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.IntStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the WordPaths class.
+ */
+public class WordPathsTest {
+
+	/**
+	 * Board:  labb
+	 *         rlti
+	 *         ecis
+	 *         mscu
+	 */
+	private MutableBoard board;
+
+	private WordTrie trie;
+
+	private PackedTrie dict;
+
+	@Before
+	public void Setup() {
+		board = new MutableBoard(new WordbrainBoard("labb,rlti,ecis,mscu").getIndex());
+		trie = new WordTrie(Arrays.asList(
+				"smell", "biscuit", "crab", "carb", "cub", "bus", "sit", "its", "tis", "lab", "bit", "lit", "mice",
+				"slit", "list", "cubs", "tilt", "bail", "lice", "slice", "mills", "sic", "cis"));
+		dict = trie.getPacked();
+	}
+
+	/**
+	 * Tests that finding paths on the initial board finds each word's path.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void findsPaths() throws Exception {
+		WordPaths paths = WordPaths.find(board, dict, null, 5, null);
+
+		assertEquals(new TreeSet<>(Arrays.asList("smell 13,12,8,5,0")), describe(paths));
+		assertEquals(1, paths.count());
+	}
+
+	/**
+	 * Tests that finding and updating paths stops once a limit has been exceeded, even by another thread's meter, and
+	 * that a stopped search doesn't affect the next one.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void stopsWhenLimitExceeded() throws Exception {
+		Budget budget = new Budget(SolveOptions.DEFAULT.withNodeLimit(1));
+		Budget.Meter meter = budget.new Meter();
+		Budget.Meter other = budget.new Meter();
+		WordPaths before = WordPaths.find(board, dict, null, 4, meter);
+		assertEquals(describe(WordPaths.find(board, dict, null, 4, null)), describe(before));
+		assertTrue(before.count() > 0);
+
+		other.tick();
+		other.tick();
+		assertEquals(SolveResult.Status.NODE_LIMIT_EXCEEDED, budget.getStatus());
+		assertEquals(0, WordPaths.find(board, dict, null, 4, meter).count());
+		assertEquals(0, WordPaths.find(board, dict, new SuffixIndex(board, trie.getReversed().getPacked(), 4, meter),
+				4, meter).count());
+
+		board.removeLetters(before.getPath(0), 4);
+		long[] changed = CellBits.create(board.getSize());
+		board.markChangedCells(changed);
+		assertEquals(0, before.update(board, dict, changed, meter).count());
+		assertEquals(describe(WordPaths.find(board, dict, null, 4, null)),
+				describe(before.update(board, dict, changed, null)));
+	}
+
+	/**
+	 * Tests that suffix-indexed search finds the same paths as searching from each word's first letter.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void suffixIndexFindsSamePaths() throws Exception {
+		for (int length = 2; length <= 7; length++) {
+			SuffixIndex suffixes = new SuffixIndex(board, trie.getReversed().getPacked(), length, null);
+			assertEquals(
+					describe(WordPaths.find(board, dict, null, length, null)),
+					describe(WordPaths.find(board, dict, suffixes, length, null)));
+		}
+	}
+
+	/**
+	 * Tests that after removing any word, updating the paths gives the same result as finding them again.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void updateMatchesFind() throws Exception {
+		for (int removedLength = 3; removedLength <= 7; removedLength++) {
+			for (int[] removed : allPaths(WordPaths.find(board, dict, null, removedLength, null))) {
+				for (int length = 3; length <= 7; length++) {
+					WordPaths before = WordPaths.find(board, dict, null, length, null);
+					board.removeLetters(removed, removed.length);
+					long[] changed = CellBits.create(board.getSize());
+					board.markChangedCells(changed);
+
+					WordPaths updated = before.update(board, dict, changed, null);
+					WordPaths found = WordPaths.find(board, dict, null, length, null);
+					assertEquals(describe(found), describe(updated));
+					assertEquals(found.count(), updated.count());
+					board.undo();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Tests that updating the paths on a board of more than 64 cells, so that each set of cells spans several longs,
+	 * gives the same result as finding them again.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void updateMatchesFindOnLargeBoard() throws Exception {
+		board = new MutableBoard(new WordbrainBoard(
+				"labbrltiec,iscmsucrab,tilslicebu,smellitsab,biscuitlab,carbmicesi,"
+						+ "tiltlistcu,bailsicmil,slicebusit,lablitcubs").getIndex());
+		for (int[] removed : allPaths(WordPaths.find(board, dict, null, 5, null))) {
+			for (int length = 3; length <= 5; length++) {
+				WordPaths before = WordPaths.find(board, dict, null, length, null);
+				board.removeLetters(removed, removed.length);
+				long[] changed = CellBits.create(board.getSize());
+				board.markChangedCells(changed);
+
+				assertEquals(describe(WordPaths.find(board, dict, null, length, null)),
+						describe(before.update(board, dict, changed, null)));
+				board.undo();
+			}
+		}
+	}
+
+	/**
+	 * Test helper that lists every path.
+	 *
+	 * @param paths The word paths.
+	 * @return Array of paths.
+	 */
+	private int[][] allPaths(WordPaths paths) {
+		return IntStream.range(0, paths.count())
+				.mapToObj(paths::getPath)
+				.toArray(int[][]::new);
+	}
+
+	/**
+	 * Test helper that describes each path as its word and cells.
+	 *
+	 * @param paths The word paths.
+	 * @return Set of descriptions, eg. "crab 14,9,4,1"
+	 */
+	private Set<String> describe(WordPaths paths) {
+		Set<String> descriptions = new TreeSet<>();
+		for (int[] path : allPaths(paths)) {
+			StringBuilder word = new StringBuilder();
+			StringBuilder cells = new StringBuilder();
+			for (int cell : path) {
+				word.append(board.getLetter(cell));
+				cells.append(cells.length() == 0 ? "" : ",").append(cell);
+			}
+			descriptions.add(word + " " + cells);
+		}
+		return descriptions;
+	}
+}
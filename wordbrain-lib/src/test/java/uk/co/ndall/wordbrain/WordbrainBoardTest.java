@@ -5,6 +5,9 @@ import org.junit.Before;
 import org.junit.Test;
 import uk.co.ndall.wordgames.Coords2D;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 import static org.hamcrest.CoreMatchers.equalTo;
@@ -174,6 +177,17 @@ public class WordbrainBoardTest {
 		assertFalse(jagged.isValid());
 	}
 
+	/**
+	 * Tests that boards with more than the supported number of squares are invalid.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void oversizedBoardIsInvalid() throws Exception {
+		assertFalse(new WordbrainBoard(layout(257, 256)).isValid());
+		assertTrue(new WordbrainBoard(layout(256, 256)).isValid());
+	}
+
 	/**
 	 * Tests that tiles must be letters or space.
 	 *
@@ -204,4 +218,79 @@ public class WordbrainBoardTest {
 	public void letterCountIgnoresSpaces() throws Exception {
 		assertEquals(6, gappyBoard.countLetters());
 	}
+
+	/**
+	 * Tests that mirror images, and boards which only differ by blank edges, share a canonical form.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void mirroredAndPaddedBoardsShareCanonicalForm() throws Exception {
+		CanonicalBoard canonical = board.getCanonicalForm();
+		CanonicalBoard mirrored = new WordbrainBoard("cba,fed,ihg").getCanonicalForm();
+		CanonicalBoard padded = new WordbrainBoard("     ,     , cba , fed , ihg ").getCanonicalForm();
+
+		assertEquals(canonical, mirrored);
+		assertEquals(canonical, padded);
+		assertEquals(canonical.getHash(), padded.getHash());
+		assertEquals("abc,def,ghi", canonical.toString());
+		assertSame(board, canonical.getBoard());
+		assertFalse(canonical.isMirrored());
+		assertTrue(mirrored.isMirrored());
+		assertNotEquals(canonical, gappyBoard.getCanonicalForm());
+	}
+
+	/**
+	 * Tests that the canonical board has no blank edges, and that positions convert both ways.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void canonicalFormConvertsPositions() throws Exception {
+		WordbrainBoard original = new WordbrainBoard("    ,  c ,  ba,  ed");
+		CanonicalBoard canonical = original.getCanonicalForm();
+
+		assertEquals(" c,ab,de", canonical.toString());
+		assertEquals(" c\nab\nde", canonical.getBoard().toString());
+		assertTrue(canonical.isMirrored());
+		Coords2D b = new Coords2D(2, 2);
+		assertEquals(new Coords2D(1, 1), canonical.toCanonical(b));
+		assertEquals(b, canonical.toOriginal(new Coords2D(1, 1)));
+		for (Coords2D pos : original.getPositions()) {
+			assertEquals(original.getSquare(pos), canonical.getBoard().getSquare(canonical.toCanonical(pos)));
+		}
+
+		List<FoundWord> solution = Collections.singletonList(
+				new FoundWord(new Coords2D[]{new Coords2D(1, 1), new Coords2D(0, 1)}, "ba", 0));
+		FoundWord converted = canonical.toOriginal(solution).get(0);
+		assertEquals("ba", converted.getWord());
+		assertArrayEquals(new Coords2D[]{new Coords2D(2, 2), new Coords2D(3, 2)}, converted.getPositions());
+	}
+
+	/**
+	 * Tests that boards which can't be trimmed or mirrored are their own canonical form.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void invalidAndBlankBoardsAreTheirOwnCanonicalForm() throws Exception {
+		WordbrainBoard invalid = new WordbrainBoard("ab,c");
+		WordbrainBoard blank = new WordbrainBoard("  ,  ");
+		assertSame(invalid, invalid.getCanonicalForm().getBoard());
+		assertSame(blank, blank.getCanonicalForm().getBoard());
+		assertFalse(invalid.getCanonicalForm().isMirrored());
+	}
+
+	/**
+	 * Test helper that makes the layout of a board filled with the letter a.
+	 *
+	 * @param width  The number of columns.
+	 * @param height The number of rows.
+	 * @return The layout.
+	 */
+	private static String layout(int width, int height) {
+		char[] row = new char[width];
+		Arrays.fill(row, 'a');
+		return String.join(",", Collections.nCopies(height, new String(row)));
+	}
 }
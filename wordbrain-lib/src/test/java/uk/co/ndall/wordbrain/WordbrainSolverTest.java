@@ -1,16 +1,31 @@
 package uk.co.ndall.wordbrain;
 
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.co.ndall.wordgames.DictionaryRegistry;
 import uk.co.ndall.wordgames.WordTrie;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsIterableContainingInAnyOrder.containsInAnyOrder;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Tests for WordbrainSolver.
@@ -38,6 +53,9 @@ public class WordbrainSolverTest {
 	 */
 	public String[] dictionaryWords;
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	/**
 	 * Setup dictionaryWords, which may be mutated for each test.
 	 */
@@ -98,6 +116,447 @@ public class WordbrainSolverTest {
 		assertStreamContainsOnly(solutions, new String[][]{{"llems", "biscuit", "crab"}, SOLUTION});
 	}
 
+	/**
+	 * Tests that each solve can choose a dictionary from the solver's registry.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void solverUsesChosenDictionary() throws Exception {
+		DictionaryRegistry registry = new DictionaryRegistry();
+		registry.register("standard", () -> Arrays.stream(dictionaryWords));
+		registry.register("nonsense", () -> Stream.of("llems", "biscuit", "crab"));
+
+		WordBrainSolver solver = new WordBrainSolver(registry, "standard");
+
+		assertStreamContainsOnly(solver.solve(BOARD, WORD_LENGTHS), SOLUTION);
+		assertStreamContainsOnly(solver.solve("nonsense", BOARD, WORD_LENGTHS),
+				new String[][]{{"llems", "biscuit", "crab"}});
+	}
+
+	/**
+	 * Tests that choosing a dictionary fails if the solver was not created with a registry.
+	 *
+	 * @throws Exception
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void solverWithoutRegistryRejectsDictionaryId() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		solver.solve("standard", BOARD, WORD_LENGTHS);
+	}
+
+	/**
+	 * Tests that replacing the dictionary does not affect a solve which has already started.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void replacedDictionaryOnlyUsedByLaterSolves() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		Stream<List<FoundWord>> inFlight = solver.solve(BOARD, WORD_LENGTHS);
+
+		dictionaryWords[2] = "carb";
+		solver.setDictionary(new WordTrie(Arrays.asList(dictionaryWords)));
+
+		assertStreamContainsOnly(inFlight, SOLUTION);
+		assertStreamContainsOnly(solver.solve(BOARD, WORD_LENGTHS), new String[0][]);
+	}
+
+	/**
+	 * Tests that the dictionary can be rebuilt from an updated file.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void reloadedDictionaryIsUsed() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+
+		dictionaryWords[0] = "llems";
+		Path file = folder.newFile("words.txt").toPath();
+		Files.write(file, Arrays.asList(dictionaryWords));
+		solver.reloadDictionary(file).join();
+
+		assertStreamContainsOnly(solver.solve(BOARD, WORD_LENGTHS),
+				new String[][]{{"llems", "biscuit", "crab"}, SOLUTION});
+	}
+
+	/**
+	 * Tests that when words may be found in any order, solutions are found for every order that works, with the words
+	 * listed in the order their lengths were given.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void unorderedSolverFindsEveryOrder() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		SolveOptions unordered = SolveOptions.DEFAULT.withWordOrder(SolveOptions.WordOrder.UNORDERED);
+
+		Set<String> solutions = describeSolutions(solver.solve(BOARD, unordered, 4, 5, 7));
+
+		assertThat(solutions, containsInAnyOrder(
+				"crab@0 smell@1 biscuit@2",
+				"crab@0 smell@2 biscuit@1",
+				"crab@2 smell@0 biscuit@1",
+				"crab@2 smell@1 biscuit@0"));
+	}
+
+	/**
+	 * Tests that keeping distinct words drops solutions making the same words from other tiles or in another order,
+	 * but doesn't change the count.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void distinctWordsDropsRepeatedWords() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		SolveOptions unordered = SolveOptions.DEFAULT.withWordOrder(SolveOptions.WordOrder.UNORDERED);
+		SolveOptions distinct = unordered.withDistinctWords(true);
+
+		assertEquals(1, solver.solve(BOARD, distinct, 4, 5, 7).count());
+		long all = solver.solve(BOARD, unordered, 4, 5, 7).count();
+		assertTrue(all > 1);
+		assertEquals(all, solver.countSolutions(BOARD, distinct, 4, 5, 7));
+
+		WordbrainBoard pairs = new WordbrainBoard("aa,bb");
+		solver.setDictionary(new WordTrie(Arrays.asList("ab", "ba")));
+		assertEquals(8, solver.solve(pairs, SolveOptions.DEFAULT, 2).count());
+		SolveResult result = solver.solveWithLimits(pairs, SolveOptions.DEFAULT.withDistinctWords(true), 2);
+		assertEquals(Arrays.asList("ab", "ba"), result.getSolutions().stream()
+				.map(solution -> solution.get(0).getWord())
+				.sorted()
+				.collect(Collectors.toList()));
+	}
+
+	/**
+	 * Tests that exploring the most constrained slot first finds the same solutions as trying slots in order.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void mostConstrainedFirstFindsSameSolutions() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		SolveOptions unordered = SolveOptions.DEFAULT.withWordOrder(SolveOptions.WordOrder.UNORDERED);
+		SolveOptions constrained = SolveOptions.DEFAULT.withWordOrder(SolveOptions.WordOrder.MOST_CONSTRAINED_FIRST);
+
+		assertEquals(
+				describeSolutions(solver.solve(BOARD, unordered, 4, 5, 7)),
+				describeSolutions(solver.solve(BOARD, constrained, 4, 5, 7)));
+	}
+
+	/**
+	 * Tests that searching for words from both ends finds the same solutions as searching from their first letters,
+	 * whether some or all of the words are long enough.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void bidirectionalSearchFindsSameSolutions() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		SolveOptions unordered = SolveOptions.DEFAULT.withWordOrder(SolveOptions.WordOrder.UNORDERED);
+
+		assertStreamContainsOnly(solver.solve(BOARD, SolveOptions.DEFAULT.withBidirectionalSearch(2), WORD_LENGTHS),
+				SOLUTION);
+		assertEquals(
+				describeSolutions(solver.solve(BOARD, unordered, 4, 5, 7)),
+				describeSolutions(solver.solve(BOARD, unordered.withBidirectionalSearch(5), 4, 5, 7)));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void bidirectionalSearchNeedsTwoLetters() throws Exception {
+		SolveOptions.DEFAULT.withBidirectionalSearch(1);
+	}
+
+	/**
+	 * Tests that counting solutions gives the same number as finding them, in any word order.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void countSolutionsMatchesSolve() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		SolveOptions unordered = SolveOptions.DEFAULT.withWordOrder(SolveOptions.WordOrder.UNORDERED);
+
+		assertEquals(1, solver.countSolutions(BOARD, WORD_LENGTHS));
+		assertEquals(0, solver.countSolutions(BOARD, 5, 4, 7));
+		assertEquals(1, solver.countSolutions(BOARD));
+		assertEquals(
+				solver.solve(BOARD, unordered, 4, 5, 7).count(),
+				solver.countSolutions(BOARD, unordered, 4, 5, 7));
+		assertEquals(solver.solve(BOARD, unordered, 4, 5).count(), solver.countSolutions(BOARD, unordered, 4, 5));
+	}
+
+	/**
+	 * Tests that the estimate counts the candidate words for each slot on the initial board.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void estimateCountsCandidates() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+
+		SearchEstimate estimate = solver.estimate(BOARD, WORD_LENGTHS);
+
+		// "smell" can be made one way, "biscuit" two ways and "crab" one way.
+		assertArrayEquals(new int[]{1, 2, 1}, estimate.getCandidateCounts());
+		assertEquals(1 + 2 + 2, estimate.getEstimatedNodes(), 1e-9);
+	}
+
+	/**
+	 * Tests that a search within its limits finishes, and reports how many words it tried.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void searchWithinLimitsIsComplete() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		SolveOptions limited = SolveOptions.DEFAULT
+				.withTimeLimit(Duration.ofMinutes(1))
+				.withNodeLimit(1000)
+				.withSolutionLimit(10);
+
+		SolveResult result = solver.solveWithLimits(BOARD, limited, WORD_LENGTHS);
+
+		assertTrue(result.isComplete());
+		assertEquals(SolveResult.Status.COMPLETE, result.getStatus());
+		assertStreamContainsOnly(result.getSolutions().stream(), SOLUTION);
+		// "smell", two paths for "biscuit" and "crab".
+		assertEquals(4, result.getNodesVisited());
+	}
+
+	/**
+	 * Tests that exceeding each kind of limit stops the search, keeping the solutions found so far.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void exceededLimitsStopSearch() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		SolveOptions unordered = SolveOptions.DEFAULT.withWordOrder(SolveOptions.WordOrder.UNORDERED);
+
+		SolveResult result = solver.solveWithLimits(BOARD, unordered.withSolutionLimit(2), 4, 5, 7);
+		assertEquals(SolveResult.Status.SOLUTION_LIMIT_EXCEEDED, result.getStatus());
+		assertEquals(2, result.getSolutions().size());
+
+		result = solver.solveWithLimits(BOARD, unordered.withNodeLimit(2), 4, 5, 7);
+		assertEquals(SolveResult.Status.NODE_LIMIT_EXCEEDED, result.getStatus());
+		assertFalse(result.isComplete());
+
+		result = solver.solveWithLimits(BOARD, unordered.withTimeLimit(Duration.ZERO), 4, 5, 7);
+		assertEquals(SolveResult.Status.TIME_LIMIT_EXCEEDED, result.getStatus());
+		assertTrue(result.getSolutions().isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nodeLimitMustBePositive() throws Exception {
+		SolveOptions.DEFAULT.withNodeLimit(0);
+	}
+
+	/**
+	 * Tests that keeping the memo and solutions off the heap gives the same results.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void offHeapStorageGivesSameResults() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		SolveOptions unordered = SolveOptions.DEFAULT.withWordOrder(SolveOptions.WordOrder.UNORDERED);
+		SolveOptions offHeap = unordered.withOffHeapStorage(SolveOptions.MIN_OFF_HEAP_BYTES);
+
+		assertEquals(solver.countSolutions(BOARD, unordered, 4, 5, 7), solver.countSolutions(BOARD, offHeap, 4, 5, 7));
+		assertEquals(
+				describeSolutions(solver.solve(BOARD, unordered, 4, 5, 7)),
+				describeSolutions(solver.solve(BOARD, offHeap, 4, 5, 7)));
+		assertStreamContainsOnly(solver.solve(BOARD, offHeap.withWordOrder(SolveOptions.WordOrder.FIXED), WORD_LENGTHS),
+				SOLUTION);
+		assertEquals(
+				describeSolutions(solver.solve(BOARD, unordered, 4, 5, 7)),
+				describeSolutions(solver.solveWithLimits(BOARD, offHeap, 4, 5, 7).getSolutions().stream()));
+
+		// The budget is kept when other options are changed.
+		assertEquals(SolveOptions.MIN_OFF_HEAP_BYTES,
+				offHeap.withWordOrder(SolveOptions.WordOrder.FIXED).withSolutionLimit(10).getOffHeapBytes());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void offHeapBudgetMustNotBeTiny() throws Exception {
+		SolveOptions.DEFAULT.withOffHeapStorage(1024);
+	}
+
+	/**
+	 * Tests that solving a batch gives each puzzle the same result as solving it alone, in the order given.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void batchSolvesEachPuzzle() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		List<Puzzle> puzzles = Arrays.asList(
+				new Puzzle(BOARD, WORD_LENGTHS),
+				new Puzzle(BOARD, 5, 4, 7),
+				new Puzzle(new WordbrainBoard("crab"), 4));
+
+		BatchResult batch = solver.solveBatch(puzzles, SolveOptions.DEFAULT);
+
+		assertEquals(3, batch.getResults().size());
+		assertStreamContainsOnly(batch.getResults().get(0).getResult().getSolutions().stream(), SOLUTION);
+		assertTrue(batch.getResults().get(1).getResult().getSolutions().isEmpty());
+		assertStreamContainsOnly(batch.getResults().get(2).getResult().getSolutions().stream(), new String[]{"crab"});
+		for (int i = 0; i < puzzles.size(); i++) {
+			assertSame(puzzles.get(i), batch.getResults().get(i).getPuzzle());
+			assertTrue(batch.getResults().get(i).getResult().isComplete());
+		}
+		assertEquals(2, batch.getTotalSolutions());
+		assertTrue(batch.getPuzzlesPerSecond() > 0);
+	}
+
+	/**
+	 * Tests that a mirrored board is answered from the result cache, with the solutions mirrored back.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void mirroredBoardSharesCachedResult() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		WordbrainBoard mirrored = new WordbrainBoard("bbal,itlr,sice,ucsm");
+		SolveOptions unordered = SolveOptions.DEFAULT.withWordOrder(SolveOptions.WordOrder.UNORDERED);
+
+		SolveResult result = solver.solveWithLimits(BOARD, unordered, 4, 5, 7);
+		SolveResult mirroredResult = solver.solveWithLimits(mirrored, unordered, 4, 5, 7);
+		solver.setResultCacheSize(0);
+		SolveResult uncached = solver.solveWithLimits(mirrored, unordered, 4, 5, 7);
+
+		assertEquals(describePositions(uncached.getSolutions()), describePositions(mirroredResult.getSolutions()));
+		assertEquals(result.getSolutions().size(), mirroredResult.getSolutions().size());
+		assertEquals(solver.countSolutions(BOARD, unordered, 4, 5, 7),
+				solver.countSolutions(new WordbrainBoard("    ,bbal,itlr,sice,ucsm"), unordered, 4, 5, 7));
+	}
+
+	/**
+	 * Tests that words added to the dictionary after a result was cached are used by later solves and counts.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void cachedResultNotUsedAfterWordAdded() throws Exception {
+		WordTrie dict = new WordTrie(Arrays.asList("ab", "cd"));
+		WordBrainSolver solver = new WordBrainSolver(dict);
+		WordbrainBoard board = new WordbrainBoard("ab,cd");
+		assertEquals(2, solver.solveWithLimits(board, SolveOptions.DEFAULT, 2, 2).getSolutions().size());
+		assertEquals(2, solver.countSolutions(board, SolveOptions.DEFAULT, 2, 2));
+
+		dict.put("ac");
+		dict.put("bd");
+
+		assertEquals(4, solver.solveWithLimits(board, SolveOptions.DEFAULT, 2, 2).getSolutions().size());
+		assertEquals(4, solver.countSolutions(board, SolveOptions.DEFAULT, 2, 2));
+	}
+
+	/**
+	 * Tests that a progressive solve finds the first words before it returns, passes every solution to the listener,
+	 * and ranks the first words by their solutions.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void progressiveSolveRanksFirstWords() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		SolveOptions unordered = SolveOptions.DEFAULT.withWordOrder(SolveOptions.WordOrder.UNORDERED);
+		List<List<FoundWord>> streamed = new CopyOnWriteArrayList<>();
+
+		ProgressiveSolve progress = solver.solveProgressively(BOARD, unordered, streamed::add, 4, 5, 7);
+		assertEquals(Arrays.asList("crab"), progress.getFirstWords().stream()
+				.map(FoundWord::getWord)
+				.distinct()
+				.sorted()
+				.collect(Collectors.toList()));
+
+		SolveResult result = progress.getResult().get();
+		assertEquals(SolveResult.Status.COMPLETE, result.getStatus());
+		assertEquals(solver.solve(BOARD, unordered, 4, 5, 7).count(), result.getSolutions().size());
+		assertEquals(describePositions(result.getSolutions()), describePositions(streamed));
+		assertEquals(Arrays.asList("crab"), new ArrayList<>(progress.getRanking().keySet()));
+		assertEquals(Long.valueOf(result.getSolutions().size()), progress.getRanking().get("crab"));
+	}
+
+	/**
+	 * Tests that each solve and count is reported to the metrics once its search finishes, including streamed solves,
+	 * cached results (counts are shared whether or not distinct words are asked for) and searches stopped by a limit.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void solvesReportedToMetrics() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		List<String> reported = new CopyOnWriteArrayList<>();
+		solver.setMetrics((operation, cached, status, solutions, nodes, elapsed) ->
+				reported.add(operation + " " + cached + " " + status + " " + solutions + " " + (nodes > 0)));
+
+		assertEquals(1, solver.solve(BOARD, WORD_LENGTHS).count());
+		solver.solveWithLimits(BOARD, SolveOptions.DEFAULT, WORD_LENGTHS);
+		solver.solveWithLimits(BOARD, SolveOptions.DEFAULT, WORD_LENGTHS);
+		solver.countSolutions(BOARD, WORD_LENGTHS);
+		solver.countSolutions(BOARD, SolveOptions.DEFAULT.withDistinctWords(true), WORD_LENGTHS);
+		solver.solveWithLimits(BOARD, SolveOptions.DEFAULT.withNodeLimit(1), 4, 5, 7);
+
+		assertEquals(Arrays.asList(
+				"SOLVE false COMPLETE 1 true",
+				"SOLVE false COMPLETE 1 true",
+				"SOLVE true COMPLETE 1 false",
+				"COUNT false COMPLETE 1 false",
+				"COUNT true COMPLETE 1 false",
+				"SOLVE false NODE_LIMIT_EXCEEDED 0 true"),
+				reported);
+	}
+
+	/**
+	 * Test that a solve whose stream is closed before it is read is reported when it is closed, and that a stream
+	 * which is read to the end and then closed is only reported once.
+	 *
+	 * @throws Exception
+	 */
+	@Test
+	public void closedStreamsReportedOnce() throws Exception {
+		WordBrainSolver solver = new WordBrainSolver(new WordTrie(Arrays.asList(dictionaryWords)));
+		List<String> reported = new CopyOnWriteArrayList<>();
+		solver.setMetrics((operation, cached, status, solutions, nodes, elapsed) ->
+				reported.add(operation + " " + status + " " + solutions));
+
+		solver.solve(BOARD, WORD_LENGTHS).close();
+		assertEquals(Collections.singletonList("SOLVE COMPLETE 0"), reported);
+
+		try (Stream<List<FoundWord>> solutions = solver.solve(BOARD, WORD_LENGTHS)) {
+			assertEquals(1, solutions.count());
+		}
+		assertEquals(Arrays.asList("SOLVE COMPLETE 0", "SOLVE COMPLETE 1"), reported);
+	}
+
+	/**
+	 * Test helper that describes each distinct solution as its words and the positions of their tiles.
+	 *
+	 * @param solutions Solutions from the WordbrainSolver
+	 * @return Set of descriptions, eg. "crab@2[(1, 0), ...] ..."
+	 */
+	private Set<String> describePositions(List<List<FoundWord>> solutions) {
+		return solutions.stream()
+				.map(solution -> solution.stream()
+						.map(word -> word.getWord() + "@" + word.getStep() + Arrays.toString(word.getPositions()))
+						.collect(Collectors.joining(" ")))
+				.collect(Collectors.toSet());
+	}
+
+	/**
+	 * Test helper that describes each distinct solution as its words and the steps they were found at.
+	 *
+	 * @param solutions Solutions from the WordbrainSolver
+	 * @return Set of descriptions, eg. "crab@2 smell@0 biscuit@1"
+	 */
+	private Set<String> describeSolutions(Stream<List<FoundWord>> solutions) {
+		return solutions
+				.map(solution -> solution.stream()
+						.map(word -> word.getWord() + "@" + word.getStep())
+						.collect(Collectors.joining(" ")))
+				.collect(Collectors.toSet());
+	}
 
 	/**
 	 * Test helper that takes a stream of solutions from the solver, and asserts that it contains the expected
@@ -0,0 +1,114 @@
+package uk.co.ndall.wordgames;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests the DictionaryRegistry class.
+ */
+public class DictionaryRegistryTest {
+
+	private DictionaryRegistry registry;
+
+	// Number of times the "food" dictionary has been read.
+	private AtomicInteger foodLoads;
+
+	@Before
+	public void Setup() {
+		registry = new DictionaryRegistry();
+		foodLoads = new AtomicInteger();
+		registry.register("food", () -> {
+			foodLoads.incrementAndGet();
+			return Stream.of("donut", "bun");
+		});
+		registry.register("animals", () -> Stream.of("cat", "dog"));
+	}
+
+	@Test
+	public void dictionaryNotLoadedUntilUsed() throws Exception {
+		assertFalse(registry.isLoaded("food"));
+		assertEquals(0, foodLoads.get());
+
+		assertTrue(registry.get("food").has("donut"));
+		assertTrue(registry.isLoaded("food"));
+		assertFalse(registry.isLoaded("animals"));
+		assertEquals(1, foodLoads.get());
+	}
+
+	@Test
+	public void dictionaryIsShared() throws Exception {
+		assertSame(registry.get("food"), registry.get("food"));
+		assertEquals(1, foodLoads.get());
+	}
+
+	@Test
+	public void dictionariesAreSeparate() throws Exception {
+		assertTrue(registry.get("animals").has("cat"));
+		assertFalse(registry.get("animals").has("bun"));
+	}
+
+	@Test
+	public void evictedDictionaryIsReloaded() throws Exception {
+		WordTrie first = registry.get("food");
+		registry.evict("food");
+		assertFalse(registry.isLoaded("food"));
+
+		assertNotSame(first, registry.get("food"));
+		assertEquals(2, foodLoads.get());
+	}
+
+	@Test
+	public void weightLimitEvictsDictionaries() throws Exception {
+		// "cat" and "dog" together make a 7 node trie, so there is only room for one 4 node trie at a time.
+		DictionaryRegistry small = new DictionaryRegistry(5);
+		small.register("c", () -> Stream.of("cat"));
+		small.register("d", () -> Stream.of("dog"));
+
+		small.get("c");
+		small.get("d");
+		assertFalse(small.isLoaded("c"));
+		assertTrue(small.isLoaded("d"));
+	}
+
+	@Test
+	public void reloadSwapsInNewDictionary() throws Exception {
+		WordTrie first = registry.get("food");
+		WordTrie second = registry.reload("food").join();
+
+		assertNotSame(first, second);
+		assertSame(second, registry.get("food"));
+	}
+
+	@Test
+	public void supersededReloadIsDiscarded() throws Exception {
+		List<Runnable> tasks = new ArrayList<>();
+		registry.reload("food", tasks::add);
+		WordTrie newest = registry.reload("food").join();
+
+		// Let the first reload finish last.
+		tasks.forEach(Runnable::run);
+		assertSame(newest, registry.get("food"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unknownIdThrows() throws Exception {
+		registry.get("planets");
+	}
+
+	@Test(expected = UncheckedIOException.class)
+	public void unreadableSourceThrows() throws Exception {
+		registry.register("broken", () -> {
+			throw new IOException("Can't read");
+		});
+		registry.get("broken");
+	}
+}
@@ -0,0 +1,89 @@
+package uk.co.ndall.wordgames;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the DictionarySnapshot class.
+ */
+public class DictionarySnapshotTest {
+
+	private static final List<String> WORDS = Arrays.asList("donut", "donate", "don", "egg", "na\u00efve");
+
+	private WordTrie original;
+
+	private WordTrie snapshot;
+
+	@Before
+	public void Setup() throws IOException {
+		original = new WordTrie(WORDS);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		DictionarySnapshot.write(original, out);
+		snapshot = DictionarySnapshot.read(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	@Test
+	public void snapshotHasSameWords() throws Exception {
+		for (String word : WORDS) {
+			assertTrue(snapshot.has(word));
+			assertTrue(snapshot.getPacked().has(word));
+		}
+		assertFalse(snapshot.has("do"));
+		assertEquals(original.countNodes(), snapshot.countNodes());
+		assertEquals(words(original.getPacked()), words(snapshot.getPacked()));
+		assertEquals(words(original.getReversed().getPacked()), words(snapshot.getReversed().getPacked()));
+	}
+
+	@Test
+	public void snapshotHasSameStatistics() throws Exception {
+		WordStatistics expected = original.getStatistics();
+		WordStatistics actual = snapshot.getStatistics();
+		assertEquals(expected.getMaxLength(), actual.getMaxLength());
+		for (int length = 0; length <= expected.getMaxLength(); length++) {
+			assertEquals(expected.countWords(length), actual.countWords(length));
+			assertEquals(expected.countWords('d', length), actual.countWords('d', length));
+			assertEquals(expected.countWords('d', 'o', length), actual.countWords('d', 'o', length));
+		}
+	}
+
+	@Test
+	public void snapshotNodesBuiltWhenNeeded() throws Exception {
+		assertEquals(original.getBranches(), snapshot.getBranches());
+		assertTrue(snapshot.getChild('d').hasItemAtDistance(4));
+		assertTrue(snapshot.hasItemAtDistance(3));
+
+		snapshot.put("dog");
+		assertTrue(snapshot.has("dog"));
+		assertTrue(snapshot.has("donut"));
+		assertTrue(snapshot.getPacked().has("dog"));
+		assertTrue(snapshot.getReversed().has("god"));
+	}
+
+	@Test(expected = IOException.class)
+	public void otherDataRejected() throws Exception {
+		DictionarySnapshot.read(new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+	}
+
+	/**
+	 * List the words in a packed trie.
+	 *
+	 * @param trie The trie.
+	 * @return The words, in symbol order.
+	 */
+	private static List<String> words(PackedTrie trie) {
+		List<String> words = new ArrayList<>();
+		trie.forEachWord(words::add);
+		return words;
+	}
+}
@@ -0,0 +1,119 @@
+package uk.co.ndall.wordgames;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the PackedTrie and Alphabet classes.
+ */
+public class PackedTrieTest {
+
+	private PackedTrie trie;
+
+	@Before
+	public void Setup() {
+		this.trie = new PackedTrie(Arrays.asList("donut", "donate", "don", "don"));
+	}
+
+	@Test
+	public void hasTrueWhenWordPresent() throws Exception {
+		assertTrue(trie.has("donut"));
+		assertTrue(trie.has("donate"));
+		assertTrue(trie.has("don"));
+	}
+
+	@Test
+	public void prefixesAndOtherWordsAreNotWords() throws Exception {
+		assertFalse(trie.has("do"));
+		assertFalse(trie.has(""));
+		assertFalse(trie.has("donated"));
+		assertFalse(trie.has("egg"));
+	}
+
+	@Test
+	public void nodesSharePrefixes() throws Exception {
+		// Root, d, o, n, u, t, a, t, e.
+		assertEquals(9, trie.countNodes());
+	}
+
+	@Test
+	public void nodesKnowDistancesToWords() throws Exception {
+		int node = child(child(PackedTrie.ROOT, 'd'), 'o');
+		assertTrue(trie.hasItemAtDistance(node, 1));
+		assertTrue(trie.hasItemAtDistance(node, 3));
+		assertTrue(trie.hasItemAtDistance(node, 4));
+		assertFalse(trie.hasItemAtDistance(node, 0));
+		assertFalse(trie.hasItemAtDistance(node, 2));
+		assertTrue(trie.hasItemAtDistance(PackedTrie.ROOT, 6));
+		assertFalse(trie.hasItemAtDistance(PackedTrie.ROOT, 7));
+		assertTrue(trie.isItem(child(node, 'n')));
+	}
+
+	@Test
+	public void missingBranchHasNoNode() throws Exception {
+		assertEquals(PackedTrie.NO_NODE, child(PackedTrie.ROOT, 'o'));
+		assertEquals(PackedTrie.NO_NODE, trie.getChild(PackedTrie.ROOT, trie.getAlphabet().size()));
+	}
+
+	@Test
+	public void matchesWordTrie() throws Exception {
+		WordTrie words = new WordTrie(Arrays.asList("crab", "carb", "cub", "cubs", "bus", "biscuit", "bit", "a"));
+		PackedTrie packed = words.getPacked();
+		for (String word : Arrays.asList("crab", "carb", "cub", "cubs", "bus", "biscuit", "bit", "a")) {
+			assertTrue(packed.has(word));
+		}
+		assertEquals(words.countNodes(), packed.countNodes());
+		assertFalse(packed.has("cu"));
+	}
+
+	@Test
+	public void alphabetIsMadeFromTheWords() throws Exception {
+		Alphabet alphabet = trie.getAlphabet();
+		assertEquals(7, alphabet.size());
+		assertEquals(0, alphabet.getSymbol('a'));
+		assertEquals(6, alphabet.getSymbol('u'));
+		assertEquals(Alphabet.NONE, alphabet.getSymbol('z'));
+		assertEquals('o', alphabet.getCodePoint(alphabet.getSymbol('o')));
+	}
+
+	@Test
+	public void accentedAndSupplementaryLettersAreSingleLetters() throws Exception {
+		// U+1D49C (mathematical script A) needs two chars in a String.
+		String script = new String(Character.toChars(0x1D49C));
+		PackedTrie unicode = new PackedTrie(Arrays.asList("caf\u00e9", "na\u00efve", "x" + script + "y"));
+
+		assertTrue(unicode.has("caf\u00e9"));
+		assertTrue(unicode.has("x" + script + "y"));
+		assertFalse(unicode.has("cafe"));
+		assertTrue(unicode.hasItemAtDistance(PackedTrie.ROOT, 3));
+
+		Alphabet alphabet = unicode.getAlphabet();
+		int symbol = alphabet.getSymbol(0x1D49C);
+		assertEquals(alphabet.size() - 1, symbol);
+		assertEquals("x" + script + "y", alphabet.toWord(alphabet.toSymbols("x" + script + "y")));
+		assertNull(alphabet.toSymbols("zip"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void wordsMustUseTheAlphabet() throws Exception {
+		new PackedTrie(Arrays.asList("egg"), trie.getAlphabet());
+	}
+
+	/**
+	 * Test helper that follows the branch for a letter.
+	 *
+	 * @param node   The node.
+	 * @param letter The letter.
+	 * @return The child node, or NO_NODE.
+	 */
+	private int child(int node, char letter) {
+		return trie.getChild(node, trie.getAlphabet().getSymbol(letter));
+	}
+}
@@ -0,0 +1,79 @@
+package uk.co.ndall.wordgames;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests the anagram and pattern queries on PackedTrie and WordTrie (see TrieQuery).
+ */
+public class TrieQueryTest {
+
+	private WordTrie words;
+
+	@Before
+	public void Setup() {
+		this.words = new WordTrie(Arrays.asList("crab", "carb", "arc", "car", "cab", "bar", "bra", "cub", "cubs", "a",
+				"rabbit", "barb"));
+	}
+
+	@Test
+	public void anagramsUseEachLetterOnce() throws Exception {
+		assertEquals(Arrays.asList("carb", "crab"), list(words.getPacked().anagrams("barc")));
+		assertEquals(Arrays.asList("arc", "bar", "bra", "cab", "car"), list(words.anagrams("B A C R", 3)));
+		assertEquals(Arrays.asList("barb"), list(words.getPacked().anagrams("brab")));
+		assertEquals(Collections.emptyList(), list(words.getPacked().anagrams("bab")));
+	}
+
+	@Test
+	public void anagramsMayLeaveLettersOver() throws Exception {
+		assertEquals(Arrays.asList("arc", "bar", "bra", "cab", "car"), list(words.anagrams("abcrx", 3)));
+		assertEquals(Arrays.asList("a"), list(words.anagrams("abcrx", 1)));
+		assertEquals(Collections.emptyList(), list(words.anagrams("abcrx", 7)));
+	}
+
+	@Test
+	public void wildcardsMatchAnyLetter() throws Exception {
+		assertEquals(Arrays.asList("bar", "cab", "car"), list(words.matching("?a?", null)));
+		assertEquals(Arrays.asList("carb", "crab"), list(words.matching("c??b", null)));
+		assertEquals(Arrays.asList("cubs"), list(words.matching("????", "subc")));
+		assertEquals(Arrays.asList("rabbit"), list(words.getPacked().matching("r?bb??")));
+	}
+
+	@Test
+	public void fixedLettersCountTowardsTheLetters() throws Exception {
+		assertEquals(Arrays.asList("bar", "bra"), list(words.matching("b??", "bar")));
+		assertEquals(Collections.emptyList(), list(words.matching("b??", "ar")));
+	}
+
+	@Test
+	public void lettersNotInTheDictionaryMatchNothing() throws Exception {
+		assertEquals(Collections.emptyList(), list(words.matching("z??", null)));
+		assertEquals(Collections.emptyList(), list(words.matching("", null)));
+		assertEquals(Arrays.asList("a"), list(words.matching("?", "\u00e9za")));
+	}
+
+	@Test
+	public void resultsAreInAlphabetOrderAndLazy() throws Exception {
+		WordTrie pairs = new WordTrie(Stream.of("ba", "bb", "ab", "aa"));
+		assertEquals(Arrays.asList("aa", "ab", "ba", "bb"), list(pairs.matching("??", null)));
+		assertEquals(Arrays.asList("aa"), list(pairs.matching("??", null).limit(1)));
+	}
+
+	/**
+	 * Test helper that collects the words from a query.
+	 *
+	 * @param results The query results.
+	 * @return The words, in the order found (alphabetical order, for these words).
+	 */
+	private static List<String> list(Stream<String> results) {
+		return results.collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,61 @@
+package uk.co.ndall.wordgames;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the WordStatistics class.
+ */
+public class WordStatisticsTest {
+
+	private WordTrie trie;
+
+	private WordStatistics stats;
+
+	@Before
+	public void Setup() {
+		this.trie = new WordTrie(Arrays.asList("a", "donut", "donate", "don", "dent", "bun"));
+		this.stats = trie.getStatistics();
+	}
+
+	@Test
+	public void countsWordsByLength() throws Exception {
+		assertEquals(1, stats.countWords(1));
+		assertEquals(2, stats.countWords(3));
+		assertEquals(1, stats.countWords(4));
+		assertEquals(0, stats.countWords(2));
+		assertEquals(0, stats.countWords(20));
+		assertEquals(6, stats.getMaxLength());
+	}
+
+	@Test
+	public void countsWordsByFirstLetter() throws Exception {
+		assertEquals(1, stats.countWords('a', 1));
+		assertEquals(1, stats.countWords('d', 3));
+		assertEquals(1, stats.countWords('d', 5));
+		assertEquals(0, stats.countWords('b', 5));
+		assertEquals(0, stats.countWords('z', 3));
+	}
+
+	@Test
+	public void countsWordsByFirstTwoLetters() throws Exception {
+		assertEquals(1, stats.countWords('d', 'o', 5));
+		assertEquals(1, stats.countWords('d', 'e', 4));
+		assertEquals(0, stats.countWords('d', 'e', 5));
+		assertEquals(1, stats.countWords('b', 'u', 3));
+	}
+
+	@Test
+	public void statisticsRebuiltWhenWordAdded() throws Exception {
+		assertSame(stats, trie.getStatistics());
+		trie.put("doe");
+		assertNotSame(stats, trie.getStatistics());
+		assertEquals(2, trie.getStatistics().countWords('d', 'o', 3));
+	}
+}
@@ -4,8 +4,10 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.util.Arrays;
+import java.util.Locale;
 
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -55,4 +57,54 @@ public class WordTrieTest {
 		assertTrue(dict.has("egg"));
 		assertTrue(dict.has("doable"));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void nodesKnowDistancesToWords() throws Exception {
+		WordTrie trie = (WordTrie) dict;
+		TrieNode<Character> node = trie.getChild('d').getChild('o');
+		assertTrue(node.hasItemAtDistance(1));
+		assertTrue(node.hasItemAtDistance(3));
+		assertTrue(node.hasItemAtDistance(4));
+		assertFalse(node.hasItemAtDistance(0));
+		assertFalse(node.hasItemAtDistance(2));
+		assertTrue(trie.hasItemAtDistance(6));
+		assertFalse(trie.hasItemAtDistance(7));
+	}
+
+	@Test
+	public void reversedTrieHasReversedWords() throws Exception {
+		WordTrie reversed = ((WordTrie) dict).getReversed();
+		assertTrue(reversed.has("tunod"));
+		assertTrue(reversed.has("etanod"));
+		assertTrue(reversed.has("nod"));
+		assertFalse(reversed.has("donut"));
+		assertSame(reversed, ((WordTrie) dict).getReversed());
+
+		dict.put("egg");
+		assertTrue(((WordTrie) dict).getReversed().has("gge"));
+	}
+
+	@Test
+	public void packedTrieHasSameWords() throws Exception {
+		PackedTrie packed = ((WordTrie) dict).getPacked();
+		assertTrue(packed.has("donut"));
+		assertTrue(packed.has("don"));
+		assertFalse(packed.has("do"));
+		assertSame(packed, ((WordTrie) dict).getPacked());
+
+		dict.put("egg");
+		assertTrue(((WordTrie) dict).getPacked().has("egg"));
+	}
+
+	@Test
+	public void wordsLowerCasedIndependentOfLocale() throws Exception {
+		Locale locale = Locale.getDefault();
+		try {
+			// In Turkish, upper case I lower-cases to a dotless i.
+			Locale.setDefault(new Locale("tr"));
+			assertTrue(new WordTrie(Arrays.asList("SIT")).has("sit"));
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+}